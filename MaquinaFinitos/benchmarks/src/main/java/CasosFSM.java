@@ -0,0 +1,192 @@
+import java.util.Arrays;
+import java.util.Random;
+
+import benchmarks.Caso;
+
+/**
+ * Casos de los bancos de prueba JMH, en el paquete por omisión para usar el código de la FSM
+ * (incluidas sus partes de paquete) directamente
+ * Cada caso prepara una máquina completa aleatoria con los parámetros indicados y devuelve
+ * la operación medida
+ */
+public class CasosFSM {
+    private static final int NUM_SALIDAS = 4;
+    private static final int LONGITUD_FLUJO = 64;
+
+    private final int numEstados;
+    private final int numEntradas;
+    private final int longitud;
+
+    private final String[] estados;
+    private final String[] entradas;
+    private final String[] salidas;
+    private final FSM fsm;
+    private final String[] secuencia;
+    private final int[] secuenciaIds;
+    private final int[] salidasIds;
+
+    private CasosFSM(int numEstados, int numEntradas, int longitud) {
+        this.numEstados = numEstados;
+        this.numEntradas = numEntradas;
+        this.longitud = longitud;
+        estados = simbolos("S", numEstados);
+        entradas = simbolos("x", numEntradas);
+        salidas = simbolos("y", NUM_SALIDAS);
+        fsm = construir();
+
+        Random random = new Random(42);
+        secuencia = new String[longitud];
+        secuenciaIds = new int[longitud];
+        FSMCompilada compilada = fsm.compilar();
+        for (int i = 0; i < longitud; i++) {
+            secuencia[i] = entradas[random.nextInt(numEntradas)];
+            secuenciaIds[i] = compilada.idEntrada(secuencia[i]);
+        }
+        salidasIds = new int[longitud];
+    }
+
+    /**
+     * Prepara un caso
+     * @param caso Nombre del caso
+     * @param numEstados Número de estados de la máquina
+     * @param numEntradas Tamaño del alfabeto de entrada
+     * @param longitud Longitud de la secuencia procesada
+     * @return Operación medida
+     * @throws IllegalArgumentException Si el caso no existe o no aplica a los parámetros
+     */
+    public static Caso crear(String caso, int numEstados, int numEntradas, int longitud) {
+        return new CasosFSM(numEstados, numEntradas, longitud).caso(caso);
+    }
+
+    private Caso caso(String caso) {
+        FSMCompilada compilada = fsm.compilar();
+        switch (caso) {
+            case "agregarTransicion":
+                return this::construir;
+            case "procesar":
+                return () -> {
+                    fsm.reiniciar();
+                    String ultima = null;
+                    for (String entrada : secuencia) {
+                        ultima = fsm.procesar(entrada);
+                    }
+                    return ultima;
+                };
+            case "procesarSecuencia":
+                return () -> {
+                    fsm.reiniciar();
+                    return fsm.procesarSecuencia(secuencia);
+                };
+            case "procesarLote":
+                return () -> {
+                    fsm.reiniciar();
+                    return fsm.procesarLote(secuenciaIds, salidasIds);
+                };
+            // Código generado frente al intérprete de tablas, con la misma interfaz PasoFSM
+            case "procesarLoteJit": {
+                FSMJit jit;
+                try {
+                    jit = FSMJit.generada(compilada);
+                } catch (IllegalStateException e) {
+                    throw new IllegalArgumentException("procesarLoteJit no aplica: " + e.getMessage());
+                }
+                return () -> jit.procesarLote(0, secuenciaIds, 0, longitud, salidasIds, 0);
+            }
+            case "procesarLoteInterpretado": {
+                FSMJit interpretada = FSMJit.interpretada(compilada);
+                return () -> interpretada.procesarLote(0, secuenciaIds, 0, longitud, salidasIds, 0);
+            }
+            case "procesarBytes":
+                return casoBytes(compilada);
+            // Flujos cortos: uno tras otro frente a todos avanzando juntos
+            case "procesarFlujos": {
+                int[][] flujos = flujos();
+                return () -> {
+                    int estado = 0;
+                    for (int[] flujo : flujos) {
+                        estado += compilada.procesarLote(0, flujo, 0, flujo.length, salidasIds, 0).getEstadoFinal();
+                    }
+                    return estado;
+                };
+            }
+            // procesarFlujosLockstep elige según el tamaño de las tablas; los otros dos fuerzan
+            // el lockstep con el paso escalar o con el vectorial
+            case "procesarFlujosLockstep":
+            case "procesarFlujosLockstepEscalar":
+            case "procesarFlujosLockstepVectorial": {
+                int[][] flujos = flujos();
+                int[][] salidasFlujos = new int[flujos.length][LONGITUD_FLUJO];
+                int[] inicios = new int[flujos.length];
+                EjecucionLockstep lockstep;
+                if (caso.equals("procesarFlujosLockstep")) {
+                    lockstep = new EjecucionLockstep(compilada);
+                } else {
+                    lockstep = new EjecucionLockstep(compilada, 256, true, caso.endsWith("Vectorial"));
+                }
+                return () -> lockstep.procesar(inicios, flujos, salidasFlujos);
+            }
+            case "generarDiagramaDOT":
+                return () -> new DiagramaFSM(fsm).generarDiagramaDOT();
+            case "generarMatrizTransiciones":
+                return () -> new DiagramaFSM(fsm).generarMatrizTransiciones();
+            case "generarEstadisticas":
+                return () -> new DiagramaFSM(fsm).generarEstadisticas();
+            default:
+                throw new IllegalArgumentException("Caso desconocido: " + caso);
+        }
+    }
+
+    /**
+     * La misma máquina con las entradas renombradas a bytes
+     */
+    private Caso casoBytes(FSMCompilada compilada) {
+        if (numEntradas > 256) {
+            throw new IllegalArgumentException("procesarBytes necesita a lo más 256 entradas");
+        }
+        String[] bytes = new String[numEntradas];
+        for (int x = 0; x < numEntradas; x++) {
+            bytes[x] = String.valueOf((char) x);
+        }
+        byte[] secuenciaBytes = new byte[longitud];
+        for (int i = 0; i < longitud; i++) {
+            secuenciaBytes[i] = (byte) secuenciaIds[i];
+        }
+        FSMBytes fsmBytes = FSMBytes.desde(new FSMCompilada(TablaSimbolos.desde(estados), TablaSimbolos.desde(bytes),
+                TablaSimbolos.desde(salidas), compilada.siguiente, compilada.salida, 0));
+        BufferSalidas buffer = new BufferSalidas(longitud);
+        return () -> {
+            buffer.reiniciar();
+            return fsmBytes.procesar(0, secuenciaBytes, 0, longitud, buffer);
+        };
+    }
+
+    /**
+     * La secuencia dividida en flujos cortos independientes
+     */
+    private int[][] flujos() {
+        int[][] flujos = new int[(longitud + LONGITUD_FLUJO - 1) / LONGITUD_FLUJO][];
+        for (int k = 0; k < flujos.length; k++) {
+            flujos[k] = Arrays.copyOfRange(secuenciaIds, k * LONGITUD_FLUJO, Math.min(longitud, (k + 1) * LONGITUD_FLUJO));
+        }
+        return flujos;
+    }
+
+    private FSM construir() {
+        Random r = new Random(7);
+        FSM nueva = new FSM(entradas, salidas, estados);
+        for (String estado : estados) {
+            for (String entrada : entradas) {
+                nueva.agregarTransicion(estado, entrada, estados[r.nextInt(numEstados)], salidas[r.nextInt(NUM_SALIDAS)]);
+            }
+        }
+        return nueva;
+    }
+
+    private static String[] simbolos(String prefijo, int cantidad) {
+        String[] simbolos = new String[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            simbolos[i] = prefijo + i;
+        }
+        return simbolos;
+    }
+}
@@ -0,0 +1,39 @@
+package benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Operación medida por un banco de pruebas
+ * Los casos se implementan en CasosFSM, en el paquete por omisión junto al código de la FSM:
+ * JMH no acepta bancos de prueba en el paquete por omisión, y desde un paquete con nombre no
+ * se pueden usar sus clases, así que el caso se obtiene una sola vez por reflexión al preparar
+ * y luego se invoca a través de esta interfaz (con un solo caso por fork la llamada es monomórfica)
+ */
+public interface Caso {
+
+    /**
+     * Ejecuta la operación una vez
+     * @return Resultado, que JMH consume para que no se elimine el trabajo
+     */
+    Object ejecutar();
+
+    /**
+     * Prepara un caso de CasosFSM
+     * @param nombre Nombre del caso
+     * @param estados Número de estados de la máquina
+     * @param entradas Tamaño del alfabeto de entrada
+     * @param longitud Longitud de la secuencia procesada
+     * @return Caso listo para ejecutarse
+     */
+    static Caso crear(String nombre, int estados, int entradas, int longitud) {
+        try {
+            return (Caso) Class.forName("CasosFSM")
+                    .getMethod("crear", String.class, int.class, int.class, int.class)
+                    .invoke(null, nombre, estados, entradas, longitud);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("No se pudo preparar el caso " + nombre, e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No se encontró CasosFSM", e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Construcción de una máquina completa y generación de diagramas sin caché
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ConstruccionBenchmark {
+
+    @Param({"agregarTransicion", "generarDiagramaDOT", "generarMatrizTransiciones", "generarEstadisticas"})
+    public String caso;
+
+    @Param({"16", "100", "1000"})
+    public int estados;
+
+    @Param({"4", "16"})
+    public int entradas;
+
+    private Caso operacion;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        operacion = Caso.crear(caso, estados, entradas, 0);
+    }
+
+    @Benchmark
+    public Object ejecutar() {
+        return operacion.ejecutar();
+    }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Código generado por FSMJit frente al intérprete de tablas y a procesarLote
+ * Solo máquinas pequeñas: FSMJit genera código para a lo más 64 estados y unas 300 celdas,
+ * y todas las combinaciones de parámetros caben en ese límite
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class JitBenchmark {
+
+    @Param({"procesarLote", "procesarLoteJit", "procesarLoteInterpretado"})
+    public String caso;
+
+    @Param({"8", "16"})
+    public int estados;
+
+    @Param({"4", "16"})
+    public int entradas;
+
+    @Param({"100000"})
+    public int longitud;
+
+    private Caso operacion;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        operacion = Caso.crear(caso, estados, entradas, longitud);
+    }
+
+    @Benchmark
+    public Object ejecutar() {
+        return operacion.ejecutar();
+    }
+}
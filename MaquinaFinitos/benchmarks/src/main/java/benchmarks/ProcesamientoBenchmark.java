@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Procesamiento de una secuencia de entradas con cada motor de ejecución
+ * Cada operación procesa la secuencia completa; el tiempo por símbolo es el tiempo por
+ * operación dividido entre la longitud
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+// El módulo de vectores hace falta para procesarFlujosLockstepVectorial
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ProcesamientoBenchmark {
+
+    // Los casos de FSMJit están en JitBenchmark, que solo usa máquinas donde se puede generar código
+    @Param({"procesar", "procesarSecuencia", "procesarLote", "procesarBytes", "procesarFlujos", "procesarFlujosLockstep",
+            "procesarFlujosLockstepEscalar", "procesarFlujosLockstepVectorial"})
+    public String caso;
+
+    @Param({"16", "100", "1000"})
+    public int estados;
+
+    @Param({"4", "16"})
+    public int entradas;
+
+    @Param({"100000"})
+    public int longitud;
+
+    private Caso operacion;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        operacion = Caso.crear(caso, estados, entradas, longitud);
+    }
+
+    @Benchmark
+    public Object ejecutar() {
+        return operacion.ejecutar();
+    }
+}
@@ -0,0 +1,48 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Paso de EjecucionLockstep con la API de vectores (jdk.incubator.vector)
+ * Se compila aparte con --add-modules jdk.incubator.vector y EjecucionLockstep lo carga por
+ * reflexión; si el módulo no está en tiempo de ejecución la clase no se inicializa y se usa
+ * el recorrido escalar
+ */
+final class PasoVectorialLockstep {
+    // 256 bits y no SPECIES_PREFERRED: con AVX-512 el C2 de JDK 17.0.9 genera código que falla
+    // (SIGSEGV) al integrar las lecturas dispersas en procesarBloqueVectorial
+    private static final VectorSpecies<Integer> ESPECIE = IntVector.SPECIES_256;
+
+    private PasoVectorialLockstep() {
+    }
+
+    /**
+     * Da un paso en cada flujo activo: calcula las celdas con operaciones por carril y lee
+     * el destino y la salida de cada una con una lectura dispersa (gather)
+     * @param siguiente Tabla de siguiente estado
+     * @param salida Tabla de id de salida
+     * @param n Número de entradas de la FSM
+     * @param estados Estado actual de cada flujo activo
+     * @param entradas Entrada de la ronda de cada flujo activo, ya validada
+     * @param celdas Arreglo de trabajo para las celdas
+     * @param destinos Arreglo donde escribir el siguiente estado de cada flujo
+     * @param salidas Arreglo donde escribir el id de salida de cada flujo
+     * @param cantidad Número de flujos activos
+     */
+    static void avanzar(int[] siguiente, int[] salida, int n, int[] estados, int[] entradas,
+                        int[] celdas, int[] destinos, int[] salidas, int cantidad) {
+        int a = 0;
+        int limite = ESPECIE.loopBound(cantidad);
+        for (; a < limite; a += ESPECIE.length()) {
+            IntVector celda = IntVector.fromArray(ESPECIE, estados, a).mul(n)
+                    .add(IntVector.fromArray(ESPECIE, entradas, a));
+            celda.intoArray(celdas, a);
+            IntVector.fromArray(ESPECIE, siguiente, 0, celdas, a).intoArray(destinos, a);
+            IntVector.fromArray(ESPECIE, salida, 0, celdas, a).intoArray(salidas, a);
+        }
+        for (; a < cantidad; a++) {
+            int celda = estados[a] * n + entradas[a];
+            destinos[a] = siguiente[celda];
+            salidas[a] = salida[celda];
+        }
+    }
+}
@@ -0,0 +1,348 @@
+import java.util.Arrays;
+
+/**
+ * Autómata finito no determinista con transiciones vacías (épsilon)
+ * A diferencia de FSM, un par (estado, entrada) puede tener varios destinos y no hay salidas:
+ * la secuencia se acepta si al terminar alguno de los estados activos es de aceptación.
+ * La simulación representa el conjunto de estados activos con un arreglo long[] de bits
+ * (bit s = estado con id s); DFAPerezoso construye sobre esta simulación un autómata
+ * determinista bajo demanda
+ * Las transiciones se guardan en listas y se compactan en arreglos la primera vez que se
+ * simula después de una modificación. No es seguro usar una misma instancia desde varios hilos
+ */
+public class AFN {
+    private static final int VACIA = -1;
+
+    private final TablaSimbolos tablaEntradas;
+    private final TablaSimbolos tablaEstados;
+    private final int numEntradas;
+    private final int numEstados;
+    private final long[] aceptacion;
+    private int estadoInicial;
+    private long version;
+
+    // Transiciones agregadas: origen, entrada (VACIA para épsilon) y destino
+    private int[] origenes = new int[16];
+    private int[] entradasTransicion = new int[16];
+    private int[] destinosTransicion = new int[16];
+    private int numTransiciones;
+
+    // Transiciones compactadas: los destinos de la celda c están entre inicio[c] e inicio[c + 1]
+    private int[] inicio;
+    private int[] destinos;
+    private int[] inicioVacias;
+    private int[] destinosVacios;
+    private final int[] pendientes;
+
+    /**
+     * Constructor del autómata; el primer estado es el inicial
+     * @param entradas Array de entradas válidas
+     * @param estados Array de estados válidos
+     * @throws IllegalArgumentException Si no hay estados
+     */
+    public AFN(String[] entradas, String[] estados) {
+        this.tablaEntradas = TablaSimbolos.desde(entradas);
+        this.tablaEstados = TablaSimbolos.desde(estados);
+        this.numEntradas = tablaEntradas.tamano();
+        this.numEstados = tablaEstados.tamano();
+        if (numEstados == 0) {
+            throw new IllegalArgumentException("El autómata necesita al menos un estado");
+        }
+        this.aceptacion = new long[palabras()];
+        this.pendientes = new int[numEstados];
+    }
+
+    /**
+     * Agrega una transición; un mismo estado y entrada pueden tener varios destinos
+     * @param estadoOrigen Estado desde el cual se hace la transición
+     * @param entrada Entrada que activa la transición
+     * @param estadoDestino Estado al que se transiciona
+     * @throws IllegalArgumentException Si algún parámetro no es válido
+     */
+    public void agregarTransicion(String estadoOrigen, String entrada, String estadoDestino) {
+        int x = tablaEntradas.id(entrada);
+        if (x < 0) {
+            throw new IllegalArgumentException("Entrada no válida: " + entrada);
+        }
+        agregar(idEstado(estadoOrigen), x, idEstado(estadoDestino));
+    }
+
+    /**
+     * Agrega una transición vacía, que se toma sin consumir ninguna entrada
+     * @param estadoOrigen Estado desde el cual se hace la transición
+     * @param estadoDestino Estado al que se transiciona
+     * @throws IllegalArgumentException Si algún estado no es válido
+     */
+    public void agregarTransicionVacia(String estadoOrigen, String estadoDestino) {
+        agregar(idEstado(estadoOrigen), VACIA, idEstado(estadoDestino));
+    }
+
+    private void agregar(int origen, int entrada, int destino) {
+        if (numTransiciones == origenes.length) {
+            origenes = Arrays.copyOf(origenes, numTransiciones * 2);
+            entradasTransicion = Arrays.copyOf(entradasTransicion, numTransiciones * 2);
+            destinosTransicion = Arrays.copyOf(destinosTransicion, numTransiciones * 2);
+        }
+        origenes[numTransiciones] = origen;
+        entradasTransicion[numTransiciones] = entrada;
+        destinosTransicion[numTransiciones] = destino;
+        numTransiciones++;
+        modificar();
+    }
+
+    /**
+     * Marca un estado como de aceptación
+     * @param estado Nombre del estado
+     * @throws IllegalArgumentException Si el estado no es válido
+     */
+    public void agregarAceptacion(String estado) {
+        int id = idEstado(estado);
+        aceptacion[id >>> 6] |= 1L << id;
+        version++;
+    }
+
+    /**
+     * Establece el estado inicial
+     * @param estado Nombre del estado
+     * @throws IllegalArgumentException Si el estado no es válido
+     */
+    public void setEstadoInicial(String estado) {
+        estadoInicial = idEstado(estado);
+        version++;
+    }
+
+    private void modificar() {
+        inicio = null;
+        version++;
+    }
+
+    private int idEstado(String estado) {
+        int id = tablaEstados.id(estado);
+        if (id < 0) {
+            throw new IllegalArgumentException("Estado no válido: " + estado);
+        }
+        return id;
+    }
+
+    /**
+     * Compacta las transiciones agregadas en arreglos por celda (estado, entrada)
+     */
+    private void compactar() {
+        if (inicio != null) {
+            return;
+        }
+        int celdas = numEstados * numEntradas;
+        int[] inicioCeldas = new int[celdas + 1];
+        int[] inicioEstados = new int[numEstados + 1];
+        for (int i = 0; i < numTransiciones; i++) {
+            if (entradasTransicion[i] == VACIA) {
+                inicioEstados[origenes[i] + 1]++;
+            } else {
+                inicioCeldas[origenes[i] * numEntradas + entradasTransicion[i] + 1]++;
+            }
+        }
+        for (int c = 0; c < celdas; c++) {
+            inicioCeldas[c + 1] += inicioCeldas[c];
+        }
+        for (int s = 0; s < numEstados; s++) {
+            inicioEstados[s + 1] += inicioEstados[s];
+        }
+
+        int[] porCelda = new int[inicioCeldas[celdas]];
+        int[] porEstado = new int[inicioEstados[numEstados]];
+        int[] posicionCeldas = Arrays.copyOf(inicioCeldas, celdas);
+        int[] posicionEstados = Arrays.copyOf(inicioEstados, numEstados);
+        for (int i = 0; i < numTransiciones; i++) {
+            if (entradasTransicion[i] == VACIA) {
+                porEstado[posicionEstados[origenes[i]]++] = destinosTransicion[i];
+            } else {
+                porCelda[posicionCeldas[origenes[i] * numEntradas + entradasTransicion[i]]++] = destinosTransicion[i];
+            }
+        }
+        inicio = inicioCeldas;
+        destinos = porCelda;
+        inicioVacias = inicioEstados;
+        destinosVacios = porEstado;
+    }
+
+    /**
+     * Obtiene el conjunto de estados activos al empezar: el estado inicial y los que se
+     * alcanzan desde él con transiciones vacías
+     * @return Conjunto de bits nuevo
+     */
+    public long[] conjuntoInicial() {
+        compactar();
+        long[] activos = new long[palabras()];
+        activos[estadoInicial >>> 6] |= 1L << estadoInicial;
+        pendientes[0] = estadoInicial;
+        cerrar(activos, 1);
+        return activos;
+    }
+
+    /**
+     * Calcula los estados activos después de procesar una entrada, incluidas las
+     * transiciones vacías posteriores
+     * @param activos Estados activos antes de la entrada
+     * @param entrada Id de la entrada
+     * @param destino Arreglo donde escribir los estados activos después (distinto de activos)
+     * @return true si queda algún estado activo
+     */
+    public boolean avanzar(long[] activos, int entrada, long[] destino) {
+        compactar();
+        Arrays.fill(destino, 0);
+        int cantidad = 0;
+        for (int p = 0; p < activos.length; p++) {
+            long palabra = activos[p];
+            while (palabra != 0) {
+                int s = (p << 6) + Long.numberOfTrailingZeros(palabra);
+                palabra &= palabra - 1;
+                int celda = s * numEntradas + entrada;
+                for (int i = inicio[celda]; i < inicio[celda + 1]; i++) {
+                    int t = destinos[i];
+                    if ((destino[t >>> 6] & (1L << t)) == 0) {
+                        destino[t >>> 6] |= 1L << t;
+                        pendientes[cantidad++] = t;
+                    }
+                }
+            }
+        }
+        cerrar(destino, cantidad);
+        return cantidad > 0;
+    }
+
+    /**
+     * Agrega a un conjunto los estados alcanzables con transiciones vacías desde los pendientes
+     * @param cantidad Número de estados en pendientes, ya incluidos en el conjunto
+     */
+    private void cerrar(long[] activos, int cantidad) {
+        while (cantidad > 0) {
+            int s = pendientes[--cantidad];
+            for (int i = inicioVacias[s]; i < inicioVacias[s + 1]; i++) {
+                int t = destinosVacios[i];
+                if ((activos[t >>> 6] & (1L << t)) == 0) {
+                    activos[t >>> 6] |= 1L << t;
+                    pendientes[cantidad++] = t;
+                }
+            }
+        }
+    }
+
+    /**
+     * Indica si algún estado de un conjunto es de aceptación
+     * @param activos Conjunto de estados
+     * @return true si el conjunto contiene un estado de aceptación
+     */
+    public boolean esAceptacion(long[] activos) {
+        for (int p = 0; p < activos.length; p++) {
+            if ((activos[p] & aceptacion[p]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Simula el autómata sobre una secuencia de entradas
+     * @param entradas Nombres de las entradas
+     * @return true si la secuencia se acepta
+     * @throws IllegalArgumentException Si alguna entrada no es válida
+     */
+    public boolean acepta(String[] entradas) {
+        return acepta(ids(entradas));
+    }
+
+    /**
+     * Simula el autómata sobre una secuencia de ids de entrada
+     * Cada paso recorre todos los estados activos; para secuencias largas DFAPerezoso
+     * evita repetir ese trabajo
+     * @param entradas Ids de las entradas
+     * @return true si la secuencia se acepta
+     * @throws IllegalArgumentException Si algún id de entrada no es válido
+     */
+    public boolean acepta(int[] entradas) {
+        long[] activos = conjuntoInicial();
+        long[] siguientes = new long[activos.length];
+        for (int i = 0; i < entradas.length; i++) {
+            validarEntrada(entradas[i], i);
+            if (!avanzar(activos, entradas[i], siguientes)) {
+                return false;
+            }
+            long[] t = activos;
+            activos = siguientes;
+            siguientes = t;
+        }
+        return esAceptacion(activos);
+    }
+
+    /**
+     * Convierte nombres de entradas en ids
+     * @param entradas Nombres de las entradas
+     * @return Ids de las entradas
+     * @throws IllegalArgumentException Si alguna entrada no es válida
+     */
+    public int[] ids(String[] entradas) {
+        int[] ids = new int[entradas.length];
+        for (int i = 0; i < entradas.length; i++) {
+            ids[i] = tablaEntradas.id(entradas[i]);
+            if (ids[i] < 0) {
+                throw new IllegalArgumentException("Entrada no válida: " + entradas[i]);
+            }
+        }
+        return ids;
+    }
+
+    void validarEntrada(int entrada, int posicion) {
+        if (entrada < 0 || entrada >= numEntradas) {
+            throw new IllegalArgumentException("Entrada no válida en la posición " + posicion + ": " + entrada);
+        }
+    }
+
+    /**
+     * Obtiene los nombres de los estados de un conjunto
+     * @param activos Conjunto de estados
+     * @return Nombres de los estados, en orden de id
+     */
+    public String[] nombres(long[] activos) {
+        String[] nombres = new String[numEstados];
+        int cantidad = 0;
+        for (int s = 0; s < numEstados; s++) {
+            if ((activos[s >>> 6] & (1L << s)) != 0) {
+                nombres[cantidad++] = tablaEstados.nombre(s);
+            }
+        }
+        return Arrays.copyOf(nombres, cantidad);
+    }
+
+    /**
+     * Número de longs de un conjunto de estados
+     */
+    int palabras() {
+        return (numEstados + 63) >>> 6;
+    }
+
+    // Getters
+    /**
+     * Obtiene la versión del autómata
+     * Aumenta con cada transición, estado de aceptación o cambio de estado inicial
+     * @return Número de versión
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int getNumEstados() {
+        return numEstados;
+    }
+
+    public int getNumEntradas() {
+        return numEntradas;
+    }
+
+    public int getNumTransiciones() {
+        return numTransiciones;
+    }
+
+    public String getEstadoInicial() {
+        return tablaEstados.nombre(estadoInicial);
+    }
+}
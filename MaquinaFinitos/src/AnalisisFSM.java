@@ -0,0 +1,343 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Análisis estructural de una FSM compilada: estados alcanzables desde el estado inicial,
+ * estados incompletos (con alguna entrada sin transición), estados sumidero y componentes
+ * fuertemente conexas
+ * La alcanzabilidad se calcula con un recorrido en anchura por niveles; los niveles grandes
+ * se reparten en trozos sobre el ForkJoinPool común y los visitados se marcan en un conjunto
+ * de bits con compareAndSet. Las componentes se obtienen con el algoritmo de Tarjan con pila
+ * explícita, así que ningún recorrido depende de la profundidad de la pila de llamadas
+ */
+public class AnalisisFSM {
+    private static final int TAMANO_TROZO = 1 << 12;
+
+    private AnalisisFSM() {
+    }
+
+    /**
+     * Analiza una FSM
+     * @param fsm FSM a analizar (no se modifica)
+     * @return Resultado del análisis
+     */
+    public static Resultado analizar(FSM fsm) {
+        return analizar(fsm.compilar());
+    }
+
+    /**
+     * Analiza una FSM compilada
+     * @param fsm FSM compilada
+     * @return Resultado del análisis
+     */
+    public static Resultado analizar(FSMCompilada fsm) {
+        int n = fsm.getNumEstados();
+        AtomicLongArray alcanzables = new AtomicLongArray((n + 63) >>> 6);
+        int numAlcanzables = 0;
+        if (fsm.getEstadoInicial() >= 0) {
+            numAlcanzables = recorrer(fsm, fsm.getEstadoInicial(), alcanzables);
+        }
+        long[] bits = new long[alcanzables.length()];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = alcanzables.get(i);
+        }
+
+        int[] componente = new int[n];
+        int numComponentes = componentes(fsm, componente);
+        return new Resultado(fsm, bits, numAlcanzables, incompletos(fsm), componente, numComponentes);
+    }
+
+    /**
+     * Recorrido en anchura por niveles desde un estado
+     * @return Número de estados alcanzados, incluido el de partida
+     */
+    private static int recorrer(FSMCompilada fsm, int inicial, AtomicLongArray visitados) {
+        marcar(visitados, inicial);
+        int[] frontera = {inicial};
+        int total = 0;
+
+        while (frontera.length > 0) {
+            total += frontera.length;
+            if (frontera.length <= TAMANO_TROZO) {
+                frontera = expandir(fsm, frontera, 0, frontera.length, visitados);
+                continue;
+            }
+
+            int[] nivel = frontera;
+            int[][] partes = new int[(nivel.length + TAMANO_TROZO - 1) / TAMANO_TROZO][];
+            IntStream.range(0, partes.length).parallel().forEach(t -> partes[t] = expandir(fsm, nivel,
+                    t * TAMANO_TROZO, Math.min(nivel.length, (t + 1) * TAMANO_TROZO), visitados));
+
+            int longitud = 0;
+            for (int[] parte : partes) {
+                longitud += parte.length;
+            }
+            frontera = new int[longitud];
+            int posicion = 0;
+            for (int[] parte : partes) {
+                System.arraycopy(parte, 0, frontera, posicion, parte.length);
+                posicion += parte.length;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Obtiene los sucesores no visitados de un trozo de la frontera, marcándolos
+     * Cada estado lo marca un solo hilo, así que aparece en un solo trozo del siguiente nivel
+     */
+    private static int[] expandir(FSMCompilada fsm, int[] frontera, int desde, int hasta, AtomicLongArray visitados) {
+        int[] siguiente = fsm.siguiente;
+        int m = fsm.numEntradas;
+        int[] nuevos = new int[Math.max(16, hasta - desde)];
+        int cantidad = 0;
+        for (int i = desde; i < hasta; i++) {
+            int base = frontera[i] * m;
+            for (int x = 0; x < m; x++) {
+                int destino = siguiente[base + x];
+                if (destino != FSMCompilada.SIN_TRANSICION && marcar(visitados, destino)) {
+                    if (cantidad == nuevos.length) {
+                        nuevos = Arrays.copyOf(nuevos, cantidad * 2);
+                    }
+                    nuevos[cantidad++] = destino;
+                }
+            }
+        }
+        return Arrays.copyOf(nuevos, cantidad);
+    }
+
+    /**
+     * Marca un estado en el conjunto de bits
+     * @return true si no estaba marcado
+     */
+    private static boolean marcar(AtomicLongArray bits, int estado) {
+        int palabra = estado >>> 6;
+        long bit = 1L << estado;
+        while (true) {
+            long actual = bits.get(palabra);
+            if ((actual & bit) != 0) {
+                return false;
+            }
+            if (bits.compareAndSet(palabra, actual, actual | bit)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Obtiene los estados con al menos una entrada sin transición, en orden de id
+     */
+    private static int[] incompletos(FSMCompilada fsm) {
+        int n = fsm.getNumEstados();
+        int m = fsm.numEntradas;
+        int[] siguiente = fsm.siguiente;
+        return IntStream.range(0, n).parallel().filter(s -> {
+            for (int x = 0; x < m; x++) {
+                if (siguiente[s * m + x] == FSMCompilada.SIN_TRANSICION) {
+                    return true;
+                }
+            }
+            return false;
+        }).toArray();
+    }
+
+    /**
+     * Calcula las componentes fuertemente conexas con el algoritmo de Tarjan iterativo
+     * Las componentes quedan numeradas en orden topológico inverso: ninguna transición va de
+     * una componente a otra de número mayor
+     * @param componente Arreglo donde escribir la componente de cada estado
+     * @return Número de componentes
+     */
+    private static int componentes(FSMCompilada fsm, int[] componente) {
+        int n = fsm.getNumEstados();
+        int m = fsm.numEntradas;
+        int[] siguiente = fsm.siguiente;
+        int[] indice = new int[n];
+        int[] bajo = new int[n];
+        int[] entradaPendiente = new int[n];
+        int[] pila = new int[n];
+        int[] llamadas = new int[n];
+        Arrays.fill(indice, -1);
+        Arrays.fill(componente, -1);
+        int contador = 0;
+        int tope = 0;
+        int numComponentes = 0;
+
+        for (int raiz = 0; raiz < n; raiz++) {
+            if (indice[raiz] >= 0) {
+                continue;
+            }
+            int profundidad = 0;
+            indice[raiz] = bajo[raiz] = contador++;
+            pila[tope++] = raiz;
+            llamadas[profundidad++] = raiz;
+
+            while (profundidad > 0) {
+                int v = llamadas[profundidad - 1];
+                if (entradaPendiente[v] < m) {
+                    int w = siguiente[v * m + entradaPendiente[v]++];
+                    if (w == FSMCompilada.SIN_TRANSICION) {
+                        continue;
+                    }
+                    if (indice[w] < 0) {
+                        indice[w] = bajo[w] = contador++;
+                        pila[tope++] = w;
+                        llamadas[profundidad++] = w;
+                    } else if (componente[w] < 0) {
+                        bajo[v] = Math.min(bajo[v], indice[w]);
+                    }
+                    continue;
+                }
+
+                // Todas las transiciones de v ya se visitaron: regresar
+                profundidad--;
+                if (bajo[v] == indice[v]) {
+                    int w;
+                    do {
+                        w = pila[--tope];
+                        componente[w] = numComponentes;
+                    } while (w != v);
+                    numComponentes++;
+                }
+                if (profundidad > 0) {
+                    int padre = llamadas[profundidad - 1];
+                    bajo[padre] = Math.min(bajo[padre], bajo[v]);
+                }
+            }
+        }
+        return numComponentes;
+    }
+
+    /**
+     * Resultado del análisis; los estados se identifican por su id en la FSM compilada
+     */
+    public static class Resultado {
+        private final FSMCompilada fsm;
+        private final long[] alcanzables;
+        private final int numAlcanzables;
+        private final int[] incompletos;
+        private final int[] componente;
+        private final int numComponentes;
+        private final int[] inicioComponente;
+        private final int[] estadosPorComponente;
+        private final boolean[] cerrada;
+
+        Resultado(FSMCompilada fsm, long[] alcanzables, int numAlcanzables, int[] incompletos,
+                  int[] componente, int numComponentes) {
+            this.fsm = fsm;
+            this.alcanzables = alcanzables;
+            this.numAlcanzables = numAlcanzables;
+            this.incompletos = incompletos;
+            this.componente = componente;
+            this.numComponentes = numComponentes;
+
+            // Estados agrupados por componente, en orden de id dentro de cada una
+            int n = componente.length;
+            inicioComponente = new int[numComponentes + 1];
+            for (int c : componente) {
+                inicioComponente[c + 1]++;
+            }
+            for (int c = 0; c < numComponentes; c++) {
+                inicioComponente[c + 1] += inicioComponente[c];
+            }
+            estadosPorComponente = new int[n];
+            int[] posicion = Arrays.copyOf(inicioComponente, numComponentes);
+            for (int s = 0; s < n; s++) {
+                estadosPorComponente[posicion[componente[s]]++] = s;
+            }
+
+            // Una componente es cerrada si ninguna transición sale de ella
+            int m = fsm.numEntradas;
+            cerrada = new boolean[numComponentes];
+            Arrays.fill(cerrada, true);
+            for (int celda = 0; celda < fsm.siguiente.length; celda++) {
+                int destino = fsm.siguiente[celda];
+                if (destino != FSMCompilada.SIN_TRANSICION && componente[destino] != componente[celda / m]) {
+                    cerrada[componente[celda / m]] = false;
+                }
+            }
+        }
+
+        /**
+         * Indica si un estado es alcanzable desde el estado inicial
+         * @param estado Id del estado
+         * @return true si es alcanzable
+         */
+        public boolean esAlcanzable(int estado) {
+            return (alcanzables[estado >>> 6] & (1L << estado)) != 0;
+        }
+
+        public int getNumAlcanzables() {
+            return numAlcanzables;
+        }
+
+        /**
+         * Obtiene los estados que no se pueden alcanzar desde el estado inicial
+         * @return Ids de los estados, en orden
+         */
+        public int[] getNoAlcanzables() {
+            return IntStream.range(0, componente.length).filter(s -> !esAlcanzable(s)).toArray();
+        }
+
+        /**
+         * Obtiene los estados con al menos una entrada sin transición definida
+         * @return Ids de los estados, en orden
+         */
+        public int[] getIncompletos() {
+            return incompletos.clone();
+        }
+
+        /**
+         * Obtiene los estados de los que no se puede salir: todas sus transiciones definidas
+         * regresan a ellos mismos (o no tienen ninguna)
+         * @return Ids de los estados, en orden
+         */
+        public int[] getSumideros() {
+            return IntStream.range(0, componente.length)
+                    .filter(s -> cerrada[componente[s]] && getTamanoComponente(componente[s]) == 1)
+                    .toArray();
+        }
+
+        public int getNumComponentes() {
+            return numComponentes;
+        }
+
+        /**
+         * Obtiene la componente fuertemente conexa de un estado
+         * Las componentes están en orden topológico inverso: las transiciones solo van
+         * de una componente a sí misma o a una de número menor
+         * @param estado Id del estado
+         * @return Número de componente
+         */
+        public int getComponente(int estado) {
+            return componente[estado];
+        }
+
+        /**
+         * Obtiene los estados de una componente
+         * @param componente Número de componente
+         * @return Ids de los estados, en orden
+         */
+        public int[] getEstadosComponente(int componente) {
+            return Arrays.copyOfRange(estadosPorComponente, inicioComponente[componente], inicioComponente[componente + 1]);
+        }
+
+        public int getTamanoComponente(int componente) {
+            return inicioComponente[componente + 1] - inicioComponente[componente];
+        }
+
+        /**
+         * Indica si ninguna transición sale de una componente (una vez dentro, no se sale)
+         * @param componente Número de componente
+         * @return true si la componente es cerrada
+         */
+        public boolean esCerrada(int componente) {
+            return cerrada[componente];
+        }
+
+        public FSMCompilada getFSM() {
+            return fsm;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Buffer reutilizable de ids de salida
+ * Si tiene un consumidor, se le entrega el contenido cada vez que se llena y se vacía;
+ * si no, crece según se necesite
+ */
+public class BufferSalidas {
+    int[] datos;
+    int longitud;
+    private final Consumer<BufferSalidas> alLlenarse;
+
+    /**
+     * Constructor de un buffer que crece según se necesite
+     * @param capacidad Capacidad inicial
+     */
+    public BufferSalidas(int capacidad) {
+        this(capacidad, null);
+    }
+
+    /**
+     * Constructor de un buffer de capacidad fija que se vacía en un consumidor
+     * @param capacidad Número de salidas que caben antes de vaciarse
+     * @param alLlenarse Consumidor que recibe el buffer lleno (null para crecer en su lugar)
+     */
+    public BufferSalidas(int capacidad, Consumer<BufferSalidas> alLlenarse) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad debe ser positiva: " + capacidad);
+        }
+        this.datos = new int[capacidad];
+        this.alLlenarse = alLlenarse;
+    }
+
+    /**
+     * Agrega una salida
+     * @param salida Id de la salida
+     */
+    public void agregar(int salida) {
+        if (longitud == datos.length) {
+            liberarEspacio();
+        }
+        datos[longitud++] = salida;
+    }
+
+    /**
+     * Hace espacio cuando el buffer está lleno: lo entrega al consumidor o lo hace crecer
+     */
+    void liberarEspacio() {
+        if (alLlenarse != null) {
+            vaciar();
+        } else {
+            datos = Arrays.copyOf(datos, datos.length * 2);
+        }
+    }
+
+    /**
+     * Entrega el contenido al consumidor (si hay) y deja el buffer vacío
+     */
+    public void vaciar() {
+        if (alLlenarse != null && longitud > 0) {
+            alLlenarse.accept(this);
+        }
+        longitud = 0;
+    }
+
+    /**
+     * Deja el buffer vacío sin entregar su contenido
+     */
+    public void reiniciar() {
+        longitud = 0;
+    }
+
+    /**
+     * Obtiene una salida del buffer
+     * @param indice Posición de la salida
+     * @return Id de la salida
+     */
+    public int get(int indice) {
+        if (indice < 0 || indice >= longitud) {
+            throw new IndexOutOfBoundsException("Índice fuera del buffer: " + indice);
+        }
+        return datos[indice];
+    }
+
+    /**
+     * Copia el contenido actual del buffer
+     * @return Ids de salida en orden
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(datos, longitud);
+    }
+
+    public int getLongitud() {
+        return longitud;
+    }
+}
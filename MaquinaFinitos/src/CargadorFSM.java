@@ -0,0 +1,296 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Carga una FSM desde un archivo de definición de texto
+ *
+ * Formato:
+ * <pre>
+ * # Comentario
+ * entradas: 0,1
+ * salidas: A,B
+ * estados: S0,S1
+ * inicial: S0          # opcional, por defecto el primer estado
+ * S0 0 S1 A            # estado_origen entrada estado_destino salida
+ * </pre>
+ * Los encabezados van antes de la primera transición, cada uno una sola vez. Las transiciones se leen en streaming
+ * y sus símbolos se buscan directamente en el buffer de caracteres, sin expresiones regulares
+ * ni Strings por línea
+ */
+public class CargadorFSM {
+    private static final int TAMANO_BUFFER = 1 << 16;
+    private static final String[] ENCABEZADOS = {"entradas", "salidas", "estados", "inicial"};
+
+    private final Reader lector;
+    private final char[] buffer = new char[TAMANO_BUFFER];
+    private int posicionBuffer;
+    private int finBuffer;
+
+    // Línea actual, reutilizada entre lecturas
+    private char[] linea = new char[256];
+    private int longitudLinea;
+    private int numeroLinea;
+
+    // Inicio y longitud de los tokens de la línea actual
+    private final int[] inicioTokens = new int[5];
+    private final int[] longitudTokens = new int[5];
+
+    private CargadorFSM(Reader lector) {
+        this.lector = lector;
+    }
+
+    /**
+     * Carga una FSM desde un archivo en UTF-8
+     * @param archivo Archivo de definición
+     * @return FSM definida en el archivo
+     * @throws IOException Si ocurre un error de lectura
+     * @throws IllegalArgumentException Si la definición no es válida (el mensaje incluye la línea)
+     */
+    public static FSM cargar(Path archivo) throws IOException {
+        try (Reader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            return cargar(lector);
+        }
+    }
+
+    /**
+     * Carga una FSM desde un Reader
+     * @param lector Reader con la definición
+     * @return FSM definida
+     * @throws IOException Si ocurre un error de lectura
+     * @throws IllegalArgumentException Si la definición no es válida (el mensaje incluye la línea)
+     */
+    public static FSM cargar(Reader lector) throws IOException {
+        return new CargadorFSM(lector).leer();
+    }
+
+    private FSM leer() throws IOException {
+        String[] entradas = null;
+        String[] salidas = null;
+        String[] estados = null;
+        String inicial = null;
+        int lineaInicial = 0;
+        FSM fsm = null;
+        TablaSimbolos tablaEstados = null;
+        TablaSimbolos tablaEntradas = null;
+        TablaSimbolos tablaSalidas = null;
+        // Línea en la que apareció cada encabezado, para rechazar duplicados
+        int[] lineasEncabezados = new int[ENCABEZADOS.length];
+
+        while (leerLinea()) {
+            int tokens = tokenizar();
+            if (tokens == 0) {
+                continue;
+            }
+
+            if (fsm == null) {
+                int finContenido = inicioComentario();
+                int dosPuntos = buscarDosPuntos(finContenido);
+                if (dosPuntos >= 0) {
+                    String clave = new String(linea, 0, dosPuntos).trim().toLowerCase();
+                    String valor = new String(linea, dosPuntos + 1, finContenido - dosPuntos - 1).trim();
+                    int encabezado = Arrays.asList(ENCABEZADOS).indexOf(clave);
+                    if (encabezado < 0) {
+                        throw error("Encabezado desconocido: " + clave);
+                    }
+                    if (lineasEncabezados[encabezado] > 0) {
+                        throw error("Encabezado duplicado: " + clave + " (ya definido en la línea "
+                                + lineasEncabezados[encabezado] + ")");
+                    }
+                    lineasEncabezados[encabezado] = numeroLinea;
+                    switch (clave) {
+                        case "entradas":
+                            entradas = lista(valor, clave);
+                            break;
+                        case "salidas":
+                            salidas = lista(valor, clave);
+                            break;
+                        case "estados":
+                            estados = lista(valor, clave);
+                            break;
+                        default:
+                            inicial = estadoInicial(valor, estados);
+                            lineaInicial = numeroLinea;
+                            break;
+                    }
+                    continue;
+                }
+
+                fsm = crear(entradas, salidas, estados, inicial, lineaInicial);
+                tablaEstados = fsm.getTablaEstados();
+                tablaEntradas = fsm.getTablaEntradas();
+                tablaSalidas = fsm.getTablaSalidas();
+            }
+
+            if (tokens != 4) {
+                throw error("Formato incorrecto. Use: estado_origen entrada estado_destino salida");
+            }
+            int origen = buscar(tablaEstados, 0, "Estado origen no válido: ");
+            int entrada = buscar(tablaEntradas, 1, "Entrada no válida: ");
+            int destino = buscar(tablaEstados, 2, "Estado destino no válido: ");
+            int salida = buscar(tablaSalidas, 3, "Salida no válida: ");
+            fsm.agregarTransicion(origen, entrada, destino, salida);
+        }
+
+        if (fsm == null) {
+            fsm = crear(entradas, salidas, estados, inicial, lineaInicial);
+        }
+        return fsm;
+    }
+
+    /**
+     * Valida el valor del encabezado inicial en su propia línea
+     * Si los estados todavía no se conocen, crear vuelve a validarlo con esta misma línea
+     */
+    private String estadoInicial(String valor, String[] estados) {
+        if (valor.isEmpty()) {
+            throw error("Falta el estado inicial");
+        }
+        if (valor.chars().anyMatch(Character::isWhitespace) || valor.indexOf(',') >= 0) {
+            throw error("Se esperaba un solo estado inicial: " + valor);
+        }
+        if (estados != null && !Arrays.asList(estados).contains(valor)) {
+            throw error("Estado no válido: " + valor);
+        }
+        return valor;
+    }
+
+    /**
+     * Crea la FSM una vez leídos los encabezados
+     * @param lineaInicial Línea del encabezado inicial, para los errores del estado inicial
+     */
+    private FSM crear(String[] entradas, String[] salidas, String[] estados, String inicial, int lineaInicial) {
+        if (entradas == null || salidas == null || estados == null) {
+            throw error("Faltan encabezados: se requieren entradas, salidas y estados antes de las transiciones");
+        }
+        FSM fsm = new FSM(entradas, salidas, estados);
+        if (inicial != null) {
+            try {
+                fsm.setEstadoInicial(inicial);
+            } catch (IllegalArgumentException e) {
+                throw error(lineaInicial, e.getMessage());
+            }
+        }
+        return fsm;
+    }
+
+    /**
+     * Lee la siguiente línea en el buffer de línea reutilizable
+     * @return false si no quedan líneas
+     */
+    private boolean leerLinea() throws IOException {
+        longitudLinea = 0;
+        boolean leido = false;
+        while (true) {
+            if (posicionBuffer == finBuffer) {
+                finBuffer = lector.read(buffer, 0, buffer.length);
+                posicionBuffer = 0;
+                if (finBuffer <= 0) {
+                    finBuffer = 0;
+                    if (leido) {
+                        numeroLinea++;
+                    }
+                    return leido;
+                }
+            }
+            leido = true;
+            char c = buffer[posicionBuffer++];
+            if (c == '\n') {
+                numeroLinea++;
+                return true;
+            }
+            if (c == '\r') {
+                continue;
+            }
+            if (longitudLinea == linea.length) {
+                linea = Arrays.copyOf(linea, linea.length * 2);
+            }
+            linea[longitudLinea++] = c;
+        }
+    }
+
+    /**
+     * Separa la línea actual en tokens por espacios, ignorando comentarios
+     * @return Número de tokens (a lo más 5; 5 significa "más de 4")
+     */
+    private int tokenizar() {
+        int tokens = 0;
+        int i = 0;
+        while (i < longitudLinea && tokens < inicioTokens.length) {
+            while (i < longitudLinea && Character.isWhitespace(linea[i])) {
+                i++;
+            }
+            if (i == longitudLinea || linea[i] == '#') {
+                break;
+            }
+            int inicio = i;
+            while (i < longitudLinea && !Character.isWhitespace(linea[i])) {
+                i++;
+            }
+            inicioTokens[tokens] = inicio;
+            longitudTokens[tokens++] = i - inicio;
+        }
+        return tokens;
+    }
+
+    /**
+     * Busca el inicio de un comentario: un # al principio de la línea o después de un espacio
+     * @return Posición del # o longitudLinea si la línea no tiene comentario
+     */
+    private int inicioComentario() {
+        for (int i = 0; i < longitudLinea; i++) {
+            if (linea[i] == '#' && (i == 0 || Character.isWhitespace(linea[i - 1]))) {
+                return i;
+            }
+        }
+        return longitudLinea;
+    }
+
+    private int buscarDosPuntos(int fin) {
+        for (int i = 0; i < fin; i++) {
+            if (linea[i] == ':') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Busca el id del token indicado en una tabla de símbolos
+     */
+    private int buscar(TablaSimbolos tabla, int token, String mensaje) {
+        int id = tabla.id(linea, inicioTokens[token], longitudTokens[token]);
+        if (id < 0) {
+            throw error(mensaje + new String(linea, inicioTokens[token], longitudTokens[token]));
+        }
+        return id;
+    }
+
+    /**
+     * Convierte una lista separada por comas en un arreglo
+     */
+    private String[] lista(String valor, String tipo) {
+        List<String> elementos = new ArrayList<>();
+        for (String elemento : valor.split(",")) {
+            String limpio = elemento.trim();
+            if (limpio.isEmpty()) {
+                throw error("No se permiten " + tipo + " vacías");
+            }
+            elementos.add(limpio);
+        }
+        return elementos.toArray(new String[0]);
+    }
+
+    private IllegalArgumentException error(String mensaje) {
+        return error(numeroLinea, mensaje);
+    }
+
+    private IllegalArgumentException error(int numero, String mensaje) {
+        return new IllegalArgumentException("Línea " + numero + ": " + mensaje);
+    }
+}
@@ -0,0 +1,207 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Composición en cascada de FSM: la salida de cada etapa es la entrada de la siguiente
+ * Construye la máquina producto con solo las tuplas de estados alcanzables desde los estados
+ * iniciales, así que procesar un símbolo en la cadena completa es una sola consulta de tabla
+ * en lugar de un procesar por etapa. Las salidas de una etapa se relacionan por nombre con
+ * las entradas de la siguiente; una salida que no es entrada de la siguiente etapa, o una
+ * transición no definida en cualquier etapa, dejan sin transición el paso compuesto
+ */
+public class ComposicionFSM {
+    private static final int MAX_ESTADOS_DEFECTO = 1 << 20;
+    /**
+     * Máximo de elementos de los arreglos de tuplas y de transiciones del producto
+     */
+    private static final int MAX_CELDAS = Integer.MAX_VALUE - 8;
+
+    private ComposicionFSM() {
+    }
+
+    /**
+     * Compone una cascada de FSM con el máximo de estados por defecto
+     * @param etapas FSM en el orden en que fluyen los símbolos
+     * @return FSM equivalente a la cascada
+     * @throws IllegalArgumentException Si no hay etapas o alguna no tiene estados
+     * @throws IllegalStateException Si la composición supera el máximo de estados
+     */
+    public static FSM cascada(FSM... etapas) {
+        return cascada(MAX_ESTADOS_DEFECTO, etapas);
+    }
+
+    /**
+     * Compone una cascada de FSM
+     * Cada estado compuesto se llama (e1,e2,...) con el estado de cada etapa; la FSM
+     * resultante empieza en la tupla de estados iniciales y tiene las entradas de la primera
+     * etapa y las salidas de la última
+     * El máximo efectivo es además el que permite guardar tuplas y transiciones en arreglos,
+     * MAX_CELDAS / max(etapas, entradas)
+     * @param maxEstados Máximo de estados alcanzables permitido
+     * @param etapas FSM en el orden en que fluyen los símbolos
+     * @return FSM equivalente a la cascada
+     * @throws IllegalArgumentException Si no hay etapas o alguna no tiene estados
+     * @throws IllegalStateException Si la composición supera el máximo de estados, o si el
+     *                               producto de los estados de las etapas no cabe en un long
+     */
+    public static FSM cascada(int maxEstados, FSM... etapas) {
+        if (etapas.length == 0) {
+            throw new IllegalArgumentException("La cascada necesita al menos una etapa");
+        }
+        int k = etapas.length;
+        FSMCompilada[] tablas = new FSMCompilada[k];
+        long[] pesos = new long[k];
+        long peso = 1;
+        for (int i = k - 1; i >= 0; i--) {
+            tablas[i] = etapas[i].compilar();
+            if (tablas[i].getEstadoInicial() < 0) {
+                throw new IllegalArgumentException("La etapa " + (i + 1) + " no tiene estados definidos");
+            }
+            pesos[i] = peso;
+            if (peso > Long.MAX_VALUE / tablas[i].getNumEstados()) {
+                // La clave de cada tupla es un long con un dígito por etapa
+                throw new IllegalStateException("El producto de los estados de las etapas supera el máximo de "
+                        + Long.MAX_VALUE + " tuplas");
+            }
+            peso *= tablas[i].getNumEstados();
+        }
+        int[][] enlaces = new int[k - 1][];
+        for (int i = 0; i < k - 1; i++) {
+            enlaces[i] = enlazar(tablas[i], tablas[i + 1]);
+        }
+
+        int m = tablas[0].getNumEntradas();
+        int limite = Math.min(maxEstados, MAX_CELDAS / Math.max(k, m));
+        int[] tuplas = new int[k * 16];
+        int[] siguiente = new int[m * 16];
+        int[] salida = new int[m * 16];
+        Map<Long, Integer> ids = new HashMap<>();
+        int[] tupla = new int[k];
+        for (int i = 0; i < k; i++) {
+            tupla[i] = tablas[i].getEstadoInicial();
+        }
+        ids.put(clave(tupla, pesos), 0);
+        System.arraycopy(tupla, 0, tuplas, 0, k);
+        int numEstados = 1;
+
+        // Recorrido en anchura sobre las tuplas; numEstados crece mientras se recorre
+        for (int estado = 0; estado < numEstados; estado++) {
+            for (int x = 0; x < m; x++) {
+                System.arraycopy(tuplas, estado * k, tupla, 0, k);
+                int simbolo = paso(tablas, enlaces, tupla, x);
+                int celda = estado * m + x;
+                if (simbolo == FSMCompilada.SIN_TRANSICION) {
+                    siguiente[celda] = FSMCompilada.SIN_TRANSICION;
+                    continue;
+                }
+                Integer destino = ids.get(clave(tupla, pesos));
+                if (destino == null) {
+                    if (numEstados == limite) {
+                        throw new IllegalStateException("La composición supera el máximo de " + limite + " estados");
+                    }
+                    destino = numEstados++;
+                    ids.put(clave(tupla, pesos), destino);
+                    if ((long) numEstados * k > tuplas.length) {
+                        // Capacidad en estados, sin pasar del límite para que los tamaños quepan en int
+                        int capacidad = (int) Math.min(2L * numEstados, limite);
+                        tuplas = Arrays.copyOf(tuplas, capacidad * k);
+                        siguiente = Arrays.copyOf(siguiente, capacidad * m);
+                        salida = Arrays.copyOf(salida, capacidad * m);
+                    }
+                    System.arraycopy(tupla, 0, tuplas, destino * k, k);
+                }
+                siguiente[celda] = destino;
+                salida[celda] = simbolo;
+            }
+        }
+
+        return construir(etapas, tablas, tuplas, numEstados, siguiente, salida);
+    }
+
+    /**
+     * Relaciona cada salida de una etapa con la entrada del mismo nombre de la siguiente
+     * @return Id de entrada de la siguiente etapa por id de salida, o SIN_TRANSICION
+     */
+    private static int[] enlazar(FSMCompilada etapa, FSMCompilada siguiente) {
+        int[] enlace = new int[etapa.getNumSalidas()];
+        for (int y = 0; y < enlace.length; y++) {
+            enlace[y] = siguiente.idEntrada(etapa.getSalida(y));
+        }
+        return enlace;
+    }
+
+    /**
+     * Avanza todas las etapas con una entrada de la primera, actualizando la tupla
+     * @return Id de la salida de la última etapa, o SIN_TRANSICION si la cadena se detiene
+     */
+    private static int paso(FSMCompilada[] tablas, int[][] enlaces, int[] tupla, int entrada) {
+        int simbolo = entrada;
+        for (int i = 0; i < tablas.length; i++) {
+            FSMCompilada tabla = tablas[i];
+            int celda = tupla[i] * tabla.numEntradas + simbolo;
+            if (tabla.siguiente[celda] == FSMCompilada.SIN_TRANSICION) {
+                return FSMCompilada.SIN_TRANSICION;
+            }
+            tupla[i] = tabla.siguiente[celda];
+            simbolo = tabla.salida[celda];
+            if (i < enlaces.length) {
+                simbolo = enlaces[i][simbolo];
+                if (simbolo < 0) {
+                    return FSMCompilada.SIN_TRANSICION;
+                }
+            }
+        }
+        return simbolo;
+    }
+
+    private static long clave(int[] tupla, long[] pesos) {
+        long clave = 0;
+        for (int i = 0; i < tupla.length; i++) {
+            clave += tupla[i] * pesos[i];
+        }
+        return clave;
+    }
+
+    /**
+     * Crea la FSM compuesta a partir de las tablas del producto
+     */
+    private static FSM construir(FSM[] etapas, FSMCompilada[] tablas, int[] tuplas, int numEstados,
+                                 int[] siguiente, int[] salida) {
+        int k = tablas.length;
+        String[] estados = new String[numEstados];
+        StringBuilder nombre = new StringBuilder();
+        for (int s = 0; s < numEstados; s++) {
+            nombre.setLength(0);
+            nombre.append('(');
+            for (int i = 0; i < k; i++) {
+                if (i > 0) {
+                    nombre.append(',');
+                }
+                nombre.append(tablas[i].getEstado(tuplas[s * k + i]));
+            }
+            estados[s] = nombre.append(')').toString();
+        }
+
+        FSM compuesta = new FSM(etapas[0].getEntradas(), etapas[k - 1].getSalidas(), estados);
+        if (compuesta.getTablaEstados().tamano() != numEstados) {
+            // Algún nombre de estado contiene comas o paréntesis y dos tuplas coinciden
+            for (int s = 0; s < numEstados; s++) {
+                estados[s] = "P" + s;
+            }
+            compuesta = new FSM(etapas[0].getEntradas(), etapas[k - 1].getSalidas(), estados);
+        }
+
+        // Los ids de entradas y salidas coinciden con los de la primera y la última etapa
+        int m = tablas[0].getNumEntradas();
+        for (int s = 0; s < numEstados; s++) {
+            for (int x = 0; x < m; x++) {
+                int celda = s * m + x;
+                if (siguiente[celda] != FSMCompilada.SIN_TRANSICION) {
+                    compuesta.agregarTransicion(s, x, siguiente[celda], salida[celda]);
+                }
+            }
+        }
+        return compuesta;
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Cursor de ejecución sobre una FSM compilada compartida
+ * Solo guarda el estado actual, de modo que muchas sesiones pueden usar la misma
+ * definición de la máquina sin copiarla
+ * Un cursor no es seguro para usarse desde varios hilos a la vez
+ */
+public class CursorFSM {
+    private final FSMCompilada fsm;
+    private int estado;
+
+    /**
+     * Constructor del cursor, posicionado en el estado inicial
+     * @param fsm FSM compilada compartida
+     */
+    public CursorFSM(FSMCompilada fsm) {
+        this.fsm = fsm;
+        this.estado = fsm.getEstadoInicial();
+    }
+
+    /**
+     * Procesa una entrada identificada por su id
+     * @param entrada Id de la entrada
+     * @return Id de la salida generada
+     * @throws IllegalArgumentException Si el id de entrada no es válido
+     * @throws IllegalStateException Si no existe transición para la entrada
+     */
+    public int procesar(int entrada) {
+        int celda = fsm.celdaValida(estado, entrada);
+        estado = fsm.siguiente[celda];
+        return fsm.salida[celda];
+    }
+
+    /**
+     * Procesa una entrada por su nombre
+     * @param entrada Entrada a procesar
+     * @return Salida generada por la transición
+     * @throws IllegalArgumentException Si la entrada no es válida
+     * @throws IllegalStateException Si no existe transición para la entrada
+     */
+    public String procesar(String entrada) {
+        int entradaId = fsm.idEntrada(entrada);
+        if (entradaId < 0) {
+            throw new IllegalArgumentException("Entrada no válida: " + entrada);
+        }
+        return fsm.getSalida(procesar(entradaId));
+    }
+
+    /**
+     * Procesa un lote de entradas desde el estado actual
+     * El procesamiento se detiene en la primera entrada sin transición definida
+     * @param entradas Ids de las entradas
+     * @param salidas Arreglo donde escribir los ids de salida
+     * @return Estado final y número de entradas procesadas
+     */
+    public ResultadoLote procesarLote(int[] entradas, int[] salidas) {
+        ResultadoLote resultado = fsm.procesarLote(estado, entradas, 0, entradas.length, salidas, 0);
+        estado = resultado.getEstadoFinal();
+        return resultado;
+    }
+
+    /**
+     * Reinicia el cursor al estado inicial
+     */
+    public void reiniciar() {
+        estado = fsm.getEstadoInicial();
+    }
+
+    /**
+     * Establece el estado actual del cursor
+     * @param estado Id del estado
+     * @throws IllegalArgumentException Si el estado no es válido
+     */
+    public void setEstado(int estado) {
+        if (estado < 0 || estado >= fsm.getNumEstados()) {
+            throw new IllegalArgumentException("Estado no válido: " + estado);
+        }
+        this.estado = estado;
+    }
+
+    // Getters
+    public int getEstado() {
+        return estado;
+    }
+
+    public String getNombreEstado() {
+        return fsm.getEstado(estado);
+    }
+
+    public FSMCompilada getFSM() {
+        return fsm;
+    }
+}
@@ -0,0 +1,231 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Autómata determinista construido bajo demanda a partir de un AFN
+ * Cada estado determinista es un conjunto de estados del AFN; su transición con una entrada
+ * se calcula con AFN.avanzar la primera vez que se necesita y luego se consulta en una tabla
+ * plana, como en FSMCompilada. Solo se crean los conjuntos que la entrada realmente visita.
+ * La memoria está acotada por un máximo de estados: cuando la caché se llena se vacía por
+ * completo y se sigue desde el conjunto actual, así que una entrada que visita muchos conjuntos
+ * distintos vuelve a calcular transiciones pero nunca usa más memoria que la indicada
+ * Si el AFN se modifica, la caché se descarta en la siguiente ejecución
+ */
+public class DFAPerezoso {
+    private static final int DESCONOCIDO = -2;
+    private static final int MUERTO = -1;
+
+    private final AFN afn;
+    private final int maxEstados;
+    private final int numEntradas;
+    private final int[] siguiente;
+    private final long[][] conjuntos;
+    private final boolean[] aceptacion;
+    private final Map<Conjunto, Integer> ids = new HashMap<>();
+    private int numEstados;
+    private int inicial;
+    private long versionAFN = -1;
+    private long vaciados;
+    private long calculadas;
+
+    /**
+     * Conjunto de estados del AFN usado como clave
+     */
+    private static class Conjunto {
+        final long[] bits;
+        final int hash;
+
+        Conjunto(long[] bits) {
+            this.bits = bits;
+            this.hash = Arrays.hashCode(bits);
+        }
+
+        @Override
+        public boolean equals(Object otro) {
+            return otro instanceof Conjunto && Arrays.equals(bits, ((Conjunto) otro).bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Constructor del autómata perezoso
+     * @param afn Autómata no determinista a simular
+     * @param maxEstados Máximo de estados deterministas en caché (al menos 3: tras vaciarla
+     *                   se guardan el inicial, el de origen y el de destino)
+     */
+    public DFAPerezoso(AFN afn, int maxEstados) {
+        if (maxEstados < 3) {
+            throw new IllegalArgumentException("Máximo de estados no válido: " + maxEstados);
+        }
+        this.afn = afn;
+        this.maxEstados = maxEstados;
+        this.numEntradas = afn.getNumEntradas();
+        this.siguiente = new int[maxEstados * numEntradas];
+        this.conjuntos = new long[maxEstados][];
+        this.aceptacion = new boolean[maxEstados];
+    }
+
+    /**
+     * Procesa una secuencia de entradas
+     * @param entradas Nombres de las entradas
+     * @return true si el AFN acepta la secuencia
+     * @throws IllegalArgumentException Si alguna entrada no es válida
+     */
+    public boolean acepta(String[] entradas) {
+        return acepta(afn.ids(entradas));
+    }
+
+    /**
+     * Procesa una secuencia de ids de entrada
+     * @param entradas Ids de las entradas
+     * @return true si el AFN acepta la secuencia
+     * @throws IllegalArgumentException Si algún id de entrada no es válido
+     */
+    public boolean acepta(int[] entradas) {
+        int estado = estadoInicial();
+        for (int i = 0; i < entradas.length; i++) {
+            estado = paso(estado, entradas[i], i);
+            if (estado == MUERTO) {
+                return false;
+            }
+        }
+        return aceptacion[estado];
+    }
+
+    /**
+     * Busca el primer prefijo de un rango de entradas que el AFN acepta
+     * @param entradas Ids de las entradas
+     * @param desde Posición inicial del rango
+     * @param hasta Posición final (exclusiva) del rango
+     * @return Longitud del prefijo aceptado más corto, o -1 si ninguno se acepta
+     * @throws IllegalArgumentException Si algún id de entrada no es válido
+     */
+    public int primeraAceptacion(int[] entradas, int desde, int hasta) {
+        int estado = estadoInicial();
+        for (int i = desde; ; i++) {
+            if (aceptacion[estado]) {
+                return i - desde;
+            }
+            if (i == hasta) {
+                return -1;
+            }
+            estado = paso(estado, entradas[i], i);
+            if (estado == MUERTO) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Obtiene el estado inicial, descartando la caché si el AFN cambió
+     */
+    private int estadoInicial() {
+        if (versionAFN != afn.getVersion()) {
+            versionAFN = afn.getVersion();
+            vaciar();
+        }
+        return inicial;
+    }
+
+    /**
+     * Da un paso desde un estado determinista, calculando la transición si no está en caché
+     * @return Estado siguiente o MUERTO si no queda ningún estado del AFN activo
+     */
+    private int paso(int estado, int entrada, int posicion) {
+        if (entrada < 0 || entrada >= numEntradas) {
+            afn.validarEntrada(entrada, posicion);
+        }
+        int destino = siguiente[estado * numEntradas + entrada];
+        if (destino == DESCONOCIDO) {
+            destino = calcular(estado, entrada);
+        }
+        return destino;
+    }
+
+    /**
+     * Calcula y guarda una transición; si la caché está llena la vacía y vuelve a agregar
+     * el estado de origen, por lo que los ids anteriores dejan de ser válidos
+     * @return Id del estado siguiente en la caché vigente, o MUERTO
+     */
+    private int calcular(int estado, int entrada) {
+        calculadas++;
+        long[] destino = new long[afn.palabras()];
+        if (!afn.avanzar(conjuntos[estado], entrada, destino)) {
+            siguiente[estado * numEntradas + entrada] = MUERTO;
+            return MUERTO;
+        }
+        Conjunto clave = new Conjunto(destino);
+        Integer id = ids.get(clave);
+        if (id == null) {
+            if (numEstados == maxEstados) {
+                long[] origen = conjuntos[estado];
+                vaciados++;
+                vaciar();
+                estado = agregar(new Conjunto(origen));
+            }
+            id = agregar(clave);
+        }
+        siguiente[estado * numEntradas + entrada] = id;
+        return id;
+    }
+
+    /**
+     * Descarta todos los estados y agrega de nuevo el inicial
+     */
+    private void vaciar() {
+        ids.clear();
+        Arrays.fill(conjuntos, 0, numEstados, null);
+        numEstados = 0;
+        inicial = agregar(new Conjunto(afn.conjuntoInicial()));
+    }
+
+    /**
+     * Agrega un conjunto a la caché, o devuelve su id si ya estaba
+     */
+    private int agregar(Conjunto conjunto) {
+        Integer existente = ids.get(conjunto);
+        if (existente != null) {
+            return existente;
+        }
+        int id = numEstados++;
+        ids.put(conjunto, id);
+        conjuntos[id] = conjunto.bits;
+        aceptacion[id] = afn.esAceptacion(conjunto.bits);
+        Arrays.fill(siguiente, id * numEntradas, (id + 1) * numEntradas, DESCONOCIDO);
+        return id;
+    }
+
+    // Getters
+    public int getNumEstados() {
+        return numEstados;
+    }
+
+    public int getMaxEstados() {
+        return maxEstados;
+    }
+
+    /**
+     * Obtiene cuántas veces se vació la caché por estar llena
+     * @return Número de vaciados
+     */
+    public long getVaciados() {
+        return vaciados;
+    }
+
+    /**
+     * Obtiene cuántas transiciones se calcularon con el AFN en lugar de leerse de la caché
+     * @return Número de transiciones calculadas
+     */
+    public long getTransicionesCalculadas() {
+        return calculadas;
+    }
+
+    public AFN getAFN() {
+        return afn;
+    }
+}
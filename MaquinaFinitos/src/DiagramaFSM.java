@@ -1,13 +1,37 @@
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Clase para generar diagramas visuales de la FSM
  * Puede generar diagramas en formato texto y DOT (Graphviz)
+ * Los diagramas devueltos como String se guardan por versión de la FSM; mientras la
+ * estructura no cambie, solo se regeneran las líneas del estado actual
  */
 public class DiagramaFSM {
+    private static final int TRANSICIONES_MAS_USADAS = 10;
+    private static final int TAMANO_BUFFER = 1 << 16;
+    private static final int ANCHO_ESTADO = 15;
+    private static final int ANCHO_CELDA = 12;
+    private static final int ESTADOS_POR_LISTA = 20;
+    private static final int COMPONENTES_LISTADAS = 10;
+
     private FSM fsm;
 
+    // Diagramas ya generados para la versión de la FSM indicada, sin marcar el estado actual
+    private long versionCache = -1;
+    private Plantilla cacheTexto;
+    private Plantilla cacheDOT;
+    private Plantilla cacheMatriz;
+    private Plantilla cacheFlujo;
+    private String cacheEstadisticas;
+    private String cacheAnalisis;
+
     /**
      * Constructor del generador de diagramas
      * @param fsm FSM para la cual generar el diagrama
@@ -16,45 +40,221 @@ public class DiagramaFSM {
         this.fsm = fsm;
     }
 
+    /**
+     * Texto de un diagrama con la posición de los bloques que dependen del estado actual
+     * El diagrama se genera una vez sin estado actual; para mostrarlo se copian los
+     * fragmentos fijos y solo se vuelven a generar los bloques afectados
+     */
+    private static class Plantilla {
+        private StringBuilder texto = new StringBuilder();
+        private String resultado;
+        private final int[] inicios;
+        private final int[] fines;
+
+        Plantilla(int bloques) {
+            inicios = new int[bloques];
+            fines = new int[bloques];
+        }
+
+        void abrir(int bloque) {
+            inicios[bloque] = texto.length();
+        }
+
+        void cerrar(int bloque) {
+            fines[bloque] = texto.length();
+        }
+
+        void marcar(int bloque, int inicio, int fin) {
+            inicios[bloque] = inicio;
+            fines[bloque] = fin;
+        }
+
+        Plantilla terminar() {
+            resultado = texto.toString();
+            texto = null;
+            return this;
+        }
+
+        /**
+         * Reemplaza bloques del texto
+         * @param bloques Índices de los bloques, en orden de aparición en el texto
+         * @param reemplazos Texto nuevo de cada bloque
+         * @return Texto con los bloques reemplazados
+         */
+        String superponer(int[] bloques, String[] reemplazos) {
+            if (bloques.length == 0) {
+                return resultado;
+            }
+            StringBuilder salida = new StringBuilder(resultado.length() + 32 * bloques.length);
+            int posicion = 0;
+            for (int i = 0; i < bloques.length; i++) {
+                salida.append(resultado, posicion, inicios[bloques[i]]).append(reemplazos[i]);
+                posicion = fines[bloques[i]];
+            }
+            return salida.append(resultado, posicion, resultado.length()).toString();
+        }
+    }
+
+    /**
+     * Descarta los diagramas guardados si la FSM cambió desde que se generaron
+     */
+    private void validarCache() {
+        if (versionCache != fsm.getVersion()) {
+            versionCache = fsm.getVersion();
+            cacheTexto = null;
+            cacheDOT = null;
+            cacheMatriz = null;
+            cacheFlujo = null;
+            cacheEstadisticas = null;
+            cacheAnalisis = null;
+        }
+    }
+
+    /**
+     * Obtiene las posiciones en fsm.getEstados() del estado actual (normalmente una)
+     */
+    private int[] posicionesActual() {
+        String actual = fsm.getEstadoActual();
+        String[] estados = fsm.getEstados();
+        int cantidad = 0;
+        int[] posiciones = new int[1];
+        for (int i = 0; i < estados.length; i++) {
+            if (estados[i].equals(actual)) {
+                if (cantidad == posiciones.length) {
+                    posiciones = Arrays.copyOf(posiciones, cantidad * 2);
+                }
+                posiciones[cantidad++] = i;
+            }
+        }
+        return Arrays.copyOf(posiciones, cantidad);
+    }
+
+    /**
+     * Generador que escribe un diagrama en una plantilla
+     */
+    private interface GeneradorPlantilla {
+        void generar(StringBuilder destino, Plantilla plantilla) throws IOException;
+    }
+
+    private static Plantilla generarPlantilla(int bloques, GeneradorPlantilla generador) {
+        Plantilla plantilla = new Plantilla(bloques);
+        try {
+            generador.generar(plantilla.texto, plantilla);
+        } catch (IOException e) {
+            // StringBuilder no lanza IOException
+            throw new UncheckedIOException(e);
+        }
+        return plantilla.terminar();
+    }
+
+    /**
+     * Generador que escribe un diagrama en un destino
+     */
+    private interface Generador {
+        void generar(Appendable destino) throws IOException;
+    }
+
+    /**
+     * Ejecuta un generador sobre un StringBuilder y devuelve el texto
+     */
+    private static String generarTexto(Generador generador) {
+        StringBuilder texto = new StringBuilder();
+        try {
+            generador.generar(texto);
+        } catch (IOException e) {
+            // StringBuilder no lanza IOException
+            throw new UncheckedIOException(e);
+        }
+        return texto.toString();
+    }
+
+    /**
+     * Escribe una lista de símbolos con el mismo formato que Arrays.toString, elemento por elemento
+     */
+    private static void escribirLista(Appendable destino, String[] simbolos) throws IOException {
+        destino.append('[');
+        for (int i = 0; i < simbolos.length; i++) {
+            if (i > 0) {
+                destino.append(", ");
+            }
+            destino.append(simbolos[i]);
+        }
+        destino.append(']');
+    }
+
     /**
      * Genera un diagrama en formato de texto ASCII
      * @return String con el diagrama en formato texto
      */
     public String generarDiagramaTexto() {
-        StringBuilder diagrama = new StringBuilder();
+        validarCache();
+        String[] estados = fsm.getEstados();
+        if (cacheTexto == null) {
+            cacheTexto = generarPlantilla(estados.length + 1, (destino, plantilla) -> escribirDiagramaTexto(destino, null, plantilla));
+        }
 
+        // Bloques del estado actual: la línea "Estado actual" (último bloque) y la línea de cada estado
+        int[] posiciones = posicionesActual();
+        int[] bloques = new int[posiciones.length + 1];
+        String[] reemplazos = new String[bloques.length];
+        bloques[0] = estados.length;
+        reemplazos[0] = String.valueOf(fsm.getEstadoActual());
+        for (int i = 0; i < posiciones.length; i++) {
+            String estado = estados[posiciones[i]];
+            bloques[i + 1] = posiciones[i];
+            reemplazos[i + 1] = generarTexto(destino -> escribirEstadoTexto(destino, estado, true));
+        }
+        return cacheTexto.superponer(bloques, reemplazos);
+    }
+
+    /**
+     * Escribe el diagrama en formato de texto ASCII directamente en un destino
+     * @param diagrama Destino (Writer, StringBuilder, PrintStream, etc.)
+     * @throws IOException Si ocurre un error al escribir en el destino
+     */
+    public void generarDiagramaTexto(Appendable diagrama) throws IOException {
+        escribirDiagramaTexto(diagrama, fsm.getEstadoActual(), null);
+    }
+
+    /**
+     * Escribe el diagrama de texto marcando como actual el estado indicado
+     * @param plantilla Plantilla donde registrar los bloques, o null
+     */
+    private void escribirDiagramaTexto(Appendable diagrama, String actual, Plantilla plantilla) throws IOException {
         diagrama.append("╔══════════════════════════════════════════════════════════════╗\n");
         diagrama.append("║                    DIAGRAMA DE LA FSM                       ║\n");
         diagrama.append("╚══════════════════════════════════════════════════════════════╝\n\n");
 
+        String[] estados = fsm.getEstados();
+        String[] entradas = fsm.getEntradas();
+
         // Información general
-        diagrama.append("Estados: ").append(Arrays.toString(fsm.getEstados())).append("\n");
-        diagrama.append("Entradas: ").append(Arrays.toString(fsm.getEntradas())).append("\n");
-        diagrama.append("Salidas: ").append(Arrays.toString(fsm.getSalidas())).append("\n");
+        diagrama.append("Estados: ");
+        escribirLista(diagrama, estados);
+        diagrama.append("\n");
+        diagrama.append("Entradas: ");
+        escribirLista(diagrama, entradas);
+        diagrama.append("\n");
+        diagrama.append("Salidas: ");
+        escribirLista(diagrama, fsm.getSalidas());
+        diagrama.append("\n");
         diagrama.append("Estado inicial: ").append(fsm.getEstadoInicial()).append("\n");
-        diagrama.append("Estado actual: ").append(fsm.getEstadoActual()).append("\n\n");
+        diagrama.append("Estado actual: ");
+        if (plantilla != null) plantilla.abrir(estados.length);
+        diagrama.append(actual);
+        if (plantilla != null) plantilla.cerrar(estados.length);
+        diagrama.append("\n\n");
 
         // Diagrama visual simplificado
         diagrama.append("REPRESENTACIÓN VISUAL:\n");
         diagrama.append("═══════════════════════\n\n");
 
-        String[] estados = fsm.getEstados();
-        String[] entradas = fsm.getEntradas();
-
-        for (String estado : estados) {
+        for (int i = 0; i < estados.length; i++) {
+            String estado = estados[i];
             // Mostrar el estado
-            if (estado.equals(fsm.getEstadoInicial())) {
-                diagrama.append("→ ");  // Flecha para estado inicial
-            } else {
-                diagrama.append("  ");
-            }
-
-            if (estado.equals(fsm.getEstadoActual())) {
-                diagrama.append("⦿ ").append(estado).append(" (ACTUAL)");  // Estado actual
-            } else {
-                diagrama.append("○ ").append(estado);  // Estado normal
-            }
-            diagrama.append("\n");
+            if (plantilla != null) plantilla.abrir(i);
+            escribirEstadoTexto(diagrama, estado, estado.equals(actual));
+            if (plantilla != null) plantilla.cerrar(i);
 
             // Mostrar transiciones desde este estado
             for (String entrada : entradas) {
@@ -67,8 +267,21 @@ public class DiagramaFSM {
             }
             diagrama.append("\n");
         }
+    }
 
-        return diagrama.toString();
+    private void escribirEstadoTexto(Appendable diagrama, String estado, boolean actual) throws IOException {
+        if (estado.equals(fsm.getEstadoInicial())) {
+            diagrama.append("→ ");  // Flecha para estado inicial
+        } else {
+            diagrama.append("  ");
+        }
+
+        if (actual) {
+            diagrama.append("⦿ ").append(estado).append(" (ACTUAL)");  // Estado actual
+        } else {
+            diagrama.append("○ ").append(estado);  // Estado normal
+        }
+        diagrama.append("\n");
     }
 
     /**
@@ -76,8 +289,35 @@ public class DiagramaFSM {
      * @return String con el código DOT
      */
     public String generarDiagramaDOT() {
-        StringBuilder dot = new StringBuilder();
+        // Con perfil activo las etiquetas cambian con cada ejecución, así que no se guarda
+        if (fsm.getPerfil() != null) {
+            return generarTexto(this::generarDiagramaDOT);
+        }
+        validarCache();
+        String[] estados = fsm.getEstados();
+        if (cacheDOT == null) {
+            cacheDOT = generarPlantilla(estados.length, (destino, plantilla) -> escribirDiagramaDOT(destino, null, plantilla));
+        }
 
+        int[] posiciones = posicionesActual();
+        String[] reemplazos = new String[posiciones.length];
+        for (int i = 0; i < posiciones.length; i++) {
+            String estado = estados[posiciones[i]];
+            reemplazos[i] = generarTexto(destino -> escribirNodoDOT(destino, estado, true));
+        }
+        return cacheDOT.superponer(posiciones, reemplazos);
+    }
+
+    /**
+     * Escribe el código DOT directamente en un destino, estado por estado
+     * @param dot Destino (Writer, StringBuilder, PrintStream, etc.)
+     * @throws IOException Si ocurre un error al escribir en el destino
+     */
+    public void generarDiagramaDOT(Appendable dot) throws IOException {
+        escribirDiagramaDOT(dot, fsm.getEstadoActual(), null);
+    }
+
+    private void escribirDiagramaDOT(Appendable dot, String actual, Plantilla plantilla) throws IOException {
         dot.append("digraph FSM {\n");
         dot.append("    rankdir=LR;\n");
         dot.append("    size=\"8,5\";\n");
@@ -85,34 +325,59 @@ public class DiagramaFSM {
 
         // Definir nodos
         String[] estados = fsm.getEstados();
-        for (String estado : estados) {
-            if (estado.equals(fsm.getEstadoInicial())) {
-                dot.append("    ").append(estado).append(" [shape = doublecircle, style=filled, fillcolor=lightgreen];\n");
-            } else if (estado.equals(fsm.getEstadoActual())) {
-                dot.append("    ").append(estado).append(" [style=filled, fillcolor=lightblue];\n");
-            } else {
-                dot.append("    ").append(estado).append(";\n");
-            }
+        for (int i = 0; i < estados.length; i++) {
+            if (plantilla != null) plantilla.abrir(i);
+            escribirNodoDOT(dot, estados[i], estados[i].equals(actual));
+            if (plantilla != null) plantilla.cerrar(i);
         }
 
         // Nodo invisible para la flecha de inicio
         dot.append("    start [shape=point];\n");
         dot.append("    start -> ").append(fsm.getEstadoInicial()).append(";\n\n");
 
-        // Definir transiciones
+        // Definir transiciones; con perfil activo, coloreadas según su uso
         String[] entradas = fsm.getEntradas();
+        PerfilFSM perfil = fsm.getPerfil();
+        long maximoUso = perfil != null ? perfil.getMaximoUso() : 0;
         for (String estado : estados) {
             for (String entrada : entradas) {
                 if (fsm.existeTransicion(estado, entrada)) {
                     Transicion transicion = fsm.getTransicion(estado, entrada);
                     dot.append("    ").append(estado).append(" -> ").append(transicion.getEstadoDestino());
-                    dot.append(" [ label = \"").append(entrada).append("/").append(transicion.getSalida()).append("\" ];\n");
+                    dot.append(" [ label = \"").append(entrada).append("/").append(transicion.getSalida());
+                    if (perfil != null) {
+                        long uso = perfil.getUsos(fsm.getTablaEstados().id(estado), fsm.getTablaEntradas().id(entrada));
+                        dot.append(" (").append(String.valueOf(uso)).append(")\"");
+                        agregarCalor(dot, uso, maximoUso);
+                    } else {
+                        dot.append("\"");
+                    }
+                    dot.append(" ];\n");
                 }
             }
         }
 
         dot.append("}\n");
-        return dot.toString();
+    }
+
+    private void escribirNodoDOT(Appendable dot, String estado, boolean actual) throws IOException {
+        if (estado.equals(fsm.getEstadoInicial())) {
+            dot.append("    ").append(estado).append(" [shape = doublecircle, style=filled, fillcolor=lightgreen];\n");
+        } else if (actual) {
+            dot.append("    ").append(estado).append(" [style=filled, fillcolor=lightblue];\n");
+        } else {
+            dot.append("    ").append(estado).append(";\n");
+        }
+    }
+
+    /**
+     * Agrega color y grosor a una arista según su uso relativo al máximo:
+     * de azul (poco usada) a rojo (la más usada)
+     */
+    private static void agregarCalor(Appendable dot, long uso, long maximoUso) throws IOException {
+        double fraccion = maximoUso == 0 ? 0 : (double) uso / maximoUso;
+        dot.append(String.format(Locale.ROOT, ", color=\"%.3f 1.000 0.900\", penwidth=%.1f",
+                0.666 * (1 - fraccion), 1 + 4 * fraccion));
     }
 
     /**
@@ -120,45 +385,196 @@ public class DiagramaFSM {
      * @return String con la matriz de transiciones
      */
     public String generarMatrizTransiciones() {
-        StringBuilder matriz = new StringBuilder();
+        validarCache();
+        FSMCompilada tabla = fsm.compilar();
+        int numEstados = tabla.getNumEstados();
+        if (cacheMatriz == null) {
+            cacheMatriz = generarPlantilla(numEstados, (destino, plantilla) ->
+                    escribirMatrizTransiciones(destino, 0, numEstados, 0, tabla.getNumEntradas(), null, plantilla));
+        }
 
-        String[] estados = fsm.getEstados();
-        String[] entradas = fsm.getEntradas();
+        int actual = tabla.idEstado(fsm.getEstadoActual());
+        if (actual == FSMCompilada.SIN_TRANSICION) {
+            return cacheMatriz.superponer(new int[0], new String[0]);
+        }
+        Linea linea = new Linea();
+        escribirEtiqueta(linea, tabla.getEstado(actual), actual == tabla.getEstadoInicial(), true);
+        return cacheMatriz.superponer(new int[] {actual}, new String[] {new String(linea.caracteres, 0, linea.longitud)});
+    }
+
+    /**
+     * Escribe la matriz de transiciones directamente en un destino, fila por fila
+     * @param matriz Destino (Writer, StringBuilder, PrintStream, etc.)
+     * @throws IOException Si ocurre un error al escribir en el destino
+     */
+    public void generarMatrizTransiciones(Appendable matriz) throws IOException {
+        FSMCompilada tabla = fsm.compilar();
+        generarMatrizTransiciones(matriz, 0, tabla.getNumEstados(), 0, tabla.getNumEntradas());
+    }
+
+    /**
+     * Genera una ventana de la matriz de transiciones, útil para matrices muy grandes
+     * @param primeraFila Id del primer estado a mostrar
+     * @param filas Número máximo de estados a mostrar
+     * @param primeraColumna Id de la primera entrada a mostrar
+     * @param columnas Número máximo de entradas a mostrar
+     * @return String con la ventana de la matriz
+     */
+    public String generarMatrizTransiciones(int primeraFila, int filas, int primeraColumna, int columnas) {
+        return generarTexto(destino -> generarMatrizTransiciones(destino, primeraFila, filas, primeraColumna, columnas));
+    }
+
+    /**
+     * Escribe una ventana de la matriz de transiciones directamente en un destino
+     * Recorre la tabla compilada y arma cada fila en un buffer de caracteres reutilizable,
+     * con los nombres de estados y salidas obtenidos una sola vez
+     * @param matriz Destino (Writer, StringBuilder, PrintStream, etc.)
+     * @param primeraFila Id del primer estado a mostrar
+     * @param filas Número máximo de estados a mostrar
+     * @param primeraColumna Id de la primera entrada a mostrar
+     * @param columnas Número máximo de entradas a mostrar
+     * @throws IOException Si ocurre un error al escribir en el destino
+     */
+    public void generarMatrizTransiciones(Appendable matriz, int primeraFila, int filas,
+                                          int primeraColumna, int columnas) throws IOException {
+        escribirMatrizTransiciones(matriz, primeraFila, filas, primeraColumna, columnas, fsm.getEstadoActual(), null);
+    }
+
+    private void escribirMatrizTransiciones(Appendable matriz, int primeraFila, int filas, int primeraColumna,
+                                            int columnas, String estadoActual, Plantilla plantilla) throws IOException {
+        FSMCompilada tabla = fsm.compilar();
+        int numEstados = tabla.getNumEstados();
+        int numEntradas = tabla.getNumEntradas();
+        if (primeraFila < 0 || primeraColumna < 0 || filas < 0 || columnas < 0) {
+            throw new IllegalArgumentException("Ventana de la matriz no válida");
+        }
+        int finFilas = (int) Math.min(numEstados, (long) primeraFila + filas);
+        int finColumnas = (int) Math.min(numEntradas, (long) primeraColumna + columnas);
+        int visibles = Math.max(0, finColumnas - primeraColumna);
+
+        String[] estados = new String[numEstados];
+        for (int s = 0; s < numEstados; s++) {
+            estados[s] = tabla.getEstado(s);
+        }
+        String[] salidas = new String[tabla.getNumSalidas()];
+        for (int y = 0; y < salidas.length; y++) {
+            salidas[y] = tabla.getSalida(y);
+        }
+        int inicial = tabla.getEstadoInicial();
+        int actual = estadoActual == null ? FSMCompilada.SIN_TRANSICION : tabla.idEstado(estadoActual);
 
         matriz.append("MATRIZ DE TRANSICIONES:\n");
         matriz.append("═════════════════════════\n\n");
 
         // Encabezado
-        matriz.append("Estado\\Entrada");
-        for (String entrada : entradas) {
-            matriz.append(String.format("%12s", entrada));
+        Linea linea = new Linea();
+        linea.agregar("Estado\\Entrada");
+        for (int x = primeraColumna; x < finColumnas; x++) {
+            linea.alinearDerecha(tabla.getEntrada(x), ANCHO_CELDA);
         }
-        matriz.append("\n");
-        matriz.append("─".repeat(15 + entradas.length * 12)).append("\n");
+        linea.agregar('\n');
+        linea.escribir(matriz);
+        matriz.append("─".repeat(ANCHO_ESTADO + visibles * ANCHO_CELDA)).append("\n");
 
         // Filas de estados
-        for (String estado : estados) {
-            String marcador = "";
-            if (estado.equals(fsm.getEstadoInicial())) marcador += "→";
-            if (estado.equals(fsm.getEstadoActual())) marcador += "*";
-
-            matriz.append(String.format("%-15s", estado + marcador));
+        for (int s = primeraFila; s < finFilas; s++) {
+            linea.reiniciar();
+            escribirEtiqueta(linea, estados[s], s == inicial, s == actual);
+            if (plantilla != null) {
+                // La etiqueta empieza donde se escribirá la línea
+                plantilla.marcar(s, plantilla.texto.length(), plantilla.texto.length() + linea.longitud);
+            }
 
-            for (String entrada : entradas) {
-                if (fsm.existeTransicion(estado, entrada)) {
-                    Transicion transicion = fsm.getTransicion(estado, entrada);
-                    String celda = transicion.getEstadoDestino() + "/" + transicion.getSalida();
-                    matriz.append(String.format("%12s", celda));
+            int base = s * numEntradas;
+            for (int x = primeraColumna; x < finColumnas; x++) {
+                int destino = tabla.siguiente[base + x];
+                if (destino == FSMCompilada.SIN_TRANSICION) {
+                    linea.alinearDerecha("─", ANCHO_CELDA);
                 } else {
-                    matriz.append(String.format("%12s", "─"));
+                    String nombreDestino = estados[destino];
+                    String salida = salidas[tabla.salida[base + x]];
+                    linea.rellenar(ANCHO_CELDA - (nombreDestino.length() + 1 + salida.length()));
+                    linea.agregar(nombreDestino);
+                    linea.agregar('/');
+                    linea.agregar(salida);
                 }
             }
-            matriz.append("\n");
+            linea.agregar('\n');
+            linea.escribir(matriz);
         }
 
         matriz.append("\nLeyenda: → Estado inicial, * Estado actual, ─ Sin transición\n");
+        if (finFilas - primeraFila < numEstados || visibles < numEntradas) {
+            matriz.append("Mostrando estados ").append(String.valueOf(primeraFila)).append("-")
+                    .append(String.valueOf(finFilas - 1)).append(" de ").append(String.valueOf(numEstados))
+                    .append(", entradas ").append(String.valueOf(primeraColumna)).append("-")
+                    .append(String.valueOf(finColumnas - 1)).append(" de ").append(String.valueOf(numEntradas))
+                    .append("\n");
+        }
+    }
 
-        return matriz.toString();
+    /**
+     * Agrega a la línea el nombre de un estado con sus marcas, rellenado hasta el ancho de la columna
+     */
+    private static void escribirEtiqueta(Linea linea, String estado, boolean inicial, boolean actual) {
+        int inicio = linea.longitud;
+        linea.agregar(estado);
+        if (inicial) linea.agregar('→');
+        if (actual) linea.agregar('*');
+        linea.rellenar(ANCHO_ESTADO - (linea.longitud - inicio));
+    }
+
+    /**
+     * Buffer de caracteres reutilizable para armar una fila de la matriz
+     */
+    private static class Linea {
+        char[] caracteres = new char[256];
+        int longitud;
+
+        void reiniciar() {
+            longitud = 0;
+        }
+
+        void asegurar(int adicionales) {
+            if (longitud + adicionales > caracteres.length) {
+                caracteres = Arrays.copyOf(caracteres, Math.max(caracteres.length * 2, longitud + adicionales));
+            }
+        }
+
+        void agregar(char c) {
+            asegurar(1);
+            caracteres[longitud++] = c;
+        }
+
+        void agregar(String texto) {
+            asegurar(texto.length());
+            texto.getChars(0, texto.length(), caracteres, longitud);
+            longitud += texto.length();
+        }
+
+        void rellenar(int espacios) {
+            if (espacios > 0) {
+                asegurar(espacios);
+                Arrays.fill(caracteres, longitud, longitud + espacios, ' ');
+                longitud += espacios;
+            }
+        }
+
+        void alinearDerecha(String texto, int ancho) {
+            rellenar(ancho - texto.length());
+            agregar(texto);
+        }
+
+        void escribir(Appendable destino) throws IOException {
+            if (destino instanceof Writer) {
+                ((Writer) destino).write(caracteres, 0, longitud);
+            } else if (destino instanceof StringBuilder) {
+                ((StringBuilder) destino).append(caracteres, 0, longitud);
+            } else {
+                destino.append(java.nio.CharBuffer.wrap(caracteres, 0, longitud));
+            }
+            longitud = 0;
+        }
     }
 
     /**
@@ -166,42 +582,57 @@ public class DiagramaFSM {
      * @return String con el diagrama de flujo
      */
     public String generarDiagramaFlujo() {
-        StringBuilder flujo = new StringBuilder();
+        validarCache();
+        String[] estados = fsm.getEstados();
+        if (cacheFlujo == null) {
+            cacheFlujo = generarPlantilla(estados.length, (destino, plantilla) -> escribirDiagramaFlujo(destino, null, plantilla));
+        }
 
+        int[] posiciones = posicionesActual();
+        String[] reemplazos = new String[posiciones.length];
+        for (int i = 0; i < posiciones.length; i++) {
+            reemplazos[i] = etiquetaFlujo(estados[posiciones[i]], true);
+        }
+        return cacheFlujo.superponer(posiciones, reemplazos);
+    }
+
+    /**
+     * Escribe el diagrama de flujo directamente en un destino, estado por estado
+     * @param flujo Destino (Writer, StringBuilder, PrintStream, etc.)
+     * @throws IOException Si ocurre un error al escribir en el destino
+     */
+    public void generarDiagramaFlujo(Appendable flujo) throws IOException {
+        escribirDiagramaFlujo(flujo, fsm.getEstadoActual(), null);
+    }
+
+    private void escribirDiagramaFlujo(Appendable flujo, String actual, Plantilla plantilla) throws IOException {
         flujo.append("DIAGRAMA DE FLUJO:\n");
         flujo.append("═══════════════════\n\n");
 
         String[] estados = fsm.getEstados();
         String[] entradas = fsm.getEntradas();
 
-        // Crear un mapa de conexiones
-        Map<String, List<String>> conexiones = new HashMap<>();
-
-        for (String estado : estados) {
-            conexiones.put(estado, new ArrayList<>());
+        // Generar el flujo; las conexiones se arman por estado para no guardar las de toda la FSM
+        List<String> trans = new ArrayList<>();
+        for (int e = 0; e < estados.length; e++) {
+            String estado = estados[e];
+            trans.clear();
             for (String entrada : entradas) {
                 if (fsm.existeTransicion(estado, entrada)) {
                     Transicion transicion = fsm.getTransicion(estado, entrada);
-                    String conexion = entrada + "/" + transicion.getSalida() + " → " + transicion.getEstadoDestino();
-                    conexiones.get(estado).add(conexion);
+                    trans.add(entrada + "/" + transicion.getSalida() + " → " + transicion.getEstadoDestino());
                 }
             }
-        }
 
-        // Generar el flujo
-        for (String estado : estados) {
             // Mostrar el estado
             flujo.append("┌─────────────────┐\n");
 
-            String estadoLabel = estado;
-            if (estado.equals(fsm.getEstadoInicial())) estadoLabel += " (INICIAL)";
-            if (estado.equals(fsm.getEstadoActual())) estadoLabel += " (ACTUAL)";
-
-            flujo.append(String.format("│ %-15s │\n", estadoLabel));
+            if (plantilla != null) plantilla.abrir(e);
+            flujo.append(etiquetaFlujo(estado, estado.equals(actual)));
+            if (plantilla != null) plantilla.cerrar(e);
             flujo.append("└─────────────────┘\n");
 
             // Mostrar transiciones
-            List<String> trans = conexiones.get(estado);
             for (int i = 0; i < trans.size(); i++) {
                 if (i == trans.size() - 1) {
                     flujo.append("         └─ ").append(trans.get(i)).append("\n");
@@ -215,8 +646,13 @@ public class DiagramaFSM {
                 flujo.append("         ▼\n");
             }
         }
+    }
 
-        return flujo.toString();
+    private String etiquetaFlujo(String estado, boolean actual) {
+        String estadoLabel = estado;
+        if (estado.equals(fsm.getEstadoInicial())) estadoLabel += " (INICIAL)";
+        if (actual) estadoLabel += " (ACTUAL)";
+        return String.format("│ %-15s │\n", estadoLabel);
     }
 
     /**
@@ -226,9 +662,9 @@ public class DiagramaFSM {
      */
     public boolean guardarDiagramaDOT(String nombreArchivo) {
         try {
-            FileWriter writer = new FileWriter(nombreArchivo + ".dot");
-            writer.write(generarDiagramaDOT());
-            writer.close();
+            try (Writer writer = Files.newBufferedWriter(Paths.get(nombreArchivo + ".dot"), StandardCharsets.UTF_8)) {
+                generarDiagramaDOT(writer);
+            }
 
             // También crear un archivo con instrucciones
             FileWriter instrucciones = new FileWriter(nombreArchivo + "_instrucciones.txt");
@@ -250,19 +686,20 @@ public class DiagramaFSM {
 
     /**
      * Guarda todos los diagramas en archivos de texto
+     * Cada diagrama se escribe directamente en el archivo, sin construirlo antes en memoria
      * @param nombreArchivo Nombre base del archivo
      * @return true si se guardaron exitosamente
      */
     public boolean guardarTodosDiagramas(String nombreArchivo) {
         try {
             // Diagrama completo
-            FileWriter writer = new FileWriter(nombreArchivo + "_completo.txt");
-            writer.write(generarDiagramaTexto());
-            writer.write("\n\n");
-            writer.write(generarMatrizTransiciones());
-            writer.write("\n\n");
-            writer.write(generarDiagramaFlujo());
-            writer.close();
+            try (Writer writer = Files.newBufferedWriter(Paths.get(nombreArchivo + "_completo.txt"), StandardCharsets.UTF_8)) {
+                generarDiagramaTexto(writer);
+                writer.write("\n\n");
+                generarMatrizTransiciones(writer);
+                writer.write("\n\n");
+                generarDiagramaFlujo(writer);
+            }
 
             // Archivo DOT
             guardarDiagramaDOT(nombreArchivo);
@@ -274,6 +711,39 @@ public class DiagramaFSM {
         }
     }
 
+    /**
+     * Escribe el código DOT en un canal, opcionalmente comprimido con gzip
+     * @param canal Canal de destino (se cierra al terminar)
+     * @param comprimir true para escribir en formato gzip
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public void guardarDiagramaDOT(WritableByteChannel canal, boolean comprimir) throws IOException {
+        try (Writer writer = abrirEscritor(canal, comprimir)) {
+            generarDiagramaDOT(writer);
+        }
+    }
+
+    /**
+     * Abre un Writer con buffer en UTF-8 sobre un canal, opcionalmente comprimido con gzip
+     * Sirve para escribir cualquiera de los diagramas con uso de memoria constante
+     * @param canal Canal de destino (se cierra al cerrar el Writer)
+     * @param comprimir true para escribir en formato gzip
+     * @return Writer sobre el canal
+     * @throws IOException Si no se puede iniciar el flujo gzip
+     */
+    public static Writer abrirEscritor(WritableByteChannel canal, boolean comprimir) throws IOException {
+        OutputStream salida = Channels.newOutputStream(canal);
+        if (comprimir) {
+            salida = new GZIPOutputStream(salida, TAMANO_BUFFER);
+        }
+        return new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), TAMANO_BUFFER);
+    }
+
+    // Getters
+    public FSM getFSM() {
+        return fsm;
+    }
+
     /**
      * Muestra todos los tipos de diagramas
      */
@@ -290,42 +760,173 @@ public class DiagramaFSM {
      * @return String con las estadísticas
      */
     public String generarEstadisticas() {
-        StringBuilder stats = new StringBuilder();
+        validarCache();
+        if (cacheEstadisticas == null) {
+            cacheEstadisticas = generarEstadisticasEstructura();
+        }
 
-        String[] estados = fsm.getEstados();
-        String[] entradas = fsm.getEntradas();
+        // El perfil cambia con cada ejecución, así que se agrega siempre al momento
+        PerfilFSM perfil = fsm.getPerfil();
+        if (perfil == null) {
+            return cacheEstadisticas;
+        }
+        StringBuilder stats = new StringBuilder(cacheEstadisticas);
+        agregarPerfil(stats, perfil);
+        return stats.toString();
+    }
 
-        int totalTransiciones = 0;
-        int estadosConexos = 0;
-        Map<String, Integer> transicionesPorEstado = new HashMap<>();
+    /**
+     * Genera la parte de las estadísticas que solo depende de la estructura de la FSM
+     * Los conteos los mantiene la FSM al agregar transiciones, así que solo se recorren los estados
+     */
+    private String generarEstadisticasEstructura() {
+        StringBuilder stats = new StringBuilder();
 
-        for (String estado : estados) {
-            int transicionesEstado = 0;
-            for (String entrada : entradas) {
-                if (fsm.existeTransicion(estado, entrada)) {
-                    totalTransiciones++;
-                    transicionesEstado++;
-                }
-            }
-            transicionesPorEstado.put(estado, transicionesEstado);
-            if (transicionesEstado > 0) estadosConexos++;
-        }
+        String[] estados = fsm.getEstados();
 
         stats.append("ESTADÍSTICAS DE LA FSM:\n");
         stats.append("═════════════════════════\n");
         stats.append("Número de estados: ").append(estados.length).append("\n");
-        stats.append("Número de entradas: ").append(entradas.length).append("\n");
+        stats.append("Número de entradas: ").append(fsm.getEntradas().length).append("\n");
         stats.append("Número de salidas: ").append(fsm.getSalidas().length).append("\n");
-        stats.append("Total de transiciones: ").append(totalTransiciones).append("\n");
-        stats.append("Estados con transiciones: ").append(estadosConexos).append("\n");
+        stats.append("Total de transiciones: ").append(fsm.getNumTransiciones()).append("\n");
+        stats.append("Estados con transiciones: ").append(fsm.getEstadosConTransiciones()).append("\n");
         stats.append("Porcentaje de conexión: ").append(String.format("%.1f%%",
-                (double)totalTransiciones / (estados.length * entradas.length) * 100)).append("\n\n");
+                fsm.getCompletitud() * 100)).append("\n\n");
 
-        stats.append("Transiciones por estado:\n");
+        stats.append("Transiciones por estado (salen / llegan):\n");
         for (String estado : estados) {
-            stats.append("  ").append(estado).append(": ").append(transicionesPorEstado.get(estado)).append("\n");
+            stats.append("  ").append(estado).append(": ").append(fsm.getGradoSalida(estado))
+                    .append(" / ").append(fsm.getGradoEntrada(estado)).append("\n");
         }
 
         return stats.toString();
     }
-}
\ No newline at end of file
+
+    /**
+     * Genera el reporte del análisis estructural: estados no alcanzables, incompletos y
+     * sumidero, y componentes fuertemente conexas
+     * @return String con el análisis
+     */
+    public String generarAnalisis() {
+        validarCache();
+        if (cacheAnalisis == null) {
+            cacheAnalisis = generarTexto(this::generarAnalisis);
+        }
+        return cacheAnalisis;
+    }
+
+    /**
+     * Escribe el reporte del análisis estructural directamente en un destino
+     * Las listas largas se recortan a los primeros estados
+     * @param analisis Destino (Writer, StringBuilder, PrintStream, etc.)
+     * @throws IOException Si ocurre un error al escribir en el destino
+     */
+    public void generarAnalisis(Appendable analisis) throws IOException {
+        AnalisisFSM.Resultado resultado = fsm.analizar();
+        FSMCompilada tabla = resultado.getFSM();
+        int numEstados = tabla.getNumEstados();
+
+        analisis.append("ANÁLISIS DE LA FSM:\n");
+        analisis.append("═══════════════════\n");
+        analisis.append("Estados alcanzables desde ").append(fsm.getEstadoInicial()).append(": ")
+                .append(String.valueOf(resultado.getNumAlcanzables())).append(" de ")
+                .append(String.valueOf(numEstados)).append("\n");
+        escribirEstados(analisis, "Estados no alcanzables", resultado.getNoAlcanzables(), tabla);
+        escribirEstados(analisis, "Estados incompletos", resultado.getIncompletos(), tabla);
+        escribirEstados(analisis, "Estados sumidero", resultado.getSumideros(), tabla);
+
+        // Componentes de más de un estado, de mayor a menor
+        int numComponentes = resultado.getNumComponentes();
+        int cerradas = 0;
+        int multiples = 0;
+        for (int c = 0; c < numComponentes; c++) {
+            if (resultado.esCerrada(c)) cerradas++;
+            if (resultado.getTamanoComponente(c) > 1) multiples++;
+        }
+        analisis.append("Componentes fuertemente conexas: ").append(String.valueOf(numComponentes))
+                .append(" (").append(String.valueOf(cerradas)).append(" cerradas)\n");
+        if (multiples > 0) {
+            Integer[] orden = new Integer[multiples];
+            int i = 0;
+            for (int c = 0; c < numComponentes; c++) {
+                if (resultado.getTamanoComponente(c) > 1) orden[i++] = c;
+            }
+            Arrays.sort(orden, (a, b) -> Integer.compare(resultado.getTamanoComponente(b), resultado.getTamanoComponente(a)));
+            analisis.append("Componentes con más de un estado (").append(String.valueOf(multiples)).append("):\n");
+            for (i = 0; i < Math.min(COMPONENTES_LISTADAS, multiples); i++) {
+                int c = orden[i];
+                analisis.append("  ");
+                escribirEstados(analisis, resultado.getEstadosComponente(c), tabla);
+                analisis.append(resultado.esCerrada(c) ? " cerrada\n" : "\n");
+            }
+            if (multiples > COMPONENTES_LISTADAS) {
+                analisis.append("  ... y ").append(String.valueOf(multiples - COMPONENTES_LISTADAS)).append(" más\n");
+            }
+        }
+    }
+
+    private static void escribirEstados(Appendable destino, String titulo, int[] estados, FSMCompilada tabla) throws IOException {
+        destino.append(titulo).append(" (").append(String.valueOf(estados.length)).append("): ");
+        escribirEstados(destino, estados, tabla);
+        destino.append("\n");
+    }
+
+    /**
+     * Escribe una lista de estados por id, con el formato de escribirLista y recortada a
+     * ESTADOS_POR_LISTA nombres
+     */
+    private static void escribirEstados(Appendable destino, int[] estados, FSMCompilada tabla) throws IOException {
+        destino.append('[');
+        for (int i = 0; i < Math.min(estados.length, ESTADOS_POR_LISTA); i++) {
+            if (i > 0) {
+                destino.append(", ");
+            }
+            destino.append(tabla.getEstado(estados[i]));
+        }
+        if (estados.length > ESTADOS_POR_LISTA) {
+            destino.append(", ... y ").append(String.valueOf(estados.length - ESTADOS_POR_LISTA)).append(" más");
+        }
+        destino.append(']');
+    }
+
+    /**
+     * Agrega al reporte los contadores de ejecución: pasos, errores, visitas por estado
+     * y las transiciones más usadas
+     */
+    private void agregarPerfil(StringBuilder stats, PerfilFSM perfil) {
+        TablaSimbolos estados = fsm.getTablaEstados();
+        TablaSimbolos entradas = fsm.getTablaEntradas();
+        long[] visitas = perfil.getVisitas();
+        long errores = perfil.getErrores();
+        long pasos = perfil.getPasos();
+
+        stats.append("\nPERFIL DE EJECUCIÓN:\n");
+        stats.append("Transiciones ejecutadas: ").append(pasos).append("\n");
+        stats.append("Transiciones no definidas encontradas: ").append(errores).append("\n");
+
+        stats.append("Visitas por estado:\n");
+        for (int estado = 0; estado < visitas.length; estado++) {
+            stats.append("  ").append(estados.nombre(estado)).append(": ").append(visitas[estado]);
+            long erroresEstado = perfil.getErrores(estado);
+            if (erroresEstado > 0) {
+                stats.append(" (").append(erroresEstado).append(" sin transición)");
+            }
+            stats.append("\n");
+        }
+
+        int[] celdas = perfil.masUsadas(TRANSICIONES_MAS_USADAS);
+        int numEntradas = entradas.tamano();
+        stats.append("Transiciones más usadas:\n");
+        for (int celda : celdas) {
+            String estado = estados.nombre(celda / numEntradas);
+            String entrada = entradas.nombre(celda % numEntradas);
+            long uso = perfil.getUsos(celda / numEntradas, celda % numEntradas);
+            Transicion transicion = fsm.getTransicion(estado, entrada);
+            stats.append("  ").append(estado).append(" --").append(entrada).append("/")
+                    .append(transicion.getSalida()).append("--> ").append(transicion.getEstadoDestino())
+                    .append(": ").append(uso)
+                    .append(String.format(" (%.1f%%)", 100.0 * uso / pasos)).append("\n");
+        }
+    }
+}
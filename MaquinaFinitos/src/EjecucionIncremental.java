@@ -0,0 +1,215 @@
+import java.util.Arrays;
+
+/**
+ * Ejecución de una FSM compilada sobre una secuencia larga que se puede actualizar
+ * después de editar la máquina sin reprocesar toda la secuencia
+ * Se guarda el estado al inicio de cada segmento de N entradas (como en IndiceCheckpoints)
+ * y un resumen de 512 bits de las celdas (estado, entrada) que visitó cada segmento.
+ * Al actualizar se comparan las tablas vieja y nueva, se saltan los segmentos cuyo resumen
+ * no contiene ninguna celda modificada, y se vuelve a simular desde el primero que sí,
+ * hasta que la trayectoria nueva vuelve a coincidir con la vieja en un punto de control
+ */
+public class EjecucionIncremental {
+    private static final int PALABRAS_RESUMEN = 8;
+
+    private FSMCompilada fsm;
+    private final int[] entradas;
+    private final int[] salidas;
+    private final int intervalo;
+
+    private final int[] estados;
+    private final long[] resumen;
+    private int longitud;
+    private int estadoFinal;
+    private final int estadoInicial;
+
+    /**
+     * Procesa la secuencia completa guardando puntos de control y resúmenes
+     * La ejecución termina al final de la secuencia o en la primera entrada sin transición
+     * @param fsm FSM compilada
+     * @param estado Id del estado desde el cual empezar
+     * @param entradas Ids de las entradas (no deben modificarse mientras se use la ejecución)
+     * @param intervalo Entradas por segmento
+     * @throws IllegalArgumentException Si algún id de entrada no es válido
+     */
+    public EjecucionIncremental(FSMCompilada fsm, int estado, int[] entradas, int intervalo) {
+        if (intervalo <= 0) {
+            throw new IllegalArgumentException("Intervalo no válido: " + intervalo);
+        }
+        if (estado < 0 || estado >= fsm.getNumEstados()) {
+            throw new IllegalArgumentException("Estado no válido: " + estado);
+        }
+        this.fsm = fsm;
+        this.entradas = entradas;
+        this.salidas = new int[entradas.length];
+        this.intervalo = intervalo;
+        this.estadoInicial = estado;
+        int segmentos = entradas.length / intervalo + 1;
+        this.estados = new int[segmentos];
+        this.resumen = new long[segmentos * PALABRAS_RESUMEN];
+        simularDesde(null);
+    }
+
+    /**
+     * Actualiza la ejecución para una versión editada de la FSM
+     * Si la nueva versión tiene otro número de estados o de entradas se reprocesa todo
+     * @param nueva Nueva versión compilada de la FSM
+     * @return Número de entradas que se volvieron a simular
+     */
+    public int actualizar(FSMCompilada nueva) {
+        FSMCompilada vieja = fsm;
+        fsm = nueva;
+        if (nueva.getNumEstados() != vieja.getNumEstados() || nueva.numEntradas != vieja.numEntradas) {
+            return simularDesde(null);
+        }
+
+        long[] modificadas = new long[PALABRAS_RESUMEN];
+        boolean hayCambios = false;
+        for (int celda = 0; celda < vieja.siguiente.length; celda++) {
+            if (vieja.siguiente[celda] != nueva.siguiente[celda] || vieja.salida[celda] != nueva.salida[celda]) {
+                marcar(modificadas, 0, celda);
+                hayCambios = true;
+            }
+        }
+        if (!hayCambios) {
+            return 0;
+        }
+
+        return simularDesde(modificadas);
+    }
+
+    /**
+     * Simula la ejecución segmento por segmento
+     * Mientras la trayectoria coincide con la vieja, los segmentos cuyo resumen no contiene
+     * celdas modificadas se conservan sin simular; al simular uno, se vuelve a coincidir
+     * si el estado al final es el mismo del punto de control viejo
+     * @param modificadas Resumen de las celdas modificadas, o null para simular todo
+     * @return Número de entradas simuladas
+     */
+    private int simularDesde(long[] modificadas) {
+        int puntosViejos = 0;
+        int segmentosViejos = 0;
+        boolean diverge = true;
+        if (modificadas != null) {
+            puntosViejos = puntosValidos();
+            // Incluye el segmento de la entrada donde se detuvo la ejecución vieja
+            segmentosViejos = longitud == entradas.length
+                    ? (longitud + intervalo - 1) / intervalo
+                    : longitud / intervalo + 1;
+            diverge = false;
+        }
+
+        int estado = estadoInicial;
+        int simuladas = 0;
+        for (int s = 0; ; s++) {
+            if (!diverge) {
+                if (s >= segmentosViejos) {
+                    return simuladas;
+                }
+                if (!intersecta(s, modificadas)) {
+                    continue;
+                }
+                estado = estados[s];
+            }
+
+            estados[s] = estado;
+            int desde = s * intervalo;
+            int hasta = Math.min(entradas.length, desde + intervalo);
+            ResultadoLote lote = simularSegmento(s, estado, desde, hasta);
+            simuladas += lote.getProcesados();
+            estado = lote.getEstadoFinal();
+
+            if (desde + lote.getProcesados() < hasta || hasta == entradas.length) {
+                longitud = desde + lote.getProcesados();
+                estadoFinal = estado;
+                // Punto de control del final si cae justo en un múltiplo del intervalo
+                if (longitud % intervalo == 0 && longitud / intervalo == s + 1) {
+                    estados[s + 1] = estado;
+                }
+                return simuladas;
+            }
+            diverge = s + 1 >= puntosViejos || estados[s + 1] != estado;
+        }
+    }
+
+    private int puntosValidos() {
+        return longitud / intervalo + 1;
+    }
+
+    /**
+     * Simula un segmento escribiendo sus salidas y reconstruyendo su resumen de celdas
+     * La celda sin transición donde se detiene la ejecución también queda en el resumen
+     */
+    private ResultadoLote simularSegmento(int segmento, int estado, int desde, int hasta) {
+        int[] siguiente = fsm.siguiente;
+        int[] salida = fsm.salida;
+        int n = fsm.numEntradas;
+        Arrays.fill(resumen, segmento * PALABRAS_RESUMEN, (segmento + 1) * PALABRAS_RESUMEN, 0);
+        int i = desde;
+
+        while (i < hasta) {
+            int entrada = entradas[i];
+            if (entrada < 0 || entrada >= n) {
+                throw new IllegalArgumentException("Entrada no válida en la posición " + i + ": " + entrada);
+            }
+            int celda = estado * n + entrada;
+            marcar(resumen, segmento * PALABRAS_RESUMEN, celda);
+            int destino = siguiente[celda];
+            if (destino == FSMCompilada.SIN_TRANSICION) {
+                break;
+            }
+            salidas[i] = salida[celda];
+            estado = destino;
+            i++;
+        }
+        return new ResultadoLote(estado, i - desde);
+    }
+
+    private boolean intersecta(int segmento, long[] celdas) {
+        int base = segmento * PALABRAS_RESUMEN;
+        for (int p = 0; p < PALABRAS_RESUMEN; p++) {
+            if ((resumen[base + p] & celdas[p]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Marca una celda en un resumen de 512 bits (puede haber colisiones, que solo
+     * provocan simulaciones de más)
+     */
+    private static void marcar(long[] bits, int base, int celda) {
+        int bit = (celda * 0x9E3779B1) >>> 23;
+        bits[base + (bit >>> 6)] |= 1L << bit;
+    }
+
+    /**
+     * Obtiene un índice de puntos de control de la ejecución actual
+     * @return Índice para consultas de estado y salidas por posición
+     */
+    public IndiceCheckpoints getIndice() {
+        return new IndiceCheckpoints(fsm, intervalo, Arrays.copyOf(estados, puntosValidos()), longitud);
+    }
+
+    // Getters
+    public int[] getSalidas() {
+        return salidas;
+    }
+
+    /**
+     * Obtiene cuántas entradas procesó la ejecución; las salidas válidas son las primeras getLongitud()
+     * @return Número de entradas procesadas
+     */
+    public int getLongitud() {
+        return longitud;
+    }
+
+    public int getEstadoFinal() {
+        return estadoFinal;
+    }
+
+    public FSMCompilada getFSM() {
+        return fsm;
+    }
+}
@@ -0,0 +1,402 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+
+/**
+ * Ejecuta una FSM compilada sobre muchos flujos de entrada cortos e independientes
+ * Los flujos se procesan por bloques y dentro de un bloque avanzan al mismo paso:
+ * los estados actuales del bloque viven en un int[] y en cada ronda se da un paso en
+ * cada flujo activo. Como las trayectorias no dependen entre sí, las lecturas de la
+ * tabla de distintos flujos pueden estar en vuelo a la vez en lugar de esperar cada una
+ * a la anterior, como pasa al recorrer un solo flujo
+ * Esto solo compensa cuando las tablas no caben en caché: con menos de UMBRAL_CELDAS celdas
+ * los flujos se recorren uno tras otro
+ * Con --add-modules jdk.incubator.vector existe además un paso vectorial que lee las tablas con
+ * lecturas dispersas (PasoVectorialLockstep). Se pide con el constructor de cuatro parámetros
+ * (vectorialDisponible indica si se puede usar) y no se elige solo porque en las mediciones fue
+ * más lento que el escalar en todos los tamaños
+ */
+public class EjecucionLockstep {
+    private static final int TAMANO_BLOQUE_POR_DEFECTO = 256;
+
+    // Celdas a partir de las cuales el lockstep superó al recorrido secuencial en
+    // ProcesamientoBenchmark (empate en 16000 celdas, 25% más rápido en 64000)
+    static final int UMBRAL_CELDAS = 32 * 1024;
+
+    // Paso vectorial, o null si jdk.incubator.vector no está disponible
+    private static final MethodHandle PASO_VECTORIAL = cargarPasoVectorial();
+
+    private final FSMCompilada fsm;
+    private final int tamanoBloque;
+    private final boolean lockstep;
+    private final boolean vectorial;
+
+    /**
+     * Constructor con el tamaño de bloque por defecto
+     * @param fsm FSM compilada a ejecutar
+     */
+    public EjecucionLockstep(FSMCompilada fsm) {
+        this(fsm, TAMANO_BLOQUE_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor con tamaño de bloque configurable
+     * @param fsm FSM compilada a ejecutar
+     * @param tamanoBloque Número de flujos que avanzan juntos
+     */
+    public EjecucionLockstep(FSMCompilada fsm, int tamanoBloque) {
+        this(fsm, tamanoBloque, (long) fsm.getNumEstados() * fsm.numEntradas >= UMBRAL_CELDAS, false);
+    }
+
+    /**
+     * Constructor que fija el recorrido sin mirar el tamaño de las tablas
+     * @param fsm FSM compilada a ejecutar
+     * @param tamanoBloque Número de flujos que avanzan juntos
+     * @param lockstep Si los flujos avanzan juntos (false: uno tras otro)
+     * @param vectorial Si se usa el paso vectorial en lugar del escalar (implica lockstep)
+     * @throws IllegalStateException Si se pide el paso vectorial y jdk.incubator.vector no está disponible
+     */
+    public EjecucionLockstep(FSMCompilada fsm, int tamanoBloque, boolean lockstep, boolean vectorial) {
+        if (tamanoBloque <= 0) {
+            throw new IllegalArgumentException("Tamaño de bloque no válido: " + tamanoBloque);
+        }
+        if (vectorial && PASO_VECTORIAL == null) {
+            throw new IllegalStateException("El paso vectorial necesita --add-modules jdk.incubator.vector");
+        }
+        this.fsm = fsm;
+        this.tamanoBloque = tamanoBloque;
+        this.lockstep = lockstep || vectorial;
+        this.vectorial = vectorial;
+    }
+
+    /**
+     * Busca el paso vectorial, que solo se puede inicializar si el módulo está presente
+     * @return Referencia a PasoVectorialLockstep.avanzar o null si no está disponible
+     */
+    private static MethodHandle cargarPasoVectorial() {
+        try {
+            Class<?> clase = Class.forName("PasoVectorialLockstep");
+            MethodType tipo = MethodType.methodType(void.class, int[].class, int[].class, int.class,
+                    int[].class, int[].class, int[].class, int[].class, int[].class, int.class);
+            return MethodHandles.lookup().findStatic(clase, "avanzar", tipo);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Indica si jdk.incubator.vector está disponible en esta JVM
+     * @return true si puede usarse el paso vectorial
+     */
+    public static boolean vectorialDisponible() {
+        return PASO_VECTORIAL != null;
+    }
+
+    /**
+     * Procesa todos los flujos empezando en el estado inicial de la FSM
+     * @param entradas Ids de las entradas de cada flujo
+     * @return Salidas, estado final y entradas procesadas de cada flujo
+     * @throws IllegalArgumentException Si algún id de entrada no es válido
+     */
+    public Resultado procesar(int[][] entradas) {
+        int[] estados = new int[entradas.length];
+        Arrays.fill(estados, fsm.getEstadoInicial());
+        return procesar(estados, entradas);
+    }
+
+    /**
+     * Procesa todos los flujos, cada uno desde su propio estado
+     * Cada flujo se detiene en su primera entrada sin transición definida, igual que
+     * FSMCompilada.procesarLote, sin afectar a los demás
+     * @param estadosIniciales Id del estado inicial de cada flujo
+     * @param entradas Ids de las entradas de cada flujo
+     * @return Salidas, estado final y entradas procesadas de cada flujo
+     * @throws IllegalArgumentException Si algún id de entrada o de estado no es válido
+     */
+    public Resultado procesar(int[] estadosIniciales, int[][] entradas) {
+        int[][] salidas = new int[entradas.length][];
+        for (int k = 0; k < entradas.length; k++) {
+            salidas[k] = new int[entradas[k].length];
+        }
+        return procesar(estadosIniciales, entradas, salidas);
+    }
+
+    /**
+     * Procesa todos los flujos escribiendo las salidas en arreglos del llamador,
+     * que pueden reutilizarse entre llamadas
+     * @param estadosIniciales Id del estado inicial de cada flujo
+     * @param entradas Ids de las entradas de cada flujo
+     * @param salidas Arreglo de salidas de cada flujo (al menos del tamaño de sus entradas)
+     * @return Salidas, estado final y entradas procesadas de cada flujo
+     * @throws IllegalArgumentException Si algún id de entrada o de estado no es válido
+     */
+    public Resultado procesar(int[] estadosIniciales, int[][] entradas, int[][] salidas) {
+        if (estadosIniciales.length != entradas.length || salidas.length != entradas.length) {
+            throw new IllegalArgumentException("Se esperaban " + entradas.length
+                    + " estados iniciales y arreglos de salida");
+        }
+        int flujos = entradas.length;
+        int numEstados = fsm.getNumEstados();
+        int[] estados = new int[flujos];
+        for (int k = 0; k < flujos; k++) {
+            if (estadosIniciales[k] < 0 || estadosIniciales[k] >= numEstados) {
+                throw new IllegalArgumentException("Estado no válido en el flujo " + k + ": " + estadosIniciales[k]);
+            }
+            if (salidas[k].length < entradas[k].length) {
+                throw new IllegalArgumentException("El arreglo de salidas del flujo " + k + " es muy pequeño");
+            }
+            estados[k] = estadosIniciales[k];
+        }
+
+        int[] procesados = new int[flujos];
+        if (!lockstep) {
+            procesarSecuencial(entradas, salidas, estados, procesados);
+            return new Resultado(estados, procesados, salidas);
+        }
+        int[] activos = new int[tamanoBloque];
+        int[] estadosActivos = new int[tamanoBloque];
+        if (vectorial) {
+            Ronda ronda = new Ronda(tamanoBloque);
+            for (int inicio = 0; inicio < flujos; inicio += tamanoBloque) {
+                procesarBloqueVectorial(entradas, salidas, estados, procesados, activos, estadosActivos,
+                        ronda, inicio, Math.min(flujos, inicio + tamanoBloque));
+            }
+        } else {
+            for (int inicio = 0; inicio < flujos; inicio += tamanoBloque) {
+                procesarBloque(entradas, salidas, estados, procesados, activos, estadosActivos,
+                        inicio, Math.min(flujos, inicio + tamanoBloque));
+            }
+        }
+        return new Resultado(estados, procesados, salidas);
+    }
+
+    /**
+     * Recorre los flujos uno tras otro, como FSMCompilada.procesarLote
+     */
+    private void procesarSecuencial(int[][] entradas, int[][] salidas, int[] estados, int[] procesados) {
+        int[] siguiente = fsm.siguiente;
+        int[] salida = fsm.salida;
+        int n = fsm.numEntradas;
+
+        for (int k = 0; k < entradas.length; k++) {
+            int[] flujo = entradas[k];
+            int[] salidasFlujo = salidas[k];
+            int estado = estados[k];
+            int i = 0;
+            while (i < flujo.length) {
+                int entrada = flujo[i];
+                if (entrada < 0 || entrada >= n) {
+                    throw new IllegalArgumentException("Entrada no válida en el flujo " + k
+                            + ", posición " + i + ": " + entrada);
+                }
+                int celda = estado * n + entrada;
+                int destino = siguiente[celda];
+                if (destino == FSMCompilada.SIN_TRANSICION) {
+                    break;
+                }
+                salidasFlujo[i++] = salida[celda];
+                estado = destino;
+            }
+            estados[k] = estado;
+            procesados[k] = i;
+        }
+    }
+
+    /**
+     * Avanza en rondas los flujos de un bloque hasta que todos terminan
+     * Como todos empiezan en la posición 0, en la ronda i los flujos activos están todos
+     * en la posición i. Los estados se guardan junto a la lista de activos, y un flujo que
+     * termina se saca intercambiándolo con el último
+     */
+    private void procesarBloque(int[][] entradas, int[][] salidas, int[] estados, int[] procesados,
+                                int[] activos, int[] estadosActivos, int desde, int hasta) {
+        int[] siguiente = fsm.siguiente;
+        int[] salida = fsm.salida;
+        int n = fsm.numEntradas;
+
+        int cantidad = 0;
+        for (int k = desde; k < hasta; k++) {
+            activos[cantidad] = k;
+            estadosActivos[cantidad++] = estados[k];
+        }
+
+        for (int i = 0; cantidad > 0; i++) {
+            int a = 0;
+            while (a < cantidad) {
+                int k = activos[a];
+                int[] flujo = entradas[k];
+                int estado = estadosActivos[a];
+                int destino = FSMCompilada.SIN_TRANSICION;
+                int celda = 0;
+                if (i < flujo.length) {
+                    int entrada = flujo[i];
+                    if (entrada < 0 || entrada >= n) {
+                        throw new IllegalArgumentException("Entrada no válida en el flujo " + k
+                                + ", posición " + i + ": " + entrada);
+                    }
+                    celda = estado * n + entrada;
+                    destino = siguiente[celda];
+                }
+                if (destino == FSMCompilada.SIN_TRANSICION) {
+                    // Fin del flujo o entrada sin transición
+                    estados[k] = estado;
+                    procesados[k] = i;
+                    cantidad--;
+                    activos[a] = activos[cantidad];
+                    estadosActivos[a] = estadosActivos[cantidad];
+                    continue;
+                }
+                salidas[k][i] = salida[celda];
+                estadosActivos[a++] = destino;
+            }
+        }
+    }
+
+    /**
+     * Igual que procesarBloque, pero cada ronda se divide en tres pasadas: se reúnen las
+     * entradas de los flujos activos en un arreglo contiguo, el paso vectorial lee las tablas
+     * para todos a la vez y después se escriben las salidas y se sacan los flujos terminados
+     */
+    private void procesarBloqueVectorial(int[][] entradas, int[][] salidas, int[] estados, int[] procesados,
+                                         int[] activos, int[] estadosActivos, Ronda ronda, int desde, int hasta) {
+        int[] siguiente = fsm.siguiente;
+        int[] salida = fsm.salida;
+        int n = fsm.numEntradas;
+        int[] entradasRonda = ronda.entradas;
+        int[] destinos = ronda.destinos;
+        int[] salidasRonda = ronda.salidas;
+
+        int cantidad = 0;
+        for (int k = desde; k < hasta; k++) {
+            activos[cantidad] = k;
+            estadosActivos[cantidad++] = estados[k];
+        }
+
+        for (int i = 0; cantidad > 0; i++) {
+            int a = 0;
+            while (a < cantidad) {
+                int k = activos[a];
+                int[] flujo = entradas[k];
+                if (i >= flujo.length) {
+                    estados[k] = estadosActivos[a];
+                    procesados[k] = i;
+                    cantidad--;
+                    activos[a] = activos[cantidad];
+                    estadosActivos[a] = estadosActivos[cantidad];
+                    continue;
+                }
+                int entrada = flujo[i];
+                if (entrada < 0 || entrada >= n) {
+                    throw new IllegalArgumentException("Entrada no válida en el flujo " + k
+                            + ", posición " + i + ": " + entrada);
+                }
+                entradasRonda[a++] = entrada;
+            }
+
+            try {
+                PASO_VECTORIAL.invokeExact(siguiente, salida, n, estadosActivos, entradasRonda,
+                        ronda.celdas, destinos, salidasRonda, cantidad);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Error en el paso vectorial", e);
+            }
+
+            a = 0;
+            while (a < cantidad) {
+                int k = activos[a];
+                int destino = destinos[a];
+                if (destino == FSMCompilada.SIN_TRANSICION) {
+                    estados[k] = estadosActivos[a];
+                    procesados[k] = i;
+                    cantidad--;
+                    activos[a] = activos[cantidad];
+                    estadosActivos[a] = estadosActivos[cantidad];
+                    destinos[a] = destinos[cantidad];
+                    salidasRonda[a] = salidasRonda[cantidad];
+                    continue;
+                }
+                salidas[k][i] = salidasRonda[a];
+                estadosActivos[a++] = destino;
+            }
+        }
+    }
+
+    // Getters
+    public FSMCompilada getFSM() {
+        return fsm;
+    }
+
+    public boolean isLockstep() {
+        return lockstep;
+    }
+
+    public boolean isVectorial() {
+        return vectorial;
+    }
+
+    /**
+     * Arreglos de trabajo de una ronda del paso vectorial, reutilizados entre bloques
+     */
+    private static class Ronda {
+        final int[] entradas;
+        final int[] celdas;
+        final int[] destinos;
+        final int[] salidas;
+
+        Ronda(int tamano) {
+            entradas = new int[tamano];
+            celdas = new int[tamano];
+            destinos = new int[tamano];
+            salidas = new int[tamano];
+        }
+    }
+
+    /**
+     * Resultado de procesar varios flujos
+     */
+    public static class Resultado {
+        private final int[] estadosFinales;
+        private final int[] procesados;
+        private final int[][] salidas;
+
+        Resultado(int[] estadosFinales, int[] procesados, int[][] salidas) {
+            this.estadosFinales = estadosFinales;
+            this.procesados = procesados;
+            this.salidas = salidas;
+        }
+
+        /**
+         * Obtiene el estado final de un flujo
+         * @param flujo Índice del flujo
+         * @return Id del estado final
+         */
+        public int getEstadoFinal(int flujo) {
+            return estadosFinales[flujo];
+        }
+
+        /**
+         * Obtiene cuántas entradas de un flujo se procesaron
+         * Si es menor que la longitud del flujo, la siguiente entrada no tenía transición definida
+         * @param flujo Índice del flujo
+         * @return Número de entradas procesadas
+         */
+        public int getProcesados(int flujo) {
+            return procesados[flujo];
+        }
+
+        /**
+         * Obtiene las salidas de un flujo; solo las primeras getProcesados(flujo) son válidas
+         * @param flujo Índice del flujo
+         * @return Ids de salida del flujo
+         */
+        public int[] getSalidas(int flujo) {
+            return salidas[flujo];
+        }
+
+        public int getCantidad() {
+            return estadosFinales.length;
+        }
+    }
+}
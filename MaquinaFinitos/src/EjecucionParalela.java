@@ -0,0 +1,173 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Ejecuta una FSM compilada sobre una secuencia larga usando varios núcleos
+ * La secuencia se divide en bloques y cada bloque se simula desde todos los estados a la vez,
+ * obteniendo un vector que asigna a cada estado inicial el estado final del bloque.
+ * Luego una pasada secuencial compone esos vectores para conocer el estado de entrada de
+ * cada bloque, y una segunda pasada paralela escribe las salidas.
+ * Conviene para máquinas con pocos estados; los estados que coinciden se fusionan durante
+ * la simulación, por lo que el costo real suele ser mucho menor que estados * longitud
+ */
+public class EjecucionParalela {
+    private static final int TAMANO_BLOQUE_MINIMO = 1 << 16;
+
+    private final FSMCompilada fsm;
+    private final int tamanoBloque;
+
+    /**
+     * Constructor con el tamaño de bloque por defecto
+     * @param fsm FSM compilada a ejecutar
+     */
+    public EjecucionParalela(FSMCompilada fsm) {
+        this(fsm, TAMANO_BLOQUE_MINIMO);
+    }
+
+    /**
+     * Constructor con tamaño de bloque configurable
+     * @param fsm FSM compilada a ejecutar
+     * @param tamanoBloque Número mínimo de entradas por bloque
+     */
+    public EjecucionParalela(FSMCompilada fsm, int tamanoBloque) {
+        if (tamanoBloque <= 0) {
+            throw new IllegalArgumentException("Tamaño de bloque no válido: " + tamanoBloque);
+        }
+        this.fsm = fsm;
+        this.tamanoBloque = tamanoBloque;
+    }
+
+    /**
+     * Procesa una secuencia de ids de entrada en paralelo sobre el ForkJoinPool común
+     * El resultado es el mismo que el de FSMCompilada.procesarLote, incluida la detención
+     * en la primera entrada sin transición definida
+     * @param estado Id del estado desde el cual empezar
+     * @param entradas Ids de las entradas
+     * @param salidas Arreglo donde escribir los ids de salida (al menos del tamaño de entradas)
+     * @return Estado final y número de entradas procesadas
+     * @throws IllegalArgumentException Si algún id de entrada no es válido
+     */
+    public ResultadoLote procesar(int estado, int[] entradas, int[] salidas) {
+        int longitud = entradas.length;
+        int paralelismo = Math.max(1, Runtime.getRuntime().availableProcessors());
+        // En long: con secuencias o bloques cercanos a Integer.MAX_VALUE las sumas desbordan int
+        int objetivo = paralelismo * 4;
+        int tamano = (int) Math.max(tamanoBloque, ((long) longitud + objetivo - 1) / objetivo);
+        int bloques = (int) (((long) longitud + tamano - 1) / tamano);
+        if (bloques <= 1) {
+            return fsm.procesarLote(estado, entradas, 0, longitud, salidas, 0);
+        }
+
+        // Primera pasada: el primer bloque se procesa directamente y los demás producen
+        // el vector de estado final para cada estado inicial
+        ResultadoLote[] resultados = new ResultadoLote[bloques];
+        int[][] vectores = new int[bloques][];
+        IntStream.range(0, bloques).parallel().forEach(b -> {
+            if (b == 0) {
+                resultados[0] = fsm.procesarLote(estado, entradas, 0, tamano, salidas, 0);
+            } else {
+                int desde = b * tamano;
+                vectores[b] = simularDesdeTodos(entradas, desde, desde + Math.min(tamano, longitud - desde));
+            }
+        });
+        if (resultados[0].getProcesados() < tamano) {
+            return resultados[0];
+        }
+
+        // Composición secuencial: estado con el que empieza cada bloque
+        int[] inicios = new int[bloques];
+        int actual = resultados[0].getEstadoFinal();
+        int bloquesValidos = bloques;
+        for (int b = 1; b < bloques; b++) {
+            inicios[b] = actual;
+            actual = vectores[b][actual];
+            if (actual == FSMCompilada.SIN_TRANSICION) {
+                bloquesValidos = b + 1;
+                break;
+            }
+        }
+
+        // Segunda pasada: salidas de cada bloque desde su estado de inicio conocido
+        IntStream.range(1, bloquesValidos).parallel().forEach(b -> {
+            int desde = b * tamano;
+            int hasta = desde + Math.min(tamano, longitud - desde);
+            resultados[b] = fsm.procesarLote(inicios[b], entradas, desde, hasta, salidas, desde);
+        });
+
+        ResultadoLote ultimo = resultados[bloquesValidos - 1];
+        int procesados = (bloquesValidos - 1) * tamano + ultimo.getProcesados();
+        return new ResultadoLote(ultimo.getEstadoFinal(), procesados);
+    }
+
+    /**
+     * Simula un bloque desde todos los estados a la vez
+     * Se mantiene solo el conjunto de estados distintos activos: cuando dos trayectorias
+     * llegan al mismo estado se fusionan y a partir de ahí se simulan una sola vez
+     * @param entradas Ids de las entradas
+     * @param desde Posición inicial del bloque
+     * @param hasta Posición final (exclusiva) del bloque
+     * @return Vector con el estado final para cada estado inicial (SIN_TRANSICION si se detiene)
+     */
+    private int[] simularDesdeTodos(int[] entradas, int desde, int hasta) {
+        int numEstados = fsm.getNumEstados();
+        int numEntradas = fsm.numEntradas;
+        int[] siguiente = fsm.siguiente;
+
+        // activos[k]: estado actual de la trayectoria k; trayectoria[s]: trayectoria del estado inicial s
+        int[] activos = new int[numEstados];
+        int[] trayectoria = new int[numEstados];
+        int[] reasignacion = new int[numEstados];
+        int[] marca = new int[numEstados];
+        int[] posicionMarca = new int[numEstados];
+        for (int s = 0; s < numEstados; s++) {
+            activos[s] = s;
+            trayectoria[s] = s;
+        }
+        int cantidad = numEstados;
+        int generacion = 0;
+
+        for (int i = desde; i < hasta && cantidad > 0; i++) {
+            int entrada = entradas[i];
+            if (entrada < 0 || entrada >= numEntradas) {
+                // La segunda pasada reporta el error si la ejecución llega hasta aquí
+                cantidad = 0;
+                Arrays.fill(trayectoria, -1);
+                break;
+            }
+
+            generacion++;
+            int nuevos = 0;
+            for (int k = 0; k < cantidad; k++) {
+                int destino = siguiente[activos[k] * numEntradas + entrada];
+                if (destino == FSMCompilada.SIN_TRANSICION) {
+                    reasignacion[k] = -1;
+                } else if (marca[destino] == generacion) {
+                    reasignacion[k] = posicionMarca[destino];
+                } else {
+                    marca[destino] = generacion;
+                    posicionMarca[destino] = nuevos;
+                    reasignacion[k] = nuevos;
+                    activos[nuevos++] = destino;
+                }
+            }
+
+            if (nuevos < cantidad) {
+                for (int s = 0; s < numEstados; s++) {
+                    if (trayectoria[s] >= 0) {
+                        trayectoria[s] = reasignacion[trayectoria[s]];
+                    }
+                }
+            }
+            cantidad = nuevos;
+        }
+
+        int[] vector = new int[numEstados];
+        Arrays.fill(vector, FSMCompilada.SIN_TRANSICION);
+        for (int s = 0; s < numEstados; s++) {
+            if (trayectoria[s] >= 0) {
+                vector[s] = activos[trayectoria[s]];
+            }
+        }
+        return vector;
+    }
+}
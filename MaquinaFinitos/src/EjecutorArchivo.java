@@ -0,0 +1,312 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Ejecuta una FSM compilada sobre un archivo de símbolos de cualquier tamaño
+ * El archivo de entrada se mapea en memoria por ventanas y las salidas se escriben
+ * a través de un buffer directo, por lo que el uso de memoria es constante.
+ * La FSM puede estar en el heap (FSMCompilada) o en un archivo mapeado (FSMMapeada); en el
+ * segundo caso las tablas se leen del archivo y solo se decodifican las entradas y salidas
+ */
+public class EjecutorArchivo {
+    private static final long VENTANA_POR_DEFECTO = 64L * 1024 * 1024;
+    private static final int TAMANO_BUFFER_SALIDA = 1024 * 1024;
+
+    // Tablas en el heap, o null si se leen del archivo mapeado
+    private final int[] siguienteHeap;
+    private final int[] salidaHeap;
+    private final IntBuffer siguiente;
+    private final IntBuffer salida;
+    private final int numEntradas;
+    private final int numEstados;
+    private final IntFunction<String> nombreEstado;
+    private final IntFunction<String> nombreEntrada;
+    private final long tamanoVentana;
+
+    // Tabla hash de las entradas en bytes UTF-8, para buscar símbolos sin crear Strings
+    private final byte[][] entradasBytes;
+    private final int[] hashEntradas;
+    private final int[] ranuras;
+    private final int mascara;
+
+    // Salidas precodificadas en UTF-8
+    private final byte[][] salidasBytes;
+
+    /**
+     * Constructor del ejecutor
+     * @param fsm FSM compilada a ejecutar
+     */
+    public EjecutorArchivo(FSMCompilada fsm) {
+        this(fsm, VENTANA_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor del ejecutor con tamaño de ventana configurable
+     * @param fsm FSM compilada a ejecutar
+     * @param tamanoVentana Bytes del archivo de entrada mapeados a la vez
+     */
+    public EjecutorArchivo(FSMCompilada fsm, long tamanoVentana) {
+        this(fsm.siguiente, fsm.salida, null, null, fsm.getNumEstados(), fsm::getEstado,
+                fsm.getNumEntradas(), fsm::getEntrada, fsm.getNumSalidas(), fsm::getSalida, tamanoVentana);
+    }
+
+    /**
+     * Constructor del ejecutor sobre una FSM mapeada, sin copiar sus tablas al heap
+     * @param fsm FSM mapeada a ejecutar
+     */
+    public EjecutorArchivo(FSMMapeada fsm) {
+        this(fsm, VENTANA_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor del ejecutor sobre una FSM mapeada con tamaño de ventana configurable
+     * @param fsm FSM mapeada a ejecutar
+     * @param tamanoVentana Bytes del archivo de entrada mapeados a la vez
+     */
+    public EjecutorArchivo(FSMMapeada fsm, long tamanoVentana) {
+        this(null, null, fsm.siguiente, fsm.salida, fsm.getNumEstados(), fsm::getEstado,
+                fsm.getNumEntradas(), fsm::getEntrada, fsm.getNumSalidas(), fsm::getSalida, tamanoVentana);
+    }
+
+    private EjecutorArchivo(int[] siguienteHeap, int[] salidaHeap, IntBuffer siguiente, IntBuffer salida,
+                            int numEstados, IntFunction<String> nombreEstado,
+                            int numEntradas, IntFunction<String> nombreEntrada,
+                            int numSalidas, IntFunction<String> nombreSalida, long tamanoVentana) {
+        if (tamanoVentana <= 0 || tamanoVentana > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Tamaño de ventana no válido: " + tamanoVentana);
+        }
+        this.siguienteHeap = siguienteHeap;
+        this.salidaHeap = salidaHeap;
+        this.siguiente = siguiente;
+        this.salida = salida;
+        this.numEstados = numEstados;
+        this.nombreEstado = nombreEstado;
+        this.numEntradas = numEntradas;
+        this.nombreEntrada = nombreEntrada;
+        this.tamanoVentana = tamanoVentana;
+
+        entradasBytes = new byte[numEntradas][];
+        hashEntradas = new int[numEntradas];
+        int capacidad = Integer.highestOneBit(Math.max(2, numEntradas * 2 - 1)) << 1;
+        ranuras = new int[capacidad];
+        mascara = capacidad - 1;
+        Arrays.fill(ranuras, -1);
+
+        for (int id = 0; id < numEntradas; id++) {
+            byte[] bytes = nombreEntrada.apply(id).getBytes(StandardCharsets.UTF_8);
+            entradasBytes[id] = bytes;
+            int hash = 0;
+            for (byte b : bytes) {
+                hash = 31 * hash + b;
+            }
+            hashEntradas[id] = hash;
+            int ranura = mezclar(hash) & mascara;
+            while (ranuras[ranura] != -1) {
+                ranura = (ranura + 1) & mascara;
+            }
+            ranuras[ranura] = id;
+        }
+
+        salidasBytes = new byte[numSalidas][];
+        for (int id = 0; id < salidasBytes.length; id++) {
+            salidasBytes[id] = nombreSalida.apply(id).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Procesa un archivo de símbolos separados por espacios, comas o saltos de línea
+     * Las salidas se escriben concatenadas en el archivo de salida
+     * @param entrada Archivo de entrada
+     * @param salida Archivo de salida (se crea o sobrescribe)
+     * @param estadoInicial Id del estado desde el cual empezar
+     * @return Resultado de la ejecución
+     * @throws IOException Si ocurre un error de lectura o escritura
+     * @throws IllegalArgumentException Si el estado no es válido o el archivo contiene un símbolo
+     *                                  que no es entrada de la FSM
+     * @throws IllegalStateException Si no existe transición para algún símbolo
+     */
+    public Resultado ejecutar(Path entrada, Path salida, int estadoInicial) throws IOException {
+        if (estadoInicial < 0 || estadoInicial >= numEstados) {
+            throw new IllegalArgumentException("Estado no válido: " + estadoInicial);
+        }
+        try (FileChannel canalEntrada = FileChannel.open(entrada, StandardOpenOption.READ);
+             FileChannel canalSalida = FileChannel.open(salida, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANO_BUFFER_SALIDA);
+            int[] siguienteHeap = this.siguienteHeap;
+            int[] salidaHeap = this.salidaHeap;
+            IntBuffer siguiente = this.siguiente;
+            IntBuffer tablaSalida = this.salida;
+            int numEntradas = this.numEntradas;
+            long bytesEscritos = 0;
+
+            long tamanoArchivo = canalEntrada.size();
+            long posicion = 0;
+            long procesados = 0;
+            int estado = estadoInicial;
+
+            while (posicion < tamanoArchivo) {
+                int longitud = (int) Math.min(tamanoVentana, tamanoArchivo - posicion);
+                boolean ultima = posicion + longitud == tamanoArchivo;
+                MappedByteBuffer ventana = canalEntrada.map(FileChannel.MapMode.READ_ONLY, posicion, longitud);
+
+                int inicioToken = -1;
+                int hash = 0;
+                // Se recorre un byte más para cerrar el último símbolo de la última ventana
+                int fin = ultima ? longitud + 1 : longitud;
+                for (int i = 0; i < fin; i++) {
+                    byte b = i < longitud ? ventana.get(i) : (byte) ' ';
+                    if (!esSeparador(b)) {
+                        if (inicioToken < 0) {
+                            inicioToken = i;
+                            hash = 0;
+                        }
+                        hash = 31 * hash + b;
+                        continue;
+                    }
+                    if (inicioToken < 0) {
+                        continue;
+                    }
+
+                    int id = buscar(ventana, inicioToken, i - inicioToken, hash);
+                    if (id < 0) {
+                        throw new IllegalArgumentException("Entrada no válida en el símbolo " + procesados + ": "
+                                + decodificar(ventana, inicioToken, i - inicioToken));
+                    }
+                    int celda = estado * numEntradas + id;
+                    int destino = siguienteHeap != null ? siguienteHeap[celda] : siguiente.get(celda);
+                    if (destino == FSMCompilada.SIN_TRANSICION) {
+                        throw new IllegalStateException("No hay transición definida desde " + nombreEstado.apply(estado)
+                                + " con entrada " + nombreEntrada.apply(id) + " (símbolo " + procesados + ")");
+                    }
+
+                    byte[] bytesSalida = salidasBytes[salidaHeap != null ? salidaHeap[celda] : tablaSalida.get(celda)];
+                    if (buffer.remaining() < bytesSalida.length) {
+                        bytesEscritos += vaciar(buffer, canalSalida);
+                    }
+                    if (bytesSalida.length > buffer.capacity()) {
+                        // Una salida mayor que el buffer se escribe directamente
+                        bytesEscritos += escribir(ByteBuffer.wrap(bytesSalida), canalSalida);
+                    } else {
+                        buffer.put(bytesSalida);
+                    }
+                    estado = destino;
+                    procesados++;
+                    inicioToken = -1;
+                }
+
+                if (inicioToken == 0 && !ultima) {
+                    throw new IllegalArgumentException("Símbolo más largo que la ventana de lectura en el byte " + posicion);
+                }
+                // Un símbolo cortado por el final de la ventana se vuelve a leer en la siguiente
+                posicion += inicioToken > 0 ? inicioToken : longitud;
+            }
+
+            bytesEscritos += vaciar(buffer, canalSalida);
+            return new Resultado(estado, procesados, bytesEscritos);
+        }
+    }
+
+    /**
+     * Busca el id de la entrada que ocupa un rango de la ventana
+     * @return Id de la entrada o -1 si no existe
+     */
+    private int buscar(ByteBuffer ventana, int inicio, int longitud, int hash) {
+        int ranura = mezclar(hash) & mascara;
+        while (true) {
+            int id = ranuras[ranura];
+            if (id < 0) {
+                return -1;
+            }
+            if (hashEntradas[id] == hash && iguales(entradasBytes[id], ventana, inicio, longitud)) {
+                return id;
+            }
+            ranura = (ranura + 1) & mascara;
+        }
+    }
+
+    private static boolean iguales(byte[] simbolo, ByteBuffer ventana, int inicio, int longitud) {
+        if (simbolo.length != longitud) {
+            return false;
+        }
+        for (int k = 0; k < longitud; k++) {
+            if (simbolo[k] != ventana.get(inicio + k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decodificar(ByteBuffer ventana, int inicio, int longitud) {
+        byte[] bytes = new byte[longitud];
+        ventana.get(inicio, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean esSeparador(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == ',';
+    }
+
+    private static int mezclar(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Escribe el contenido del buffer en el canal y lo deja listo para reutilizarse
+     * @return Bytes escritos
+     */
+    private static int vaciar(ByteBuffer buffer, FileChannel canal) throws IOException {
+        buffer.flip();
+        int escritos = escribir(buffer, canal);
+        buffer.clear();
+        return escritos;
+    }
+
+    /**
+     * Escribe en el canal todos los bytes restantes de un buffer
+     * @return Bytes escritos
+     */
+    private static int escribir(ByteBuffer buffer, FileChannel canal) throws IOException {
+        int escritos = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        return escritos;
+    }
+
+    /**
+     * Resultado de ejecutar la FSM sobre un archivo
+     */
+    public static class Resultado {
+        private final int estadoFinal;
+        private final long procesados;
+        private final long bytesEscritos;
+
+        Resultado(int estadoFinal, long procesados, long bytesEscritos) {
+            this.estadoFinal = estadoFinal;
+            this.procesados = procesados;
+            this.bytesEscritos = bytesEscritos;
+        }
+
+        public int getEstadoFinal() {
+            return estadoFinal;
+        }
+
+        public long getProcesados() {
+            return procesados;
+        }
+
+        public long getBytesEscritos() {
+            return bytesEscritos;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+import java.util.Arrays;
+
+/**
+ * Verificación de equivalencia entre dos FSM de Mealy con el algoritmo de Hopcroft y Karp
+ * Se recorren en anchura los pares (estado de A, estado de B) a partir de los estados
+ * iniciales, uniendo los estados de cada par en una estructura de conjuntos disjuntos; un par
+ * cuyos estados ya están en el mismo conjunto no se vuelve a explorar, así que se procesan a
+ * lo más nA + nB - 1 pares. Al primer par que produce salidas distintas se detiene y
+ * reconstruye la secuencia de entradas que lo alcanza, que es una de las más cortas que
+ * distinguen a las máquinas
+ * Como en MinimizadorFSM, una transición no definida solo es equivalente a otra no definida
+ */
+public class EquivalenciaFSM {
+
+    private EquivalenciaFSM() {
+    }
+
+    /**
+     * Compara dos FSM a partir de sus estados iniciales
+     * Las entradas y salidas se relacionan por nombre
+     * @param a Primera FSM
+     * @param b Segunda FSM
+     * @return Resultado con la secuencia que las distingue, si existe
+     * @throws IllegalArgumentException Si las FSM no tienen las mismas entradas o no tienen estados
+     */
+    public static Resultado comparar(FSM a, FSM b) {
+        return comparar(a.compilar(), b.compilar());
+    }
+
+    /**
+     * Compara dos FSM compiladas a partir de sus estados iniciales
+     * @param a Primera FSM compilada
+     * @param b Segunda FSM compilada
+     * @return Resultado con la secuencia que las distingue, si existe
+     * @throws IllegalArgumentException Si las FSM no tienen las mismas entradas o no tienen estados
+     */
+    public static Resultado comparar(FSMCompilada a, FSMCompilada b) {
+        int m = a.getNumEntradas();
+        if (b.getNumEntradas() != m) {
+            throw new IllegalArgumentException("Las FSM no tienen las mismas entradas");
+        }
+        // Entrada de B correspondiente a cada entrada de A
+        int[] entradaB = new int[m];
+        for (int x = 0; x < m; x++) {
+            entradaB[x] = b.idEntrada(a.getEntrada(x));
+            if (entradaB[x] < 0) {
+                throw new IllegalArgumentException("Entrada de la primera FSM que no existe en la segunda: " + a.getEntrada(x));
+            }
+        }
+        if (a.getEstadoInicial() < 0 || b.getEstadoInicial() < 0) {
+            throw new IllegalArgumentException("La FSM no tiene estados definidos");
+        }
+        // Salida de A correspondiente a cada salida de B; las que no existen en A no coinciden con ninguna
+        int[] salidaB = new int[b.getNumSalidas()];
+        for (int y = 0; y < salidaB.length; y++) {
+            int id = a.idSalida(b.getSalida(y));
+            salidaB[y] = id < 0 ? Integer.MIN_VALUE : id;
+        }
+
+        int nA = a.getNumEstados();
+        int mB = b.getNumEntradas();
+        int[] siguienteA = a.siguiente;
+        int[] salidaA = a.salida;
+        int[] siguienteB = b.siguiente;
+        int[] salidasB = b.salida;
+        Conjuntos conjuntos = new Conjuntos(nA + b.getNumEstados());
+
+        // Cola de pares con el par desde el que se llegó y la entrada usada
+        int capacidad = nA + b.getNumEstados();
+        int[] colaA = new int[capacidad];
+        int[] colaB = new int[capacidad];
+        int[] anterior = new int[capacidad];
+        int[] entrada = new int[capacidad];
+        int fin = 0;
+        colaA[fin] = a.getEstadoInicial();
+        colaB[fin] = b.getEstadoInicial();
+        anterior[fin] = -1;
+        fin++;
+        conjuntos.unir(a.getEstadoInicial(), nA + b.getEstadoInicial());
+
+        for (int inicio = 0; inicio < fin; inicio++) {
+            int baseA = colaA[inicio] * m;
+            int baseB = colaB[inicio] * mB;
+            for (int x = 0; x < m; x++) {
+                int destinoA = siguienteA[baseA + x];
+                int destinoB = siguienteB[baseB + entradaB[x]];
+                if (destinoA == FSMCompilada.SIN_TRANSICION || destinoB == FSMCompilada.SIN_TRANSICION) {
+                    if (destinoA != destinoB) {
+                        return diferencia(a, b, colaA, colaB, anterior, entrada, inicio, x);
+                    }
+                    continue;
+                }
+                if (salidaA[baseA + x] != salidaB[salidasB[baseB + entradaB[x]]]) {
+                    return diferencia(a, b, colaA, colaB, anterior, entrada, inicio, x);
+                }
+                if (conjuntos.unir(destinoA, nA + destinoB)) {
+                    colaA[fin] = destinoA;
+                    colaB[fin] = destinoB;
+                    anterior[fin] = inicio;
+                    entrada[fin] = x;
+                    fin++;
+                }
+            }
+        }
+        return new Resultado(null, fin);
+    }
+
+    /**
+     * Reconstruye la secuencia de entradas que lleva al par indicado y la termina con la
+     * entrada que distingue a las máquinas
+     */
+    private static Resultado diferencia(FSMCompilada a, FSMCompilada b, int[] colaA, int[] colaB,
+                                        int[] anterior, int[] entrada, int par, int ultima) {
+        int longitud = 1;
+        for (int p = par; anterior[p] >= 0; p = anterior[p]) {
+            longitud++;
+        }
+        String[] secuencia = new String[longitud];
+        secuencia[longitud - 1] = a.getEntrada(ultima);
+        int i = longitud - 2;
+        for (int p = par; anterior[p] >= 0; p = anterior[p]) {
+            secuencia[i--] = a.getEntrada(entrada[p]);
+        }
+
+        Resultado resultado = new Resultado(secuencia, par + 1);
+        resultado.salidaA = salida(a, colaA[par], a.idEntrada(secuencia[longitud - 1]));
+        resultado.salidaB = salida(b, colaB[par], b.idEntrada(secuencia[longitud - 1]));
+        return resultado;
+    }
+
+    private static String salida(FSMCompilada fsm, int estado, int entrada) {
+        return fsm.siguiente(estado, entrada) == FSMCompilada.SIN_TRANSICION
+                ? null : fsm.getSalida(fsm.salida(estado, entrada));
+    }
+
+    /**
+     * Conjuntos disjuntos con unión por tamaño y compresión de caminos a la mitad
+     */
+    private static class Conjuntos {
+        private final int[] padre;
+        private final int[] tamano;
+
+        Conjuntos(int elementos) {
+            padre = new int[elementos];
+            tamano = new int[elementos];
+            for (int i = 0; i < elementos; i++) {
+                padre[i] = i;
+            }
+            Arrays.fill(tamano, 1);
+        }
+
+        int raiz(int x) {
+            while (padre[x] != x) {
+                padre[x] = padre[padre[x]];
+                x = padre[x];
+            }
+            return x;
+        }
+
+        /**
+         * Une los conjuntos de dos elementos
+         * @return true si estaban en conjuntos distintos
+         */
+        boolean unir(int x, int y) {
+            x = raiz(x);
+            y = raiz(y);
+            if (x == y) {
+                return false;
+            }
+            if (tamano[x] < tamano[y]) {
+                int t = x;
+                x = y;
+                y = t;
+            }
+            padre[y] = x;
+            tamano[x] += tamano[y];
+            return true;
+        }
+    }
+
+    /**
+     * Resultado de la comparación
+     */
+    public static class Resultado {
+        private final String[] secuencia;
+        private final int paresExplorados;
+        private String salidaA;
+        private String salidaB;
+
+        Resultado(String[] secuencia, int paresExplorados) {
+            this.secuencia = secuencia;
+            this.paresExplorados = paresExplorados;
+        }
+
+        public boolean esEquivalente() {
+            return secuencia == null;
+        }
+
+        /**
+         * Obtiene una secuencia de entradas de longitud mínima con la que las máquinas
+         * producen salidas distintas en el último paso
+         * @return Nombres de las entradas o null si las máquinas son equivalentes
+         */
+        public String[] getSecuencia() {
+            return secuencia == null ? null : secuencia.clone();
+        }
+
+        /**
+         * Obtiene la salida de la primera FSM en el último paso de la secuencia
+         * @return Nombre de la salida, o null si no hay transición definida o las máquinas son equivalentes
+         */
+        public String getSalidaA() {
+            return salidaA;
+        }
+
+        /**
+         * Obtiene la salida de la segunda FSM en el último paso de la secuencia
+         * @return Nombre de la salida, o null si no hay transición definida o las máquinas son equivalentes
+         */
+        public String getSalidaB() {
+            return salidaB;
+        }
+
+        public int getParesExplorados() {
+            return paresExplorados;
+        }
+
+        @Override
+        public String toString() {
+            if (esEquivalente()) {
+                return "Las FSM son equivalentes (" + paresExplorados + " pares explorados)";
+            }
+            return "Las FSM difieren con la secuencia " + Arrays.toString(secuencia) + ": "
+                    + (salidaA == null ? "sin transición" : salidaA) + " vs "
+                    + (salidaB == null ? "sin transición" : salidaB);
+        }
+    }
+}
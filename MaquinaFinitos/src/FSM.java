@@ -1,3 +1,4 @@
+import java.nio.IntBuffer;
 import java.util.*;
 
 /**
@@ -8,9 +9,23 @@ public class FSM {
     private String[] entradas;
     private String[] salidas;
     private String[] estados;
+    private TablaSimbolos tablaEntradas;
+    private TablaSimbolos tablaSalidas;
+    private TablaSimbolos tablaEstados;
     private Map<String, Map<String, Transicion>> tablaTransiciones;
     private String estadoActual;
     private String estadoInicial;
+    private FSMCompilada compilada;
+    private int estadoActualId;
+    private PerfilFSM perfil;
+    private TrazaFSM traza;
+    private long version;
+
+    // Estadísticas mantenidas al agregar transiciones, indexadas por id de estado
+    private int numTransiciones;
+    private int estadosConTransiciones;
+    private int[] gradoSalida;
+    private int[] gradoEntrada;
 
     /**
      * Constructor de la FSM
@@ -22,7 +37,12 @@ public class FSM {
         this.entradas = entradas.clone();
         this.salidas = salidas.clone();
         this.estados = estados.clone();
+        this.tablaEntradas = TablaSimbolos.desde(entradas);
+        this.tablaSalidas = TablaSimbolos.desde(salidas);
+        this.tablaEstados = TablaSimbolos.desde(estados);
         this.tablaTransiciones = new HashMap<>();
+        this.gradoSalida = new int[tablaEstados.tamano()];
+        this.gradoEntrada = new int[tablaEstados.tamano()];
 
         // Inicializar tabla de transiciones
         for (String estado : estados) {
@@ -45,20 +65,129 @@ public class FSM {
      * @throws IllegalArgumentException Si algún parámetro no es válido
      */
     public void agregarTransicion(String estadoOrigen, String entrada, String estadoDestino, String salida) {
-        if (!Arrays.asList(estados).contains(estadoOrigen)) {
-            throw new IllegalArgumentException("Estado origen no válido: " + estadoOrigen);
+        String error = validarTransicion(estadoOrigen, entrada, estadoDestino, salida);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
         }
-        if (!Arrays.asList(estados).contains(estadoDestino)) {
-            throw new IllegalArgumentException("Estado destino no válido: " + estadoDestino);
+
+        ponerTransicion(estadoOrigen, entrada, estadoDestino, salida);
+    }
+
+    /**
+     * Agrega una transición a partir de los ids de sus símbolos, ya validados
+     * @param estadoOrigen Id del estado origen
+     * @param entrada Id de la entrada
+     * @param estadoDestino Id del estado destino
+     * @param salida Id de la salida
+     */
+    void agregarTransicion(int estadoOrigen, int entrada, int estadoDestino, int salida) {
+        ponerTransicion(tablaEstados.nombre(estadoOrigen), tablaEntradas.nombre(entrada),
+                tablaEstados.nombre(estadoDestino), tablaSalidas.nombre(salida));
+    }
+
+    /**
+     * Agrega un conjunto de transiciones validándolas todas en una sola pasada
+     * Si alguna no es válida no se agrega ninguna
+     * @param transiciones Transiciones con el formato {estadoOrigen, entrada, estadoDestino, salida}
+     * @throws IllegalArgumentException Si alguna transición no es válida
+     */
+    public void agregarTransiciones(String[][] transiciones) {
+        for (int i = 0; i < transiciones.length; i++) {
+            String error = validarTransicion(transiciones[i]);
+            if (error != null) {
+                throw new IllegalArgumentException("Transición " + (i + 1) + ": " + error);
+            }
         }
-        if (!Arrays.asList(entradas).contains(entrada)) {
-            throw new IllegalArgumentException("Entrada no válida: " + entrada);
+
+        for (String[] transicion : transiciones) {
+            ponerTransicion(transicion[0], transicion[1], transicion[2], transicion[3]);
         }
-        if (!Arrays.asList(salidas).contains(salida)) {
-            throw new IllegalArgumentException("Salida no válida: " + salida);
+    }
+
+    /**
+     * Agrega las transiciones de un iterador validando cada una al leerla
+     * Las transiciones anteriores a una no válida quedan agregadas
+     * @param transiciones Iterador de transiciones {estadoOrigen, entrada, estadoDestino, salida}
+     * @return Número de transiciones agregadas
+     * @throws IllegalArgumentException Si alguna transición no es válida
+     */
+    public int agregarTransiciones(Iterator<String[]> transiciones) {
+        int agregadas = 0;
+        while (transiciones.hasNext()) {
+            String[] transicion = transiciones.next();
+            String error = validarTransicion(transicion);
+            if (error != null) {
+                throw new IllegalArgumentException("Transición " + (agregadas + 1) + ": " + error);
+            }
+            ponerTransicion(transicion[0], transicion[1], transicion[2], transicion[3]);
+            agregadas++;
         }
+        return agregadas;
+    }
 
-        tablaTransiciones.get(estadoOrigen).put(entrada, new Transicion(estadoDestino, salida));
+    /**
+     * Valida una transición expresada como arreglo
+     * @param transicion Arreglo {estadoOrigen, entrada, estadoDestino, salida}
+     * @return Mensaje de error o null si es válida
+     */
+    private String validarTransicion(String[] transicion) {
+        if (transicion == null || transicion.length != 4) {
+            return "Formato incorrecto, se esperan 4 elementos";
+        }
+        return validarTransicion(transicion[0], transicion[1], transicion[2], transicion[3]);
+    }
+
+    /**
+     * Valida los símbolos de una transición contra los alfabetos
+     * @return Mensaje de error o null si es válida
+     */
+    private String validarTransicion(String estadoOrigen, String entrada, String estadoDestino, String salida) {
+        if (tablaEstados.id(estadoOrigen) < 0) {
+            return "Estado origen no válido: " + estadoOrigen;
+        }
+        if (tablaEstados.id(estadoDestino) < 0) {
+            return "Estado destino no válido: " + estadoDestino;
+        }
+        if (tablaEntradas.id(entrada) < 0) {
+            return "Entrada no válida: " + entrada;
+        }
+        if (tablaSalidas.id(salida) < 0) {
+            return "Salida no válida: " + salida;
+        }
+        return null;
+    }
+
+    /**
+     * Guarda una transición ya validada y actualiza las estadísticas
+     * Si reemplaza una transición existente, el destino anterior pierde una transición de entrada
+     */
+    private void ponerTransicion(String estadoOrigen, String entrada, String estadoDestino, String salida) {
+        Transicion anterior = tablaTransiciones.get(estadoOrigen).put(entrada, new Transicion(estadoDestino, salida));
+        if (anterior == null) {
+            int origen = tablaEstados.id(estadoOrigen);
+            numTransiciones++;
+            if (gradoSalida[origen]++ == 0) {
+                estadosConTransiciones++;
+            }
+        } else {
+            gradoEntrada[tablaEstados.id(anterior.getEstadoDestino())]--;
+        }
+        gradoEntrada[tablaEstados.id(estadoDestino)]++;
+        compilada = null;
+        version++;
+    }
+
+    /**
+     * Compila la FSM en tablas planas de enteros
+     * La versión compilada se conserva hasta la siguiente modificación de la FSM
+     * @return FSM compilada
+     */
+    public FSMCompilada compilar() {
+        if (compilada == null) {
+            compilada = FSMCompilada.desde(this);
+            estadoActualId = estadoActual == null ? FSMCompilada.SIN_TRANSICION : compilada.idEstado(estadoActual);
+        }
+        return compilada;
     }
 
     /**
@@ -69,20 +198,58 @@ public class FSM {
      * @throws IllegalStateException Si no existe transición para la entrada
      */
     public String procesar(String entrada) {
-        if (!Arrays.asList(entradas).contains(entrada)) {
+        FSMCompilada tabla = compilar();
+        int entradaId = tabla.idEntrada(entrada);
+        if (entradaId < 0) {
             throw new IllegalArgumentException("Entrada no válida: " + entrada);
         }
 
-        Map<String, Transicion> transicionesEstadoActual = tablaTransiciones.get(estadoActual);
+        return tabla.getSalida(procesar(entradaId));
+    }
 
-        if (!transicionesEstadoActual.containsKey(entrada)) {
-            throw new IllegalStateException("No hay transición definida desde " + estadoActual + " con entrada " + entrada);
+    /**
+     * Procesa una entrada identificada por su id en la FSM compilada
+     * @param entrada Id de la entrada a procesar
+     * @return Id de la salida generada por la transición
+     * @throws IllegalArgumentException Si el id de entrada no es válido
+     * @throws IllegalStateException Si no existe transición para la entrada
+     */
+    public int procesar(int entrada) {
+        FSMCompilada tabla = compilar();
+        if (perfil != null || traza != null) {
+            return procesarInstrumentado(tabla, entrada);
         }
+        int celda = tabla.celdaValida(estadoActualId, entrada);
+        actualizarEstado(tabla, tabla.siguiente[celda]);
+        return tabla.salida[celda];
+    }
 
-        Transicion transicion = transicionesEstadoActual.get(entrada);
-        estadoActual = transicion.getEstadoDestino();
-
-        return transicion.getSalida();
+    /**
+     * Procesa una entrada registrando el paso en el perfil y en la traza activos
+     */
+    private int procesarInstrumentado(FSMCompilada tabla, int entrada) {
+        int celda;
+        try {
+            celda = tabla.celdaValida(estadoActualId, entrada);
+        } catch (IllegalStateException e) {
+            if (estadoActualId >= 0) {
+                if (perfil != null) {
+                    perfil.registrarError(estadoActualId);
+                }
+                if (traza != null) {
+                    traza.registrar(estadoActualId, entrada, FSMCompilada.SIN_TRANSICION, FSMCompilada.SIN_TRANSICION);
+                }
+            }
+            throw e;
+        }
+        if (perfil != null) {
+            perfil.registrarCelda(celda);
+        }
+        if (traza != null) {
+            traza.registrar(estadoActualId, entrada, tabla.salida[celda], tabla.siguiente[celda]);
+        }
+        actualizarEstado(tabla, tabla.siguiente[celda]);
+        return tabla.salida[celda];
     }
 
     /**
@@ -100,11 +267,201 @@ public class FSM {
         return salidas;
     }
 
+    /**
+     * Procesa un lote de ids de entrada sin crear objetos por símbolo
+     * El procesamiento se detiene en la primera entrada sin transición definida
+     * @param entradas Ids de las entradas a procesar
+     * @param salidas Arreglo donde escribir los ids de salida (al menos del tamaño de entradas)
+     * @return Estado final y número de entradas procesadas
+     * @throws IllegalArgumentException Si algún id de entrada no es válido
+     */
+    public ResultadoLote procesarLote(int[] entradas, int[] salidas) {
+        FSMCompilada tabla = compilarConEstado();
+        ResultadoLote resultado = tabla.procesarLote(estadoActualId, entradas, 0, entradas.length, salidas, 0);
+        if (perfil != null) {
+            perfil.registrarLote(tabla, estadoActualId, entradas, 0, entradas.length, resultado);
+        }
+        if (traza != null) {
+            traza.registrarLote(tabla, estadoActualId, entradas, 0, entradas.length, resultado);
+        }
+        actualizarEstado(tabla, resultado.getEstadoFinal());
+        return resultado;
+    }
+
+    /**
+     * Procesa un lote de ids de entrada agregando las salidas a un StringBuilder reutilizable
+     * Las salidas se concatenan sin separador, así que el texto solo puede volver a dividirse
+     * si cada salida es de un carácter; para salidas más largas conviene la versión con separador
+     * El procesamiento se detiene en la primera entrada sin transición definida
+     * @param entradas Ids de las entradas a procesar
+     * @param salidas StringBuilder al que agregar las salidas
+     * @return Estado final y número de entradas procesadas
+     * @throws IllegalArgumentException Si algún id de entrada no es válido
+     */
+    public ResultadoLote procesarLote(int[] entradas, StringBuilder salidas) {
+        return procesarLote(entradas, salidas, "");
+    }
+
+    /**
+     * Procesa un lote de ids de entrada agregando cada salida seguida de un separador
+     * El procesamiento se detiene en la primera entrada sin transición definida
+     * @param entradas Ids de las entradas a procesar
+     * @param salidas StringBuilder al que agregar las salidas
+     * @param separador Texto agregado después de cada salida ("" para concatenarlas)
+     * @return Estado final y número de entradas procesadas
+     * @throws IllegalArgumentException Si algún id de entrada no es válido
+     */
+    public ResultadoLote procesarLote(int[] entradas, StringBuilder salidas, CharSequence separador) {
+        FSMCompilada tabla = compilarConEstado();
+        ResultadoLote resultado = tabla.procesarLote(estadoActualId, entradas, 0, entradas.length, salidas, separador);
+        if (perfil != null) {
+            perfil.registrarLote(tabla, estadoActualId, entradas, 0, entradas.length, resultado);
+        }
+        if (traza != null) {
+            traza.registrarLote(tabla, estadoActualId, entradas, 0, entradas.length, resultado);
+        }
+        actualizarEstado(tabla, resultado.getEstadoFinal());
+        return resultado;
+    }
+
+    /**
+     * Procesa las entradas restantes de un IntBuffer escribiendo los ids de salida en otro
+     * Se procesan como máximo tantas entradas como espacio quede en salidas;
+     * las posiciones de ambos buffers avanzan según lo procesado
+     * @param entradas Buffer con los ids de las entradas
+     * @param salidas Buffer donde escribir los ids de salida
+     * @return Estado final y número de entradas procesadas
+     * @throws IllegalArgumentException Si algún id de entrada no es válido
+     */
+    public ResultadoLote procesarLote(IntBuffer entradas, IntBuffer salidas) {
+        FSMCompilada tabla = compilarConEstado();
+        int inicio = entradas.position();
+        int limite = Math.min(entradas.remaining(), salidas.remaining());
+        ResultadoLote resultado = tabla.procesarLote(estadoActualId, entradas, salidas);
+        if (perfil != null || traza != null) {
+            // Los registros recorren un arreglo: se copian las entradas procesadas y, si el lote
+            // se detuvo por una transición no definida, la entrada que lo detuvo
+            int registradas = resultado.getProcesados() + (resultado.getProcesados() < limite ? 1 : 0);
+            int[] copia = new int[registradas];
+            entradas.get(inicio, copia);
+            if (perfil != null) {
+                perfil.registrarLote(tabla, estadoActualId, copia, 0, registradas, resultado);
+            }
+            if (traza != null) {
+                traza.registrarLote(tabla, estadoActualId, copia, 0, registradas, resultado);
+            }
+        }
+        actualizarEstado(tabla, resultado.getEstadoFinal());
+        return resultado;
+    }
+
+    /**
+     * Compila la FSM verificando que tenga un estado actual
+     * @return FSM compilada
+     */
+    private FSMCompilada compilarConEstado() {
+        FSMCompilada tabla = compilar();
+        if (estadoActualId < 0) {
+            throw new IllegalStateException("La FSM no tiene estados definidos");
+        }
+        return tabla;
+    }
+
+    /**
+     * Actualiza el estado actual a partir de su id compilado
+     * @param tabla FSM compilada vigente
+     * @param estado Id del nuevo estado actual
+     */
+    private void actualizarEstado(FSMCompilada tabla, int estado) {
+        estadoActualId = estado;
+        estadoActual = tabla.getEstado(estado);
+    }
+
+    /**
+     * Activa el conteo de transiciones usadas, visitas a estados y transiciones no definidas
+     * Con el perfil desactivado el procesamiento solo paga una comparación con null
+     * @return Perfil nuevo (en cero) donde se registra la ejecución
+     */
+    public PerfilFSM activarPerfil() {
+        perfil = new PerfilFSM(tablaEstados.tamano(), tablaEntradas.tamano());
+        return perfil;
+    }
+
+    /**
+     * Desactiva el perfil de ejecución y descarta sus contadores
+     */
+    public void desactivarPerfil() {
+        perfil = null;
+    }
+
+    /**
+     * Obtiene el perfil de ejecución
+     * @return Perfil activo o null si está desactivado
+     */
+    public PerfilFSM getPerfil() {
+        return perfil;
+    }
+
+    /**
+     * Activa el registro de las últimas transiciones ejecutadas, incluidas las no definidas
+     * @param capacidad Número de transiciones que se conservan
+     * @return Traza nueva (vacía) donde se registra la ejecución
+     */
+    public TrazaFSM activarTraza(int capacidad) {
+        traza = new TrazaFSM(capacidad);
+        return traza;
+    }
+
+    /**
+     * Desactiva la traza de ejecución y descarta su contenido
+     */
+    public void desactivarTraza() {
+        traza = null;
+    }
+
+    /**
+     * Obtiene la traza de ejecución
+     * @return Traza activa o null si está desactivada
+     */
+    public TrazaFSM getTraza() {
+        return traza;
+    }
+
+    /**
+     * Obtiene una FSM equivalente con el mínimo número de estados
+     * @return FSM minimizada y correspondencia entre estados originales y nuevos
+     */
+    public MinimizadorFSM.Resultado minimizar() {
+        return MinimizadorFSM.minimizar(this);
+    }
+
+    /**
+     * Verifica si otra FSM produce las mismas salidas que esta para toda secuencia de entradas
+     * @param otra FSM a comparar, con las mismas entradas
+     * @return Resultado con una secuencia más corta que las distingue, si existe
+     * @throws IllegalArgumentException Si las FSM no tienen las mismas entradas
+     */
+    public EquivalenciaFSM.Resultado compararCon(FSM otra) {
+        return EquivalenciaFSM.comparar(this, otra);
+    }
+
+    /**
+     * Analiza la estructura de la FSM: alcanzabilidad, estados incompletos y sumidero,
+     * y componentes fuertemente conexas
+     * @return Resultado del análisis
+     */
+    public AnalisisFSM.Resultado analizar() {
+        return AnalisisFSM.analizar(this);
+    }
+
     /**
      * Reinicia la FSM al estado inicial
      */
     public void reiniciar() {
         estadoActual = estadoInicial;
+        if (compilada != null) {
+            estadoActualId = compilada.getEstadoInicial();
+        }
     }
 
     /**
@@ -113,11 +470,13 @@ public class FSM {
      * @throws IllegalArgumentException Si el estado no es válido
      */
     public void setEstadoInicial(String estadoInicial) {
-        if (!Arrays.asList(estados).contains(estadoInicial)) {
+        if (tablaEstados.id(estadoInicial) < 0) {
             throw new IllegalArgumentException("Estado inicial no válido: " + estadoInicial);
         }
         this.estadoInicial = estadoInicial;
         this.estadoActual = estadoInicial;
+        compilada = null;
+        version++;
     }
 
     /**
@@ -145,6 +504,16 @@ public class FSM {
     }
 
     // Getters
+    /**
+     * Obtiene la versión estructural de la FSM
+     * Aumenta con cada transición agregada o reemplazada y con cada cambio de estado inicial,
+     * pero no al procesar entradas
+     * @return Número de versión
+     */
+    public long getVersion() {
+        return version;
+    }
+
     public String getEstadoActual() {
         return estadoActual;
     }
@@ -165,6 +534,19 @@ public class FSM {
         return estados.clone();
     }
 
+    // Tablas de símbolos sin duplicados, usadas al compilar
+    TablaSimbolos getTablaEntradas() {
+        return tablaEntradas;
+    }
+
+    TablaSimbolos getTablaSalidas() {
+        return tablaSalidas;
+    }
+
+    TablaSimbolos getTablaEstados() {
+        return tablaEstados;
+    }
+
     /**
      * Muestra la tabla de transiciones en formato legible
      */
@@ -196,19 +578,61 @@ public class FSM {
         info.append("Salidas: ").append(Arrays.toString(salidas)).append("\n");
         info.append("Estado inicial: ").append(estadoInicial).append("\n");
         info.append("Estado actual: ").append(estadoActual).append("\n");
-        info.append("Número de transiciones: ").append(contarTransiciones()).append("\n");
+        info.append("Número de transiciones: ").append(numTransiciones).append("\n");
         return info.toString();
     }
 
     /**
-     * Cuenta el número total de transiciones definidas
+     * Obtiene el número total de transiciones definidas
+     * Se mantiene al agregar transiciones, así que no recorre la tabla
      * @return Número de transiciones
      */
-    private int contarTransiciones() {
-        int total = 0;
-        for (Map<String, Transicion> transiciones : tablaTransiciones.values()) {
-            total += transiciones.size();
+    public int getNumTransiciones() {
+        return numTransiciones;
+    }
+
+    /**
+     * Obtiene el número de estados con al menos una transición de salida
+     * @return Número de estados
+     */
+    public int getEstadosConTransiciones() {
+        return estadosConTransiciones;
+    }
+
+    /**
+     * Obtiene el número de transiciones que salen de un estado
+     * @param estado Nombre del estado
+     * @return Número de transiciones de salida
+     * @throws IllegalArgumentException Si el estado no es válido
+     */
+    public int getGradoSalida(String estado) {
+        return gradoSalida[idEstadoValido(estado)];
+    }
+
+    /**
+     * Obtiene el número de transiciones que llegan a un estado
+     * @param estado Nombre del estado
+     * @return Número de transiciones de entrada
+     * @throws IllegalArgumentException Si el estado no es válido
+     */
+    public int getGradoEntrada(String estado) {
+        return gradoEntrada[idEstadoValido(estado)];
+    }
+
+    /**
+     * Obtiene la fracción de pares (estado, entrada) que tienen transición definida
+     * @return Valor entre 0 y 1 (0 si la FSM no tiene estados o entradas)
+     */
+    public double getCompletitud() {
+        long celdas = (long) tablaEstados.tamano() * tablaEntradas.tamano();
+        return celdas == 0 ? 0 : (double) numTransiciones / celdas;
+    }
+
+    private int idEstadoValido(String estado) {
+        int id = tablaEstados.id(estado);
+        if (id < 0) {
+            throw new IllegalArgumentException("Estado no válido: " + estado);
         }
-        return total;
+        return id;
     }
 }
\ No newline at end of file
@@ -0,0 +1,246 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * FSM con alfabeto de bytes para procesar datos binarios sin crear un String por símbolo
+ * La tabla de transiciones tiene 256 columnas, una por valor de byte, y la celda de un
+ * estado y un byte es (estado << 8) | byte. Los bytes que no son entradas de la FSM
+ * no tienen transición y detienen el procesamiento igual que una transición no definida
+ */
+public class FSMBytes {
+    private static final int COLUMNAS = 256;
+    private static final int TAMANO_LECTURA = 1 << 16;
+
+    private final FSMCompilada fsm;
+    private final int numEstados;
+    private final int[] siguiente;
+    private final int[] salida;
+
+    private FSMBytes(FSMCompilada fsm, int[] siguiente, int[] salida) {
+        this.fsm = fsm;
+        this.numEstados = fsm.getNumEstados();
+        this.siguiente = siguiente;
+        this.salida = salida;
+    }
+
+    /**
+     * Crea la FSM de bytes a partir de una FSM compilada
+     * Cada entrada debe ser un solo carácter con código entre 0 y 255 (por ejemplo "a" o "\n")
+     * @param fsm FSM compilada
+     * @return FSM de bytes equivalente
+     * @throws IllegalArgumentException Si alguna entrada no corresponde a un byte o hay demasiados estados
+     */
+    public static FSMBytes desde(FSMCompilada fsm) {
+        int numEstados = fsm.getNumEstados();
+        int numEntradas = fsm.getNumEntradas();
+        if (numEstados > Integer.MAX_VALUE / COLUMNAS) {
+            throw new IllegalArgumentException("Demasiados estados para una FSM de bytes: " + numEstados);
+        }
+        int[] columnas = new int[numEntradas];
+        for (int x = 0; x < numEntradas; x++) {
+            String entrada = fsm.getEntrada(x);
+            if (entrada.length() != 1 || entrada.charAt(0) >= COLUMNAS) {
+                throw new IllegalArgumentException("La entrada '" + entrada + "' no corresponde a un byte");
+            }
+            columnas[x] = entrada.charAt(0);
+        }
+
+        int[] siguiente = new int[numEstados * COLUMNAS];
+        int[] salida = new int[numEstados * COLUMNAS];
+        Arrays.fill(siguiente, FSMCompilada.SIN_TRANSICION);
+        Arrays.fill(salida, FSMCompilada.SIN_TRANSICION);
+        for (int s = 0; s < numEstados; s++) {
+            for (int x = 0; x < numEntradas; x++) {
+                int celda = s << 8 | columnas[x];
+                siguiente[celda] = fsm.siguiente(s, x);
+                salida[celda] = fsm.salida(s, x);
+            }
+        }
+        return new FSMBytes(fsm, siguiente, salida);
+    }
+
+    /**
+     * Procesa un fragmento de un arreglo de bytes
+     * @param estado Id del estado desde el cual empezar
+     * @param datos Bytes de entrada
+     * @param desde Posición inicial (inclusiva)
+     * @param hasta Posición final (exclusiva)
+     * @param salidas Buffer donde agregar los ids de salida
+     * @return Estado final y número de bytes procesados; si es menor que el tamaño del
+     *         fragmento, el siguiente byte no tenía transición definida
+     */
+    public ResultadoLote procesar(int estado, byte[] datos, int desde, int hasta, BufferSalidas salidas) {
+        validarEstado(estado);
+        int[] siguiente = this.siguiente;
+        int[] salida = this.salida;
+        int[] buffer = salidas.datos;
+        int j = salidas.longitud;
+        int i = desde;
+
+        while (i < hasta) {
+            int celda = estado << 8 | (datos[i] & 0xFF);
+            int destino = siguiente[celda];
+            if (destino == FSMCompilada.SIN_TRANSICION) {
+                break;
+            }
+            if (j == buffer.length) {
+                salidas.longitud = j;
+                salidas.liberarEspacio();
+                buffer = salidas.datos;
+                j = salidas.longitud;
+            }
+            buffer[j++] = salida[celda];
+            estado = destino;
+            i++;
+        }
+
+        salidas.longitud = j;
+        return new ResultadoLote(estado, i - desde);
+    }
+
+    /**
+     * Procesa los bytes restantes de un ByteBuffer (en el heap o directo)
+     * La posición del buffer avanza hasta el primer byte no procesado
+     * @param estado Id del estado desde el cual empezar
+     * @param datos Bytes de entrada
+     * @param salidas Buffer donde agregar los ids de salida
+     * @return Estado final y número de bytes procesados
+     */
+    public ResultadoLote procesar(int estado, ByteBuffer datos, BufferSalidas salidas) {
+        ResultadoLote resultado;
+        if (datos.hasArray()) {
+            int inicio = datos.arrayOffset() + datos.position();
+            resultado = procesar(estado, datos.array(), inicio, inicio + datos.remaining(), salidas);
+        } else {
+            resultado = procesarDirecto(estado, datos, salidas);
+        }
+        datos.position(datos.position() + resultado.getProcesados());
+        return resultado;
+    }
+
+    /**
+     * Versión para buffers directos, con lecturas absolutas que no mueven la posición
+     */
+    private ResultadoLote procesarDirecto(int estado, ByteBuffer datos, BufferSalidas salidas) {
+        validarEstado(estado);
+        int[] siguiente = this.siguiente;
+        int[] salida = this.salida;
+        int[] buffer = salidas.datos;
+        int j = salidas.longitud;
+        int desde = datos.position();
+        int hasta = datos.limit();
+        int i = desde;
+
+        while (i < hasta) {
+            int celda = estado << 8 | (datos.get(i) & 0xFF);
+            int destino = siguiente[celda];
+            if (destino == FSMCompilada.SIN_TRANSICION) {
+                break;
+            }
+            if (j == buffer.length) {
+                salidas.longitud = j;
+                salidas.liberarEspacio();
+                buffer = salidas.datos;
+                j = salidas.longitud;
+            }
+            buffer[j++] = salida[celda];
+            estado = destino;
+            i++;
+        }
+
+        salidas.longitud = j;
+        return new ResultadoLote(estado, i - desde);
+    }
+
+    /**
+     * Procesa todos los bytes de un canal hasta su fin o hasta un byte sin transición
+     * Para datos de tamaño arbitrario conviene un BufferSalidas con consumidor,
+     * que se vacía cada vez que se llena
+     * @param estado Id del estado desde el cual empezar
+     * @param canal Canal de entrada (no se cierra)
+     * @param salidas Buffer donde agregar los ids de salida
+     * @return Estado final y número de bytes procesados
+     * @throws IOException Si ocurre un error de lectura
+     */
+    public Resultado procesar(int estado, ReadableByteChannel canal, BufferSalidas salidas) throws IOException {
+        ByteBuffer lectura = ByteBuffer.allocate(TAMANO_LECTURA);
+        long procesados = 0;
+
+        while (canal.read(lectura) >= 0) {
+            lectura.flip();
+            int disponibles = lectura.remaining();
+            ResultadoLote lote = procesar(estado, lectura, salidas);
+            estado = lote.getEstadoFinal();
+            procesados += lote.getProcesados();
+            if (lote.getProcesados() < disponibles) {
+                return new Resultado(estado, procesados, true);
+            }
+            lectura.clear();
+        }
+        return new Resultado(estado, procesados, false);
+    }
+
+    private void validarEstado(int estado) {
+        if (estado < 0 || estado >= numEstados) {
+            throw new IllegalArgumentException("Estado no válido: " + estado);
+        }
+    }
+
+    /**
+     * Obtiene el siguiente estado para un estado y un byte
+     * @param estado Id del estado origen
+     * @param valor Byte de entrada
+     * @return Id del estado destino o SIN_TRANSICION si no existe
+     */
+    public int siguiente(int estado, byte valor) {
+        return siguiente[estado << 8 | (valor & 0xFF)];
+    }
+
+    /**
+     * Obtiene la salida para un estado y un byte
+     * @param estado Id del estado origen
+     * @param valor Byte de entrada
+     * @return Id de la salida o SIN_TRANSICION si no existe
+     */
+    public int salida(int estado, byte valor) {
+        return salida[estado << 8 | (valor & 0xFF)];
+    }
+
+    // Getters
+    public FSMCompilada getFSM() {
+        return fsm;
+    }
+
+    /**
+     * Resultado de procesar un canal completo
+     */
+    public static class Resultado {
+        private final int estadoFinal;
+        private final long procesados;
+        private final boolean detenido;
+
+        Resultado(int estadoFinal, long procesados, boolean detenido) {
+            this.estadoFinal = estadoFinal;
+            this.procesados = procesados;
+            this.detenido = detenido;
+        }
+
+        public int getEstadoFinal() {
+            return estadoFinal;
+        }
+
+        public long getProcesados() {
+            return procesados;
+        }
+
+        /**
+         * Indica si el procesamiento se detuvo antes del fin del canal por un byte sin transición
+         * @return true si quedaron bytes sin procesar
+         */
+        public boolean isDetenido() {
+            return detenido;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Versión compilada e inmutable de una FSM
+ * Los estados, entradas y salidas se internan como identificadores enteros
+ * y las transiciones se guardan en tablas planas indexadas por estado * numEntradas + entrada
+ * Al ser inmutable puede compartirse entre hilos; el estado de cada sesión vive en un CursorFSM
+ * o en un GrupoCursores
+ */
+public class FSMCompilada {
+    /**
+     * Valor de la tabla de siguiente estado cuando no hay transición definida
+     */
+    public static final int SIN_TRANSICION = -1;
+
+    private final TablaSimbolos estados;
+    private final TablaSimbolos entradas;
+    private final TablaSimbolos salidas;
+    private final int estadoInicial;
+
+    // Tablas planas usadas en los ciclos de procesamiento
+    final int numEntradas;
+    final int[] siguiente;
+    final int[] salida;
+
+    /**
+     * Constructor de la FSM compilada
+     * @param estados Tabla de símbolos de los estados
+     * @param entradas Tabla de símbolos de las entradas
+     * @param salidas Tabla de símbolos de las salidas
+     * @param siguiente Tabla de siguiente estado (SIN_TRANSICION si no existe)
+     * @param salida Tabla de id de salida por celda
+     * @param estadoInicial Id del estado inicial
+     */
+    FSMCompilada(TablaSimbolos estados, TablaSimbolos entradas, TablaSimbolos salidas,
+                 int[] siguiente, int[] salida, int estadoInicial) {
+        this.estados = estados;
+        this.entradas = entradas;
+        this.salidas = salidas;
+        this.numEntradas = entradas.tamano();
+        this.siguiente = siguiente;
+        this.salida = salida;
+        this.estadoInicial = estadoInicial;
+    }
+
+    /**
+     * Compila una FSM internando sus símbolos y aplanando su tabla de transiciones
+     * @param fsm FSM a compilar
+     * @return FSM compilada
+     */
+    static FSMCompilada desde(FSM fsm) {
+        TablaSimbolos estados = fsm.getTablaEstados();
+        TablaSimbolos entradas = fsm.getTablaEntradas();
+        TablaSimbolos salidas = fsm.getTablaSalidas();
+        int numEntradas = entradas.tamano();
+
+        int[] siguiente = new int[estados.tamano() * numEntradas];
+        int[] salida = new int[siguiente.length];
+        Arrays.fill(siguiente, SIN_TRANSICION);
+        Arrays.fill(salida, SIN_TRANSICION);
+
+        for (int e = 0; e < estados.tamano(); e++) {
+            for (int x = 0; x < numEntradas; x++) {
+                Transicion transicion = fsm.getTransicion(estados.nombre(e), entradas.nombre(x));
+                if (transicion != null) {
+                    int celda = e * numEntradas + x;
+                    siguiente[celda] = estados.id(transicion.getEstadoDestino());
+                    salida[celda] = salidas.id(transicion.getSalida());
+                }
+            }
+        }
+
+        int estadoInicial = estados.id(fsm.getEstadoInicial());
+        return new FSMCompilada(estados, entradas, salidas, siguiente, salida, estadoInicial);
+    }
+
+    /**
+     * Obtiene el siguiente estado para un estado y entrada dados
+     * @param estado Id del estado origen
+     * @param entrada Id de la entrada
+     * @return Id del estado destino o SIN_TRANSICION si no existe
+     */
+    public int siguiente(int estado, int entrada) {
+        return siguiente[estado * numEntradas + entrada];
+    }
+
+    /**
+     * Obtiene la salida para un estado y entrada dados
+     * @param estado Id del estado origen
+     * @param entrada Id de la entrada
+     * @return Id de la salida o SIN_TRANSICION si no existe
+     */
+    public int salida(int estado, int entrada) {
+        return salida[estado * numEntradas + entrada];
+    }
+
+    /**
+     * Crea un cursor posicionado en el estado inicial
+     * @return Nuevo cursor sobre esta FSM
+     */
+    public CursorFSM nuevoCursor() {
+        return new CursorFSM(this);
+    }
+
+    /**
+     * Crea un grupo de cursores posicionados en el estado inicial
+     * Cada cursor del grupo ocupa un solo int
+     * @param cantidad Número de cursores
+     * @return Nuevo grupo de cursores sobre esta FSM
+     */
+    public GrupoCursores nuevoGrupoCursores(int cantidad) {
+        return new GrupoCursores(this, cantidad);
+    }
+
+    /**
+     * Obtiene la celda de la tabla para un estado y entrada, validando que exista la transición
+     * @param estado Id del estado origen
+     * @param entrada Id de la entrada
+     * @return Índice de la celda en las tablas siguiente y salida
+     * @throws IllegalArgumentException Si el id de entrada no es válido
+     * @throws IllegalStateException Si no existe transición para la entrada
+     */
+    int celdaValida(int estado, int entrada) {
+        if (entrada < 0 || entrada >= numEntradas) {
+            throw new IllegalArgumentException("Entrada no válida: " + entrada);
+        }
+        if (estado < 0) {
+            throw new IllegalStateException("La FSM no tiene estados definidos");
+        }
+
+        int celda = estado * numEntradas + entrada;
+        if (siguiente[celda] == SIN_TRANSICION) {
+            throw new IllegalStateException("No hay transición definida desde " + estados.nombre(estado) + " con entrada " + entradas.nombre(entrada));
+        }
+        return celda;
+    }
+
+    /**
+     * Verifica que un id de estado exista antes de usarlo para indexar las tablas
+     * @param estado Id del estado
+     * @throws IllegalArgumentException Si el id de estado no es válido
+     */
+    private void validarEstado(int estado) {
+        if (estado < 0 || estado >= estados.tamano()) {
+            throw new IllegalArgumentException("Estado no válido: " + estado);
+        }
+    }
+
+    /**
+     * Procesa un lote de entradas escribiendo los ids de salida en un arreglo del llamador
+     * El procesamiento se detiene en la primera entrada sin transición definida
+     * @param estado Id del estado desde el cual empezar
+     * @param entradas Ids de las entradas
+     * @param desde Posición inicial (inclusiva) en entradas
+     * @param hasta Posición final (exclusiva) en entradas
+     * @param salidas Arreglo donde escribir los ids de salida
+     * @param offsetSalidas Posición de salidas donde escribir la primera salida
+     * @return Estado final y número de entradas procesadas
+     * @throws IllegalArgumentException Si el estado o algún id de entrada no es válido
+     */
+    public ResultadoLote procesarLote(int estado, int[] entradas, int desde, int hasta,
+                                      int[] salidas, int offsetSalidas) {
+        validarEstado(estado);
+        int[] siguiente = this.siguiente;
+        int[] salida = this.salida;
+        int n = numEntradas;
+        int i = desde;
+        int j = offsetSalidas;
+
+        while (i < hasta) {
+            int entrada = entradas[i];
+            if (entrada < 0 || entrada >= n) {
+                throw new IllegalArgumentException("Entrada no válida en la posición " + i + ": " + entrada);
+            }
+            int celda = estado * n + entrada;
+            int destino = siguiente[celda];
+            if (destino == SIN_TRANSICION) {
+                break;
+            }
+            salidas[j++] = salida[celda];
+            estado = destino;
+            i++;
+        }
+
+        return new ResultadoLote(estado, i - desde);
+    }
+
+    /**
+     * Procesa las entradas restantes de un IntBuffer escribiendo las salidas en otro
+     * Se procesan como máximo tantas entradas como espacio quede en salidas;
+     * las posiciones de ambos buffers avanzan según lo procesado
+     * @param estado Id del estado desde el cual empezar
+     * @param entradas Buffer con los ids de las entradas
+     * @param salidas Buffer donde escribir los ids de salida
+     * @return Estado final y número de entradas procesadas
+     * @throws IllegalArgumentException Si el estado o algún id de entrada no es válido
+     */
+    public ResultadoLote procesarLote(int estado, IntBuffer entradas, IntBuffer salidas) {
+        validarEstado(estado);
+        int[] siguiente = this.siguiente;
+        int[] salida = this.salida;
+        int n = numEntradas;
+        int limite = Math.min(entradas.remaining(), salidas.remaining());
+        int inicio = entradas.position();
+        int procesados = 0;
+
+        while (procesados < limite) {
+            int entrada = entradas.get(inicio + procesados);
+            if (entrada < 0 || entrada >= n) {
+                throw new IllegalArgumentException("Entrada no válida en la posición " + (inicio + procesados) + ": " + entrada);
+            }
+            int celda = estado * n + entrada;
+            int destino = siguiente[celda];
+            if (destino == SIN_TRANSICION) {
+                break;
+            }
+            salidas.put(salida[celda]);
+            estado = destino;
+            procesados++;
+        }
+
+        entradas.position(inicio + procesados);
+        return new ResultadoLote(estado, procesados);
+    }
+
+    /**
+     * Procesa un lote de entradas agregando los símbolos de salida a un StringBuilder reutilizable
+     * Las salidas se concatenan sin separador, así que el texto solo puede volver a dividirse
+     * si cada salida es de un carácter; para salidas más largas conviene la versión con separador
+     * El procesamiento se detiene en la primera entrada sin transición definida
+     * @param estado Id del estado desde el cual empezar
+     * @param entradas Ids de las entradas
+     * @param desde Posición inicial (inclusiva) en entradas
+     * @param hasta Posición final (exclusiva) en entradas
+     * @param salidas StringBuilder al que agregar las salidas
+     * @return Estado final y número de entradas procesadas
+     * @throws IllegalArgumentException Si el estado o algún id de entrada no es válido
+     */
+    public ResultadoLote procesarLote(int estado, int[] entradas, int desde, int hasta, StringBuilder salidas) {
+        return procesarLote(estado, entradas, desde, hasta, salidas, "");
+    }
+
+    /**
+     * Procesa un lote de entradas agregando cada símbolo de salida seguido de un separador
+     * El separador va después de cada salida, así que lotes sucesivos sobre el mismo
+     * StringBuilder quedan separados de la misma forma
+     * El procesamiento se detiene en la primera entrada sin transición definida
+     * @param estado Id del estado desde el cual empezar
+     * @param entradas Ids de las entradas
+     * @param desde Posición inicial (inclusiva) en entradas
+     * @param hasta Posición final (exclusiva) en entradas
+     * @param salidas StringBuilder al que agregar las salidas
+     * @param separador Texto agregado después de cada salida ("" para concatenarlas)
+     * @return Estado final y número de entradas procesadas
+     * @throws IllegalArgumentException Si el estado o algún id de entrada no es válido
+     */
+    public ResultadoLote procesarLote(int estado, int[] entradas, int desde, int hasta, StringBuilder salidas,
+                                      CharSequence separador) {
+        validarEstado(estado);
+        int[] siguiente = this.siguiente;
+        int[] salida = this.salida;
+        TablaSimbolos simbolos = this.salidas;
+        int n = numEntradas;
+        int i = desde;
+
+        while (i < hasta) {
+            int entrada = entradas[i];
+            if (entrada < 0 || entrada >= n) {
+                throw new IllegalArgumentException("Entrada no válida en la posición " + i + ": " + entrada);
+            }
+            int celda = estado * n + entrada;
+            int destino = siguiente[celda];
+            if (destino == SIN_TRANSICION) {
+                break;
+            }
+            salidas.append(simbolos.nombre(salida[celda])).append(separador);
+            estado = destino;
+            i++;
+        }
+
+        return new ResultadoLote(estado, i - desde);
+    }
+
+    /**
+     * Obtiene el id de un estado
+     * @param estado Nombre del estado
+     * @return Id del estado o -1 si no existe
+     */
+    public int idEstado(String estado) {
+        return estados.id(estado);
+    }
+
+    /**
+     * Obtiene el id de una entrada
+     * @param entrada Nombre de la entrada
+     * @return Id de la entrada o -1 si no existe
+     */
+    public int idEntrada(String entrada) {
+        return entradas.id(entrada);
+    }
+
+    /**
+     * Obtiene el id de una salida
+     * @param salida Nombre de la salida
+     * @return Id de la salida o -1 si no existe
+     */
+    public int idSalida(String salida) {
+        return salidas.id(salida);
+    }
+
+    // Getters
+    public String getEstado(int id) {
+        return estados.nombre(id);
+    }
+
+    public String getEntrada(int id) {
+        return entradas.nombre(id);
+    }
+
+    public String getSalida(int id) {
+        return salidas.nombre(id);
+    }
+
+    public int getEstadoInicial() {
+        return estadoInicial;
+    }
+
+    public int getNumEstados() {
+        return estados.tamano();
+    }
+
+    public int getNumEntradas() {
+        return numEntradas;
+    }
+
+    public int getNumSalidas() {
+        return salidas.tamano();
+    }
+}
@@ -0,0 +1,571 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ejecución especializada de una FSM compilada mediante generación de bytecode
+ * Para máquinas pequeñas se genera una clase oculta (MethodHandles.Lookup.defineHiddenClass)
+ * cuya tabla de transiciones queda convertida en switches con el destino y la salida como constantes,
+ * sin accesos a arreglos de la tabla. El switch por celda es un salto indirecto por símbolo, que
+ * con entradas poco predecibles fue unas cuatro veces más lento que las dos lecturas de tabla del
+ * intérprete en JitBenchmark, así que crear usa el intérprete salvo que se pida
+ * explícitamente el código generado.
+ * La generación solo cubre máquinas de hasta MAX_ESTADOS estados y unas 300 celdas
+ * (estados por entradas, por ejemplo 16 x 16 o 64 x 4): el método lote debe quedar por debajo
+ * del límite de 8000 bytes a partir del cual HotSpot no compila un método. Para máquinas mayores
+ * se usa siempre el intérprete de tablas de FSMCompilada
+ */
+public class FSMJit {
+    /**
+     * Máximo de estados para generar código especializado
+     */
+    public static final int MAX_ESTADOS = 64;
+
+    // HotSpot no compila métodos de más de 8000 bytes de bytecode (HugeMethodLimit), y lote
+    // ocupa unos 26 bytes por celda más unos 60 fijos
+    private static final int MAX_BYTES_METODO = 8000;
+    private static final int MAX_CELDAS = (MAX_BYTES_METODO - 64) / 26;
+
+    private static final String NOMBRE_CLASE = "PasoFSMGenerado";
+
+    private final FSMCompilada fsm;
+    private final PasoFSM paso;
+    private final boolean especializada;
+
+    private FSMJit(FSMCompilada fsm, PasoFSM paso, boolean especializada) {
+        this.fsm = fsm;
+        this.paso = paso;
+        this.especializada = especializada;
+    }
+
+    /**
+     * Crea la ejecución de una FSM con el intérprete de tablas, que fue el más rápido en las
+     * mediciones; equivale a crear(fsm, false)
+     * @param fsm FSM compilada
+     * @return Ejecución de la FSM
+     */
+    public static FSMJit crear(FSMCompilada fsm) {
+        return crear(fsm, false);
+    }
+
+    /**
+     * Crea la ejecución de una FSM eligiendo el motor de forma determinista
+     * @param fsm FSM compilada
+     * @param especializar Si se genera código cuando la máquina cabe en los límites de generación
+     * @return Ejecución con código generado si se pidió y la máquina cabe; si no, el intérprete
+     */
+    public static FSMJit crear(FSMCompilada fsm, boolean especializar) {
+        if (!especializar) {
+            return interpretada(fsm);
+        }
+        try {
+            return generada(fsm);
+        } catch (IllegalStateException e) {
+            return interpretada(fsm);
+        }
+    }
+
+    /**
+     * Crea la ejecución con código generado
+     * @param fsm FSM compilada
+     * @return Ejecución especializada de la FSM
+     * @throws IllegalStateException Si la máquina es demasiado grande o la JVM no permite definir la clase
+     */
+    static FSMJit generada(FSMCompilada fsm) {
+        if (fsm.getNumEstados() > MAX_ESTADOS
+                || fsm.getNumEstados() * fsm.getNumEntradas() > MAX_CELDAS
+                || fsm.getNumSalidas() > 0xFFFF) {
+            throw new IllegalStateException("La FSM es demasiado grande para generar código");
+        }
+        try {
+            byte[] clase = new Generador(fsm).generar();
+            MethodHandles.Lookup oculta = MethodHandles.lookup().defineHiddenClass(clase, true);
+            PasoFSM paso = (PasoFSM) oculta.findConstructor(oculta.lookupClass(),
+                    MethodType.methodType(void.class)).invoke();
+            return new FSMJit(fsm, paso, true);
+        } catch (Throwable e) {
+            if (e instanceof Error && !(e instanceof LinkageError)) {
+                throw (Error) e;
+            }
+            throw new IllegalStateException("No se pudo generar código para la FSM", e);
+        }
+    }
+
+    /**
+     * Crea la ejecución de una FSM con el intérprete de tablas
+     * @param fsm FSM compilada
+     * @return Ejecución interpretada de la FSM
+     */
+    public static FSMJit interpretada(FSMCompilada fsm) {
+        return new FSMJit(fsm, new PasoTabla(fsm), false);
+    }
+
+    /**
+     * Procesa un lote de entradas; mismo comportamiento que FSMCompilada.procesarLote
+     * @param estado Id del estado desde el cual empezar
+     * @param entradas Ids de las entradas
+     * @param desde Posición inicial (inclusiva) en entradas
+     * @param hasta Posición final (exclusiva) en entradas
+     * @param salidas Arreglo donde escribir los ids de salida
+     * @param offsetSalidas Posición de salidas donde escribir la primera salida
+     * @return Estado final y número de entradas procesadas
+     * @throws IllegalArgumentException Si algún id de entrada no es válido
+     */
+    public ResultadoLote procesarLote(int estado, int[] entradas, int desde, int hasta,
+                                      int[] salidas, int offsetSalidas) {
+        if (estado < 0 || estado >= fsm.getNumEstados()) {
+            throw new IllegalArgumentException("Estado no válido: " + estado);
+        }
+        long resultado = paso.lote(estado, entradas, desde, hasta, salidas, offsetSalidas);
+        int estadoFinal = (int) (resultado >>> 32);
+        int procesados = (int) resultado;
+
+        int detenida = desde + procesados;
+        if (detenida < hasta && (entradas[detenida] < 0 || entradas[detenida] >= fsm.getNumEntradas())) {
+            throw new IllegalArgumentException("Entrada no válida en la posición " + detenida + ": " + entradas[detenida]);
+        }
+        return new ResultadoLote(estadoFinal, procesados);
+    }
+
+    /**
+     * Obtiene la función de paso (generada o interpretada)
+     * @return Función de paso
+     */
+    public PasoFSM getPaso() {
+        return paso;
+    }
+
+    /**
+     * Indica si se usa código especializado
+     * @return true si se usa la clase generada, false si se usa el intérprete
+     */
+    public boolean isEspecializada() {
+        return especializada;
+    }
+
+    public FSMCompilada getFSM() {
+        return fsm;
+    }
+
+    /**
+     * Función de paso basada en las tablas de FSMCompilada
+     */
+    private static class PasoTabla implements PasoFSM {
+        private final FSMCompilada fsm;
+
+        PasoTabla(FSMCompilada fsm) {
+            this.fsm = fsm;
+        }
+
+        @Override
+        public int paso(int estado, int entrada) {
+            int celda = estado * fsm.numEntradas + entrada;
+            int destino = fsm.siguiente[celda];
+            return destino == FSMCompilada.SIN_TRANSICION ? SIN_TRANSICION : destino << 16 | fsm.salida[celda];
+        }
+
+        @Override
+        public long lote(int estado, int[] entradas, int desde, int hasta, int[] salidas, int offsetSalidas) {
+            int[] siguiente = fsm.siguiente;
+            int[] salida = fsm.salida;
+            int n = fsm.numEntradas;
+            int i = desde;
+            int j = offsetSalidas;
+            while (i < hasta) {
+                int entrada = entradas[i];
+                if (entrada < 0 || entrada >= n) {
+                    break;
+                }
+                int celda = estado * n + entrada;
+                int destino = siguiente[celda];
+                if (destino == FSMCompilada.SIN_TRANSICION) {
+                    break;
+                }
+                salidas[j++] = salida[celda];
+                estado = destino;
+                i++;
+            }
+            return (long) estado << 32 | (i - desde);
+        }
+    }
+
+    /**
+     * Generador del archivo de clase que implementa PasoFSM para una FSM concreta
+     * Se usa la versión 49 del formato de clase, que no requiere tablas StackMapTable
+     */
+    private static class Generador {
+        // Códigos de operación usados
+        private static final int ICONST_M1 = 0x02;
+        private static final int BIPUSH = 0x10;
+        private static final int LDC_W = 0x13;
+        private static final int ILOAD = 0x15;
+        private static final int ILOAD_1 = 0x1b;
+        private static final int ILOAD_2 = 0x1c;
+        private static final int ILOAD_3 = 0x1d;
+        private static final int ALOAD = 0x19;
+        private static final int ALOAD_0 = 0x2a;
+        private static final int ALOAD_2 = 0x2c;
+        private static final int IALOAD = 0x2e;
+        private static final int ISTORE = 0x36;
+        private static final int ISTORE_1 = 0x3c;
+        private static final int IASTORE = 0x4f;
+        private static final int IADD = 0x60;
+        private static final int ISUB = 0x64;
+        private static final int IMUL = 0x68;
+        private static final int LSHL = 0x79;
+        private static final int LOR = 0x81;
+        private static final int IINC = 0x84;
+        private static final int I2L = 0x85;
+        private static final int IFLT = 0x9b;
+        private static final int IF_ICMPGE = 0xa2;
+        private static final int GOTO = 0xa7;
+        private static final int TABLESWITCH = 0xaa;
+        private static final int IRETURN = 0xac;
+        private static final int LRETURN = 0xad;
+        private static final int RETURN = 0xb1;
+        private static final int INVOKESPECIAL = 0xb7;
+        private static final int GOTO_W = 0xc8;
+
+        private final FSMCompilada fsm;
+        private final int numEstados;
+        private final int numEntradas;
+
+        // Pool de constantes
+        private final List<byte[]> pool = new ArrayList<>();
+        private final Map<Integer, Integer> enteros = new HashMap<>();
+
+        Generador(FSMCompilada fsm) {
+            this.fsm = fsm;
+            this.numEstados = fsm.getNumEstados();
+            this.numEntradas = fsm.getNumEntradas();
+        }
+
+        byte[] generar() {
+            int nombreClase = utf8(NOMBRE_CLASE);
+            int clase = referencia(7, nombreClase);
+            int objeto = referencia(7, utf8("java/lang/Object"));
+            int interfaz = referencia(7, utf8("PasoFSM"));
+            int init = utf8("<init>");
+            int descriptorInit = utf8("()V");
+            int constructorObjeto = referencia(10, objeto, referencia(12, init, descriptorInit));
+            int code = utf8("Code");
+            int paso = utf8("paso");
+            int descriptorPaso = utf8("(II)I");
+            int lote = utf8("lote");
+            int descriptorLote = utf8("(I[III[II)J");
+
+            byte[] codigoInit = codigoConstructor(constructorObjeto);
+            byte[] codigoPaso = codigoPaso();
+            byte[] codigoLote = codigoLote();
+            if (codigoPaso.length > MAX_BYTES_METODO || codigoLote.length > MAX_BYTES_METODO || pool.size() >= 0xFFFF) {
+                throw new IllegalStateException("La FSM es demasiado grande para generar código");
+            }
+
+            Bytes salida = new Bytes();
+            salida.u4(0xCAFEBABE);
+            salida.u2(0);
+            salida.u2(49);
+            salida.u2(pool.size() + 1);
+            for (byte[] entrada : pool) {
+                salida.bytes(entrada);
+            }
+            salida.u2(0x0031);    // public final super
+            salida.u2(clase);
+            salida.u2(objeto);
+            salida.u2(1);
+            salida.u2(interfaz);
+            salida.u2(0);         // Sin campos
+            salida.u2(3);
+            metodo(salida, init, descriptorInit, code, codigoInit, 1, 1);
+            metodo(salida, paso, descriptorPaso, code, codigoPaso, 1, 3);
+            metodo(salida, lote, descriptorLote, code, codigoLote, 4, 9);
+            salida.u2(0);         // Sin atributos de clase
+            return salida.toArray();
+        }
+
+        private byte[] codigoConstructor(int constructorObjeto) {
+            Bytes codigo = new Bytes();
+            codigo.u1(ALOAD_0);
+            codigo.u1(INVOKESPECIAL);
+            codigo.u2(constructorObjeto);
+            codigo.u1(RETURN);
+            return codigo.toArray();
+        }
+
+        /**
+         * paso(estado, entrada): switch por estado, switch por entrada y constante empaquetada
+         */
+        private byte[] codigoPaso() {
+            Bytes codigo = new Bytes();
+            List<int[]> saltosPorDefecto = new ArrayList<>();
+
+            codigo.u1(ILOAD_1);
+            Switch estados = tableswitch(codigo, numEstados);
+            saltosPorDefecto.add(new int[]{estados.direccion, estados.posicionDefecto});
+            for (int s = 0; s < numEstados; s++) {
+                estados.caso(codigo, s);
+                codigo.u1(ILOAD_2);
+                Switch entradas = tableswitch(codigo, numEntradas);
+                saltosPorDefecto.add(new int[]{entradas.direccion, entradas.posicionDefecto});
+                for (int x = 0; x < numEntradas; x++) {
+                    int destino = fsm.siguiente(s, x);
+                    if (destino == FSMCompilada.SIN_TRANSICION) {
+                        saltosPorDefecto.add(new int[]{entradas.direccion, entradas.posicionCasos + 4 * x});
+                        continue;
+                    }
+                    entradas.caso(codigo, x);
+                    codigo.u1(LDC_W);
+                    codigo.u2(entero(destino << 16 | fsm.salida(s, x)));
+                    codigo.u1(IRETURN);
+                }
+            }
+
+            int sinTransicion = codigo.posicion();
+            codigo.u1(ICONST_M1);
+            codigo.u1(IRETURN);
+            for (int[] salto : saltosPorDefecto) {
+                codigo.parchear4(salto[1], sinTransicion - salto[0]);
+            }
+            return codigo.toArray();
+        }
+
+        /**
+         * lote(estado, entradas, desde, hasta, salidas, offset)
+         * Un solo ciclo con un switch por celda (estado * numEntradas + entrada): cada caso tiene
+         * el destino y la salida como constantes, así que por símbolo solo hay un salto indirecto
+         * Variables locales: 1 estado, 2 entradas, 3 i, 4 hasta, 5 salidas, 6 j, 7 entrada, 8 desde
+         */
+        private byte[] codigoLote() {
+            Bytes codigo = new Bytes();
+            codigo.u1(ILOAD_3);
+            codigo.u1(ISTORE);
+            codigo.u1(8);
+            codigo.u1(GOTO);
+            codigo.u2(8);
+
+            // salir: terminar con el estado actual
+            int salir = codigo.posicion();
+            int saltoFin = codigo.posicion();
+            codigo.u1(GOTO_W);
+            int posicionFin = codigo.posicion();
+            codigo.u4(0);
+
+            // while (i < hasta)
+            int ciclo = codigo.posicion();
+            codigo.u1(ILOAD_3);
+            codigo.u1(ILOAD);
+            codigo.u1(4);
+            codigo.u1(IF_ICMPGE);
+            codigo.u2(salir - (codigo.posicion() - 1));
+
+            // entrada = entradas[i]; si entrada < 0 || entrada >= numEntradas: salir
+            codigo.u1(ALOAD_2);
+            codigo.u1(ILOAD_3);
+            codigo.u1(IALOAD);
+            codigo.u1(ISTORE);
+            codigo.u1(7);
+            codigo.u1(ILOAD);
+            codigo.u1(7);
+            codigo.u1(IFLT);
+            codigo.u2(salir - (codigo.posicion() - 1));
+            codigo.u1(ILOAD);
+            codigo.u1(7);
+            codigo.u1(LDC_W);
+            codigo.u2(entero(numEntradas));
+            codigo.u1(IF_ICMPGE);
+            codigo.u2(salir - (codigo.posicion() - 1));
+
+            // switch (estado * numEntradas + entrada)
+            codigo.u1(ILOAD_1);
+            codigo.u1(LDC_W);
+            codigo.u2(entero(numEntradas));
+            codigo.u1(IMUL);
+            codigo.u1(ILOAD);
+            codigo.u1(7);
+            codigo.u1(IADD);
+            int celdas = numEstados * numEntradas;
+            Switch celda = tableswitch(codigo, celdas);
+            codigo.parchear4(celda.posicionDefecto, salir - celda.direccion);
+            for (int s = 0; s < numEstados; s++) {
+                for (int x = 0; x < numEntradas; x++) {
+                    int indice = s * numEntradas + x;
+                    int destino = fsm.siguiente(s, x);
+                    if (destino == FSMCompilada.SIN_TRANSICION) {
+                        codigo.parchear4(celda.posicionCasos + 4 * indice, salir - celda.direccion);
+                        continue;
+                    }
+                    celda.caso(codigo, indice);
+                    // salidas[j++] = salida; i++; estado = destino
+                    codigo.u1(ALOAD);
+                    codigo.u1(5);
+                    codigo.u1(ILOAD);
+                    codigo.u1(6);
+                    codigo.u1(LDC_W);
+                    codigo.u2(entero(fsm.salida(s, x)));
+                    codigo.u1(IASTORE);
+                    codigo.u1(IINC);
+                    codigo.u1(6);
+                    codigo.u1(1);
+                    codigo.u1(IINC);
+                    codigo.u1(3);
+                    codigo.u1(1);
+                    codigo.u1(BIPUSH);
+                    codigo.u1(destino);
+                    codigo.u1(ISTORE_1);
+                    int salto = codigo.posicion();
+                    codigo.u1(GOTO_W);
+                    codigo.u4(ciclo - salto);
+                }
+            }
+
+            // return (long) estado << 32 | (i - desde)
+            codigo.parchear4(posicionFin, codigo.posicion() - saltoFin);
+            codigo.u1(ILOAD_1);
+            codigo.u1(I2L);
+            codigo.u1(BIPUSH);
+            codigo.u1(32);
+            codigo.u1(LSHL);
+            codigo.u1(ILOAD_3);
+            codigo.u1(ILOAD);
+            codigo.u1(8);
+            codigo.u1(ISUB);
+            codigo.u1(I2L);
+            codigo.u1(LOR);
+            codigo.u1(LRETURN);
+            return codigo.toArray();
+        }
+
+        /**
+         * Emite un tableswitch de 0 a casos - 1 con desplazamientos por completar
+         */
+        private Switch tableswitch(Bytes codigo, int casos) {
+            Switch sw = new Switch();
+            sw.direccion = codigo.posicion();
+            codigo.u1(TABLESWITCH);
+            while (codigo.posicion() % 4 != 0) {
+                codigo.u1(0);
+            }
+            sw.posicionDefecto = codigo.posicion();
+            codigo.u4(0);
+            codigo.u4(0);
+            codigo.u4(casos - 1);
+            sw.posicionCasos = codigo.posicion();
+            for (int i = 0; i < casos; i++) {
+                codigo.u4(0);
+            }
+            return sw;
+        }
+
+        private void metodo(Bytes salida, int nombre, int descriptor, int code, byte[] codigo,
+                            int maxPila, int maxLocales) {
+            salida.u2(0x0001);    // public
+            salida.u2(nombre);
+            salida.u2(descriptor);
+            salida.u2(1);
+            salida.u2(code);
+            salida.u4(12 + codigo.length);
+            salida.u2(maxPila);
+            salida.u2(maxLocales);
+            salida.u4(codigo.length);
+            salida.bytes(codigo);
+            salida.u2(0);         // Sin tabla de excepciones
+            salida.u2(0);         // Sin atributos
+        }
+
+        private int utf8(String texto) {
+            byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+            Bytes entrada = new Bytes();
+            entrada.u1(1);
+            entrada.u2(bytes.length);
+            entrada.bytes(bytes);
+            return agregar(entrada.toArray());
+        }
+
+        private int referencia(int etiqueta, int... indices) {
+            Bytes entrada = new Bytes();
+            entrada.u1(etiqueta);
+            for (int indice : indices) {
+                entrada.u2(indice);
+            }
+            return agregar(entrada.toArray());
+        }
+
+        private int entero(int valor) {
+            return enteros.computeIfAbsent(valor, v -> {
+                Bytes entrada = new Bytes();
+                entrada.u1(3);
+                entrada.u4(v);
+                return agregar(entrada.toArray());
+            });
+        }
+
+        private int agregar(byte[] entrada) {
+            pool.add(entrada);
+            return pool.size();
+        }
+    }
+
+    /**
+     * Posiciones de un tableswitch emitido, para completar sus desplazamientos
+     */
+    private static class Switch {
+        int direccion;
+        int posicionDefecto;
+        int posicionCasos;
+
+        void caso(Bytes codigo, int indice) {
+            codigo.parchear4(posicionCasos + 4 * indice, codigo.posicion() - direccion);
+        }
+    }
+
+    /**
+     * Arreglo de bytes creciente con escritura big-endian
+     */
+    private static class Bytes {
+        private byte[] datos = new byte[256];
+        private int longitud;
+
+        void u1(int valor) {
+            if (longitud == datos.length) {
+                datos = Arrays.copyOf(datos, datos.length * 2);
+            }
+            datos[longitud++] = (byte) valor;
+        }
+
+        void u2(int valor) {
+            u1(valor >>> 8);
+            u1(valor);
+        }
+
+        void u4(int valor) {
+            u2(valor >>> 16);
+            u2(valor);
+        }
+
+        void bytes(byte[] valores) {
+            for (byte valor : valores) {
+                u1(valor);
+            }
+        }
+
+        void parchear4(int posicion, int valor) {
+            datos[posicion] = (byte) (valor >>> 24);
+            datos[posicion + 1] = (byte) (valor >>> 16);
+            datos[posicion + 2] = (byte) (valor >>> 8);
+            datos[posicion + 3] = (byte) valor;
+        }
+
+        int posicion() {
+            return longitud;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(datos, longitud);
+        }
+    }
+}
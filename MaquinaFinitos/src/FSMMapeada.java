@@ -0,0 +1,432 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * FSM compilada almacenada en un archivo binario y ejecutada directamente desde memoria mapeada
+ *
+ * Formato (enteros de 32 bits big-endian):
+ * <pre>
+ * magia 'FSMC' | versión | numEstados | numEntradas | numSalidas | estadoInicial | inicioTablas
+ * estados, entradas, salidas: por cada símbolo, longitud en bytes + bytes UTF-8
+ * relleno hasta múltiplo de 4
+ * tabla de siguiente estado (numEstados * numEntradas enteros)
+ * tabla de salidas (numEstados * numEntradas enteros)
+ * </pre>
+ * Al abrir se validan el encabezado, las longitudes de los símbolos y que cada valor de las
+ * tablas esté en rango, con un recorrido secuencial; las tablas se usan tal cual desde el
+ * archivo mapeado y cada tabla de símbolos (estados, entradas o salidas) se decodifica por
+ * separado la primera vez que se necesita, rechazando en ese momento los nombres repetidos
+ */
+public class FSMMapeada {
+    private static final int MAGIA = 0x46534D43;
+    private static final int VERSION = 1;
+    private static final int TAMANO_ENCABEZADO = 7 * Integer.BYTES;
+
+    private final ByteBuffer datos;
+    private final int numEstados;
+    private final int numEntradas;
+    private final int numSalidas;
+    private final int estadoInicial;
+    private final int inicioEntradas;
+    private final int inicioSalidas;
+    final IntBuffer siguiente;
+    final IntBuffer salida;
+
+    // Tablas de símbolos decodificadas bajo demanda
+    private volatile TablaSimbolos estados;
+    private volatile TablaSimbolos entradas;
+    private volatile TablaSimbolos salidas;
+
+    private FSMMapeada(ByteBuffer datos) {
+        this.datos = datos;
+        if (datos.capacity() < TAMANO_ENCABEZADO || datos.getInt(0) != MAGIA) {
+            throw new IllegalArgumentException("El archivo no es una FSM compilada");
+        }
+        int version = datos.getInt(4);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Versión de archivo FSM no soportada: " + version);
+        }
+        numEstados = datos.getInt(8);
+        numEntradas = datos.getInt(12);
+        numSalidas = datos.getInt(16);
+        estadoInicial = datos.getInt(20);
+        int posicion = datos.getInt(24);
+
+        if (numEstados < 0 || numEntradas < 0 || numSalidas < 0) {
+            throw new IllegalArgumentException("Número de símbolos negativo en el archivo FSM");
+        }
+        if (estadoInicial < FSMCompilada.SIN_TRANSICION || estadoInicial >= numEstados) {
+            throw new IllegalArgumentException("Estado inicial no válido en el archivo FSM: " + estadoInicial);
+        }
+        if (posicion < TAMANO_ENCABEZADO || posicion > datos.capacity()) {
+            throw new IllegalArgumentException("Inicio de tablas no válido en el archivo FSM: " + posicion);
+        }
+        long celdas = (long) numEstados * numEntradas;
+        long bytesTabla = celdas * Integer.BYTES;
+        if (celdas > (datos.capacity() - posicion) / (2 * Integer.BYTES)
+                || posicion + 2 * bytesTabla != datos.capacity()) {
+            throw new IllegalArgumentException("Tamaño de archivo FSM inconsistente");
+        }
+
+        inicioEntradas = saltarSimbolos(TAMANO_ENCABEZADO, numEstados, posicion);
+        inicioSalidas = saltarSimbolos(inicioEntradas, numEntradas, posicion);
+        saltarSimbolos(inicioSalidas, numSalidas, posicion);
+
+        siguiente = datos.slice(posicion, (int) bytesTabla).asIntBuffer();
+        salida = datos.slice(posicion + (int) bytesTabla, (int) bytesTabla).asIntBuffer();
+        validarTablas();
+    }
+
+    /**
+     * Verifica que cada celda tenga un destino válido o SIN_TRANSICION, y que las celdas con
+     * transición tengan un id de salida válido
+     * @throws IllegalArgumentException Si algún valor de las tablas está fuera de rango
+     */
+    private void validarTablas() {
+        int celdas = siguiente.capacity();
+        for (int celda = 0; celda < celdas; celda++) {
+            int destino = siguiente.get(celda);
+            int idSalida = salida.get(celda);
+            if (destino < FSMCompilada.SIN_TRANSICION || destino >= numEstados) {
+                throw new IllegalArgumentException("Estado destino no válido en el archivo FSM, celda "
+                        + celda + ": " + destino);
+            }
+            int minimo = destino == FSMCompilada.SIN_TRANSICION ? FSMCompilada.SIN_TRANSICION : 0;
+            if (idSalida < minimo || idSalida >= numSalidas) {
+                throw new IllegalArgumentException("Salida no válida en el archivo FSM, celda "
+                        + celda + ": " + idSalida);
+            }
+        }
+    }
+
+    /**
+     * Recorre las longitudes de una región de símbolos sin decodificarlos
+     * @param posicion Inicio de la región
+     * @param cantidad Número de símbolos
+     * @param limite Inicio de las tablas, que ningún símbolo puede pasar
+     * @return Posición siguiente al último símbolo
+     * @throws IllegalArgumentException Si algún símbolo se sale de la región
+     */
+    private int saltarSimbolos(int posicion, int cantidad, int limite) {
+        for (int i = 0; i < cantidad; i++) {
+            if (limite - posicion < Integer.BYTES) {
+                throw new IllegalArgumentException("Tabla de símbolos truncada en el archivo FSM");
+            }
+            int longitud = datos.getInt(posicion);
+            posicion += Integer.BYTES;
+            if (longitud < 0 || longitud > limite - posicion) {
+                throw new IllegalArgumentException("Longitud de símbolo no válida en el archivo FSM: " + longitud);
+            }
+            posicion += longitud;
+        }
+        return posicion;
+    }
+
+    /**
+     * Abre un archivo de FSM compilada mapeándolo en memoria
+     * @param archivo Archivo generado con guardar
+     * @return FSM lista para ejecutarse
+     * @throws IOException Si ocurre un error de lectura
+     * @throws IllegalArgumentException Si el archivo no tiene el formato esperado
+     */
+    public static FSMMapeada abrir(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            if (canal.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Archivo FSM demasiado grande: " + canal.size() + " bytes");
+            }
+            // El mapeo sigue siendo válido después de cerrar el canal
+            return new FSMMapeada(canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()));
+        }
+    }
+
+    /**
+     * Guarda una FSM compilada en formato binario
+     * @param fsm FSM compilada
+     * @param archivo Archivo de destino (se crea o sobrescribe)
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public static void guardar(FSMCompilada fsm, Path archivo) throws IOException {
+        int numEstados = fsm.getNumEstados();
+        int numEntradas = fsm.getNumEntradas();
+        int numSalidas = fsm.getNumSalidas();
+
+        byte[][] simbolos = new byte[numEstados + numEntradas + numSalidas][];
+        int k = 0;
+        for (int i = 0; i < numEstados; i++) {
+            simbolos[k++] = fsm.getEstado(i).getBytes(StandardCharsets.UTF_8);
+        }
+        for (int i = 0; i < numEntradas; i++) {
+            simbolos[k++] = fsm.getEntrada(i).getBytes(StandardCharsets.UTF_8);
+        }
+        for (int i = 0; i < numSalidas; i++) {
+            simbolos[k++] = fsm.getSalida(i).getBytes(StandardCharsets.UTF_8);
+        }
+
+        long inicioTablas = TAMANO_ENCABEZADO;
+        for (byte[] simbolo : simbolos) {
+            inicioTablas += Integer.BYTES + simbolo.length;
+        }
+        int relleno = (int) (-inicioTablas & (Integer.BYTES - 1));
+        inicioTablas += relleno;
+        if (inicioTablas + 2L * fsm.siguiente.length * Integer.BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("La FSM es demasiado grande para el formato binario");
+        }
+
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+            buffer.putInt(MAGIA).putInt(VERSION)
+                    .putInt(numEstados).putInt(numEntradas).putInt(numSalidas)
+                    .putInt(fsm.getEstadoInicial()).putInt((int) inicioTablas);
+
+            for (byte[] simbolo : simbolos) {
+                if (buffer.remaining() < Integer.BYTES + simbolo.length) {
+                    vaciar(buffer, canal);
+                }
+                buffer.putInt(simbolo.length);
+                if (buffer.remaining() < simbolo.length) {
+                    // Símbolo más grande que el buffer: se escribe directamente
+                    vaciar(buffer, canal);
+                    ByteBuffer grande = ByteBuffer.wrap(simbolo);
+                    while (grande.hasRemaining()) {
+                        canal.write(grande);
+                    }
+                } else {
+                    buffer.put(simbolo);
+                }
+            }
+            if (buffer.remaining() < relleno) {
+                vaciar(buffer, canal);
+            }
+            for (int i = 0; i < relleno; i++) {
+                buffer.put((byte) 0);
+            }
+
+            escribirTabla(fsm.siguiente, buffer, canal);
+            escribirTabla(fsm.salida, buffer, canal);
+            vaciar(buffer, canal);
+        }
+    }
+
+    private static void escribirTabla(int[] tabla, ByteBuffer buffer, FileChannel canal) throws IOException {
+        for (int valor : tabla) {
+            if (buffer.remaining() < Integer.BYTES) {
+                vaciar(buffer, canal);
+            }
+            buffer.putInt(valor);
+        }
+    }
+
+    private static void vaciar(ByteBuffer buffer, FileChannel canal) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Obtiene el siguiente estado para un estado y entrada dados
+     * @param estado Id del estado origen
+     * @param entrada Id de la entrada
+     * @return Id del estado destino o SIN_TRANSICION si no existe
+     */
+    public int siguiente(int estado, int entrada) {
+        return siguiente.get(estado * numEntradas + entrada);
+    }
+
+    /**
+     * Obtiene la salida para un estado y entrada dados
+     * @param estado Id del estado origen
+     * @param entrada Id de la entrada
+     * @return Id de la salida o SIN_TRANSICION si no existe
+     */
+    public int salida(int estado, int entrada) {
+        return salida.get(estado * numEntradas + entrada);
+    }
+
+    /**
+     * Procesa un lote de entradas leyendo las transiciones directamente del archivo mapeado
+     * Se comporta igual que FSMCompilada.procesarLote
+     * @param estado Id del estado desde el cual empezar
+     * @param entradas Ids de las entradas
+     * @param desde Posición inicial (inclusiva) en entradas
+     * @param hasta Posición final (exclusiva) en entradas
+     * @param salidas Arreglo donde escribir los ids de salida
+     * @param offsetSalidas Posición de salidas donde escribir la primera salida
+     * @return Estado final y número de entradas procesadas
+     * @throws IllegalArgumentException Si el estado o algún id de entrada no es válido
+     */
+    public ResultadoLote procesarLote(int estado, int[] entradas, int desde, int hasta,
+                                      int[] salidas, int offsetSalidas) {
+        if (estado < 0 || estado >= numEstados) {
+            throw new IllegalArgumentException("Estado no válido: " + estado);
+        }
+        IntBuffer siguiente = this.siguiente;
+        IntBuffer salida = this.salida;
+        int n = numEntradas;
+        int i = desde;
+        int j = offsetSalidas;
+
+        while (i < hasta) {
+            int entrada = entradas[i];
+            if (entrada < 0 || entrada >= n) {
+                throw new IllegalArgumentException("Entrada no válida en la posición " + i + ": " + entrada);
+            }
+            int celda = estado * n + entrada;
+            int destino = siguiente.get(celda);
+            if (destino == FSMCompilada.SIN_TRANSICION) {
+                break;
+            }
+            salidas[j++] = salida.get(celda);
+            estado = destino;
+            i++;
+        }
+
+        return new ResultadoLote(estado, i - desde);
+    }
+
+    /**
+     * Copia la FSM a una FSMCompilada en memoria del heap, sin recalcular nada
+     * Útil para usar cursores o ejecución paralela; EjecutorArchivo acepta la FSM mapeada directamente
+     * @return FSM compilada equivalente
+     */
+    public FSMCompilada compilar() {
+        int[] tablaSiguiente = new int[siguiente.capacity()];
+        int[] tablaSalida = new int[salida.capacity()];
+        siguiente.get(0, tablaSiguiente);
+        salida.get(0, tablaSalida);
+        return new FSMCompilada(tablaEstados(), tablaEntradas(), tablaSalidas(), tablaSiguiente, tablaSalida, estadoInicial);
+    }
+
+    private TablaSimbolos tablaEstados() {
+        TablaSimbolos tabla = estados;
+        if (tabla == null) {
+            synchronized (this) {
+                if (estados == null) {
+                    estados = leerSimbolos(TAMANO_ENCABEZADO, numEstados);
+                }
+                tabla = estados;
+            }
+        }
+        return tabla;
+    }
+
+    private TablaSimbolos tablaEntradas() {
+        TablaSimbolos tabla = entradas;
+        if (tabla == null) {
+            synchronized (this) {
+                if (entradas == null) {
+                    entradas = leerSimbolos(inicioEntradas, numEntradas);
+                }
+                tabla = entradas;
+            }
+        }
+        return tabla;
+    }
+
+    private TablaSimbolos tablaSalidas() {
+        TablaSimbolos tabla = salidas;
+        if (tabla == null) {
+            synchronized (this) {
+                if (salidas == null) {
+                    salidas = leerSimbolos(inicioSalidas, numSalidas);
+                }
+                tabla = salidas;
+            }
+        }
+        return tabla;
+    }
+
+    /**
+     * Decodifica una región de símbolos ya validada por el constructor
+     * @throws IllegalArgumentException Si un nombre se repite, ya que los ids de las tablas
+     *                                  dependen de la posición de cada símbolo
+     */
+    private TablaSimbolos leerSimbolos(int posicion, int cantidad) {
+        TablaSimbolos tabla = new TablaSimbolos(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            int longitud = datos.getInt(posicion);
+            byte[] bytes = new byte[longitud];
+            datos.get(posicion + Integer.BYTES, bytes);
+            String simbolo = new String(bytes, StandardCharsets.UTF_8);
+            if (tabla.agregar(simbolo) != i) {
+                throw new IllegalArgumentException("Símbolo repetido en el archivo FSM: " + simbolo);
+            }
+            posicion += Integer.BYTES + longitud;
+        }
+        return tabla;
+    }
+
+    /**
+     * Obtiene el id de un estado
+     * @param estado Nombre del estado
+     * @return Id del estado o -1 si no existe
+     */
+    public int idEstado(String estado) {
+        return tablaEstados().id(estado);
+    }
+
+    /**
+     * Obtiene el id de una entrada
+     * @param entrada Nombre de la entrada
+     * @return Id de la entrada o -1 si no existe
+     */
+    public int idEntrada(String entrada) {
+        return tablaEntradas().id(entrada);
+    }
+
+    // Getters
+    /**
+     * Obtiene el nombre de un estado
+     * Si la tabla de estados todavía no se decodificó, solo se lee ese nombre recorriendo las
+     * longitudes, para no crear un String por estado al mostrar un único resultado
+     * @param id Id del estado
+     * @return Nombre del estado
+     */
+    public String getEstado(int id) {
+        TablaSimbolos tabla = estados;
+        if (tabla != null) {
+            return tabla.nombre(id);
+        }
+        if (id < 0 || id >= numEstados) {
+            throw new IndexOutOfBoundsException("Id de símbolo no válido: " + id);
+        }
+        int posicion = TAMANO_ENCABEZADO;
+        for (int i = 0; i < id; i++) {
+            posicion += Integer.BYTES + datos.getInt(posicion);
+        }
+        byte[] bytes = new byte[datos.getInt(posicion)];
+        datos.get(posicion + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public String getEntrada(int id) {
+        return tablaEntradas().nombre(id);
+    }
+
+    public String getSalida(int id) {
+        return tablaSalidas().nombre(id);
+    }
+
+    public int getEstadoInicial() {
+        return estadoInicial;
+    }
+
+    public int getNumEstados() {
+        return numEstados;
+    }
+
+    public int getNumEntradas() {
+        return numEntradas;
+    }
+
+    public int getNumSalidas() {
+        return numSalidas;
+    }
+}
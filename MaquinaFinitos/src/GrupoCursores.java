@@ -0,0 +1,85 @@
+import java.util.Arrays;
+
+/**
+ * Conjunto de cursores sobre una misma FSM compilada
+ * Los estados de todos los cursores se guardan en un solo arreglo de enteros,
+ * por lo que cada cursor ocupa 4 bytes; útil para millones de sesiones concurrentes
+ * Cada cursor debe ser usado por un solo hilo a la vez
+ */
+public class GrupoCursores {
+    private final FSMCompilada fsm;
+    private final int[] estados;
+
+    /**
+     * Constructor del grupo, con todos los cursores en el estado inicial
+     * @param fsm FSM compilada compartida
+     * @param cantidad Número de cursores
+     */
+    public GrupoCursores(FSMCompilada fsm, int cantidad) {
+        if (cantidad < 0) {
+            throw new IllegalArgumentException("Cantidad de cursores no válida: " + cantidad);
+        }
+        this.fsm = fsm;
+        this.estados = new int[cantidad];
+        reiniciarTodos();
+    }
+
+    /**
+     * Procesa una entrada en uno de los cursores
+     * @param cursor Índice del cursor
+     * @param entrada Id de la entrada
+     * @return Id de la salida generada
+     * @throws IllegalArgumentException Si el id de entrada no es válido
+     * @throws IllegalStateException Si no existe transición para la entrada
+     */
+    public int procesar(int cursor, int entrada) {
+        int celda = fsm.celdaValida(estados[cursor], entrada);
+        estados[cursor] = fsm.siguiente[celda];
+        return fsm.salida[celda];
+    }
+
+    /**
+     * Reinicia un cursor al estado inicial
+     * @param cursor Índice del cursor
+     */
+    public void reiniciar(int cursor) {
+        estados[cursor] = fsm.getEstadoInicial();
+    }
+
+    /**
+     * Reinicia todos los cursores al estado inicial
+     */
+    public void reiniciarTodos() {
+        Arrays.fill(estados, fsm.getEstadoInicial());
+    }
+
+    /**
+     * Obtiene el estado actual de un cursor
+     * @param cursor Índice del cursor
+     * @return Id del estado actual
+     */
+    public int getEstado(int cursor) {
+        return estados[cursor];
+    }
+
+    /**
+     * Establece el estado actual de un cursor
+     * @param cursor Índice del cursor
+     * @param estado Id del estado
+     * @throws IllegalArgumentException Si el estado no es válido
+     */
+    public void setEstado(int cursor, int estado) {
+        if (estado < 0 || estado >= fsm.getNumEstados()) {
+            throw new IllegalArgumentException("Estado no válido: " + estado);
+        }
+        estados[cursor] = estado;
+    }
+
+    public int getCantidad() {
+        return estados.length;
+    }
+
+    public FSMCompilada getFSM() {
+        return fsm;
+    }
+}
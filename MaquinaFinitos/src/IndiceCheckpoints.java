@@ -0,0 +1,205 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Índice de puntos de control de una ejecución larga de una FSM compilada
+ * Guarda el estado cada N entradas, así que para conocer el estado en cualquier posición
+ * o las salidas de un rango basta con reproducir a lo más N entradas desde el punto de
+ * control anterior en lugar de toda la secuencia
+ */
+public class IndiceCheckpoints {
+    private static final int MAGIA = 0x46534D4B;
+    private static final int VERSION = 1;
+    private static final String EXTENSION = ".ckpt";
+
+    private final FSMCompilada fsm;
+    private final int intervalo;
+    private final int[] estados;
+    private final int longitud;
+
+    IndiceCheckpoints(FSMCompilada fsm, int intervalo, int[] estados, int longitud) {
+        this.fsm = fsm;
+        this.intervalo = intervalo;
+        this.estados = estados;
+        this.longitud = longitud;
+    }
+
+    /**
+     * Procesa una secuencia guardando un punto de control cada intervalo entradas
+     * La ejecución termina al final de la secuencia o en la primera entrada sin transición
+     * @param fsm FSM compilada
+     * @param estado Id del estado desde el cual empezar
+     * @param entradas Ids de las entradas
+     * @param salidas Arreglo donde escribir las salidas (al menos del tamaño de entradas)
+     * @param intervalo Entradas entre puntos de control
+     * @return Índice de la ejecución; getLongitud indica cuántas entradas se procesaron
+     * @throws IllegalArgumentException Si algún id de entrada no es válido
+     */
+    public static IndiceCheckpoints construir(FSMCompilada fsm, int estado, int[] entradas, int[] salidas, int intervalo) {
+        if (intervalo <= 0) {
+            throw new IllegalArgumentException("Intervalo no válido: " + intervalo);
+        }
+        int[] estados = new int[entradas.length / intervalo + 1];
+        int puntos = 0;
+        int procesados = 0;
+
+        while (true) {
+            estados[puntos++] = estado;
+            int hasta = (int) Math.min(entradas.length, (long) procesados + intervalo);
+            ResultadoLote lote = fsm.procesarLote(estado, entradas, procesados, hasta, salidas, procesados);
+            estado = lote.getEstadoFinal();
+            procesados += lote.getProcesados();
+            if (procesados < hasta || procesados == entradas.length) {
+                break;
+            }
+        }
+        // Punto de control del final si cae justo en un múltiplo del intervalo
+        if (procesados % intervalo == 0 && procesados / intervalo == puntos) {
+            estados[puntos++] = estado;
+        }
+        return new IndiceCheckpoints(fsm, intervalo, Arrays.copyOf(estados, puntos), procesados);
+    }
+
+    /**
+     * Obtiene el estado de la máquina antes de procesar la entrada de una posición
+     * @param entradas Ids de las entradas con las que se construyó el índice
+     * @param posicion Posición entre 0 y getLongitud() (esta última da el estado final)
+     * @return Id del estado
+     */
+    public int estadoEn(int[] entradas, int posicion) {
+        validarRango(entradas, posicion, 0);
+        int punto = posicion / intervalo;
+        int estado = estados[punto];
+        int[] siguiente = fsm.siguiente;
+        int n = fsm.numEntradas;
+        for (int i = punto * intervalo; i < posicion; i++) {
+            estado = siguiente[estado * n + entradas[i]];
+        }
+        return estado;
+    }
+
+    /**
+     * Obtiene las salidas de un rango de posiciones
+     * @param entradas Ids de las entradas con las que se construyó el índice
+     * @param desde Primera posición del rango
+     * @param cantidad Número de salidas
+     * @param salidas Arreglo donde escribir las salidas, desde su posición 0
+     * @return Estado al final del rango
+     */
+    public int salidas(int[] entradas, int desde, int cantidad, int[] salidas) {
+        validarRango(entradas, desde, cantidad);
+        int estado = estadoEn(entradas, desde);
+        return fsm.procesarLote(estado, entradas, desde, desde + cantidad, salidas, 0).getEstadoFinal();
+    }
+
+    private void validarRango(int[] entradas, int desde, int cantidad) {
+        if (entradas.length < longitud) {
+            throw new IllegalArgumentException("La secuencia es más corta que la indexada: " + entradas.length);
+        }
+        if (desde < 0 || cantidad < 0 || (long) desde + cantidad > longitud) {
+            throw new IndexOutOfBoundsException("Rango fuera de la ejecución indexada: " + desde + " + " + cantidad
+                    + " (longitud " + longitud + ")");
+        }
+    }
+
+    /**
+     * Obtiene la ruta del índice junto a un archivo de entradas (mismo nombre con extensión .ckpt)
+     * @param entradas Archivo de entradas
+     * @return Ruta del archivo de índice
+     */
+    public static Path rutaJunto(Path entradas) {
+        return entradas.resolveSibling(entradas.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Guarda el índice en un archivo binario
+     * Incluye una huella de la FSM para detectar al cargar que se usa con otra máquina
+     * @param archivo Archivo de destino (se crea o sobrescribe)
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public void guardar(Path archivo) throws IOException {
+        try (DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(archivo)))) {
+            salida.writeInt(MAGIA);
+            salida.writeInt(VERSION);
+            salida.writeInt(huella(fsm));
+            salida.writeInt(intervalo);
+            salida.writeInt(longitud);
+            salida.writeInt(estados.length);
+            for (int estado : estados) {
+                salida.writeInt(estado);
+            }
+        }
+    }
+
+    /**
+     * Carga un índice guardado con guardar
+     * @param archivo Archivo de índice
+     * @param fsm FSM compilada con la que se construyó el índice
+     * @return Índice cargado
+     * @throws IOException Si ocurre un error de lectura
+     * @throws IllegalArgumentException Si el archivo no es un índice o corresponde a otra FSM
+     */
+    public static IndiceCheckpoints cargar(Path archivo, FSMCompilada fsm) throws IOException {
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(archivo)))) {
+            if (entrada.readInt() != MAGIA) {
+                throw new IllegalArgumentException("El archivo no es un índice de puntos de control");
+            }
+            int version = entrada.readInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Versión de índice no soportada: " + version);
+            }
+            if (entrada.readInt() != huella(fsm)) {
+                throw new IllegalArgumentException("El índice fue generado con otra FSM");
+            }
+            int intervalo = entrada.readInt();
+            int longitud = entrada.readInt();
+            int puntos = entrada.readInt();
+            if (intervalo <= 0 || longitud < 0 || puntos != longitud / intervalo + 1) {
+                throw new IllegalArgumentException("Índice de puntos de control inconsistente");
+            }
+            int[] estados = new int[puntos];
+            for (int i = 0; i < puntos; i++) {
+                estados[i] = entrada.readInt();
+                if (estados[i] < 0 || estados[i] >= fsm.getNumEstados()) {
+                    throw new IllegalArgumentException("Estado no válido en el índice: " + estados[i]);
+                }
+            }
+            return new IndiceCheckpoints(fsm, intervalo, estados, longitud);
+        }
+    }
+
+    /**
+     * Huella de las tablas de una FSM compilada
+     */
+    private static int huella(FSMCompilada fsm) {
+        int huella = 31 * Arrays.hashCode(fsm.siguiente) + Arrays.hashCode(fsm.salida);
+        return 31 * huella + fsm.numEntradas;
+    }
+
+    // Getters
+    public int getIntervalo() {
+        return intervalo;
+    }
+
+    /**
+     * Obtiene cuántas entradas procesó la ejecución indexada
+     * @return Número de entradas
+     */
+    public int getLongitud() {
+        return longitud;
+    }
+
+    public int getNumPuntos() {
+        return estados.length;
+    }
+
+    public FSMCompilada getFSM() {
+        return fsm;
+    }
+}
@@ -1,4 +1,8 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Scanner;
+import java.util.function.IntFunction;
 
 /**
  * Clase principal para demostrar el uso de la FSM
@@ -7,17 +11,45 @@ import java.util.Scanner;
 public class Main {
     private static Scanner scanner = new Scanner(System.in);
     private static StringBuilder stringFinal = new StringBuilder();
+    private static final int CAPACIDAD_TRAZA = 32;
+    // Se conserva entre llamadas al menú para reutilizar los diagramas ya generados
+    private static DiagramaFSM diagrama;
 
+    /**
+     * Punto de entrada
+     * Sin argumentos la FSM se define de forma interactiva.
+     * Con un argumento se carga la definición desde ese archivo.
+     * Con tres argumentos (definición, entradas, salidas) se procesa el archivo de entradas sin interacción;
+     * la definición puede ser de texto o binaria (.fsmc).
+     * Con --compilar definicion.txt maquina.fsmc se genera la definición binaria
+     * @param args Argumentos de la línea de comandos
+     */
     public static void main(String[] args) {
+        if (args.length == 3 && args[0].equals("--compilar")) {
+            compilarDefinicion(args[1], args[2]);
+            return;
+        }
+        if (args.length == 3) {
+            ejecutarSinInteraccion(args[0], args[1], args[2]);
+            return;
+        }
+
         System.out.println("=== Máquina de Estados Finita (FSM) ===");
         System.out.println("Bienvenido al simulador de FSM\n");
 
         try {
-            // Crear la FSM
-            FSM fsm = crearFSM();
-
-            // Configurar transiciones
-            configurarTransiciones(fsm);
+            FSM fsm;
+            if (args.length == 1) {
+                // Cargar la FSM desde el archivo de definición
+                fsm = CargadorFSM.cargar(Paths.get(args[0]));
+                System.out.println("FSM cargada desde: " + args[0]);
+            } else {
+                // Crear la FSM
+                fsm = crearFSM();
+
+                // Configurar transiciones
+                configurarTransiciones(fsm);
+            }
 
             // Mostrar información de la FSM
             System.out.println("\n" + fsm.getInformacion());
@@ -36,6 +68,62 @@ public class Main {
         }
     }
 
+    /**
+     * Carga la FSM de un archivo de definición y procesa un archivo de entradas completo
+     * @param definicion Archivo de definición de la FSM
+     * @param entradas Archivo de entradas
+     * @param salidas Archivo donde escribir las salidas
+     */
+    private static void ejecutarSinInteraccion(String definicion, String entradas, String salidas) {
+        try {
+            Path archivo = Paths.get(definicion);
+            EjecutorArchivo ejecutor;
+            int estadoInicial;
+            IntFunction<String> nombreEstado;
+            if (archivo.toString().endsWith(".fsmc")) {
+                // Se ejecuta sobre el archivo mapeado sin copiar las tablas al heap
+                FSMMapeada mapeada = FSMMapeada.abrir(archivo);
+                ejecutor = new EjecutorArchivo(mapeada);
+                estadoInicial = mapeada.getEstadoInicial();
+                nombreEstado = mapeada::getEstado;
+            } else {
+                FSMCompilada compilada = CargadorFSM.cargar(archivo).compilar();
+                ejecutor = new EjecutorArchivo(compilada);
+                estadoInicial = compilada.getEstadoInicial();
+                nombreEstado = compilada::getEstado;
+            }
+            EjecutorArchivo.Resultado resultado = ejecutor.ejecutar(Paths.get(entradas), Paths.get(salidas), estadoInicial);
+            System.out.println("Entradas procesadas: " + resultado.getProcesados());
+            System.out.println("Bytes de salida escritos: " + resultado.getBytesEscritos());
+            System.out.println("Estado final: " + nombreEstado.apply(resultado.getEstadoFinal()));
+        } catch (IOException e) {
+            System.err.println("Error de archivo: " + e.getMessage());
+            System.exit(1);
+        } catch (RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Convierte una definición de texto al formato binario compilado
+     * @param definicion Archivo de definición de texto
+     * @param destino Archivo binario a generar
+     */
+    private static void compilarDefinicion(String definicion, String destino) {
+        try {
+            FSMCompilada compilada = CargadorFSM.cargar(Paths.get(definicion)).compilar();
+            FSMMapeada.guardar(compilada, Paths.get(destino));
+            System.out.println("FSM compilada guardada en: " + destino);
+        } catch (IOException e) {
+            System.err.println("Error de archivo: " + e.getMessage());
+            System.exit(1);
+        } catch (RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
     /**
      * Crea una nueva FSM solicitando los datos al usuario
      * @return FSM creada
@@ -158,6 +246,9 @@ public class Main {
         System.out.println("- 'string': muestra el string acumulado");
         System.out.println("- 'limpiar': limpia el string acumulado");
         System.out.println("- 'diagrama': muestra el diagrama de la FSM");
+        System.out.println("- 'archivo': procesa un archivo de entradas y guarda las salidas en otro");
+        System.out.println("- 'perfil': activa o desactiva el conteo de transiciones usadas");
+        System.out.println("- 'traza': activa la traza de las últimas transiciones o la muestra ('traza off' la desactiva)");
         System.out.println("- 'salir': termina el programa");
 
         System.out.println("\nEstado inicial: " + fsm.getEstadoInicial());
@@ -186,6 +277,9 @@ public class Main {
                 System.out.println("String acumulado: " + stringFinal.toString());
             } catch (Exception e) {
                 System.out.println("✗ Error: " + e.getMessage());
+                if (fsm.getTraza() != null) {
+                    System.out.print(fsm.getTraza().volcar(fsm.compilar()));
+                }
             }
         }
     }
@@ -239,6 +333,34 @@ public class Main {
                 mostrarMenuDiagramas(fsm);
                 return true;
 
+            case "archivo":
+                procesarArchivo(fsm);
+                return true;
+
+            case "traza":
+                if (fsm.getTraza() == null) {
+                    fsm.activarTraza(CAPACIDAD_TRAZA);
+                    System.out.println("✓ Traza activada: se conservan las últimas " + CAPACIDAD_TRAZA + " transiciones.");
+                } else {
+                    System.out.print(fsm.getTraza().volcar(fsm.compilar()));
+                }
+                return true;
+
+            case "traza off":
+                fsm.desactivarTraza();
+                System.out.println("✓ Traza desactivada.");
+                return true;
+
+            case "perfil":
+                if (fsm.getPerfil() == null) {
+                    fsm.activarPerfil();
+                    System.out.println("✓ Perfil de ejecución activado. Se muestra en las estadísticas y el código DOT.");
+                } else {
+                    fsm.desactivarPerfil();
+                    System.out.println("✓ Perfil de ejecución desactivado.");
+                }
+                return true;
+
             case "help":
             case "ayuda":
                 mostrarAyuda();
@@ -249,6 +371,31 @@ public class Main {
         }
     }
 
+    /**
+     * Procesa un archivo de entradas desde el estado inicial sin cargarlo en memoria
+     * Las salidas se escriben en un archivo en lugar del string acumulado
+     * @param fsm FSM con la que procesar el archivo
+     */
+    private static void procesarArchivo(FSM fsm) {
+        System.out.print("Archivo de entradas: ");
+        Path entrada = Paths.get(scanner.nextLine().trim());
+        System.out.print("Archivo de salidas: ");
+        Path salida = Paths.get(scanner.nextLine().trim());
+
+        try {
+            FSMCompilada compilada = fsm.compilar();
+            EjecutorArchivo.Resultado resultado = new EjecutorArchivo(compilada)
+                    .ejecutar(entrada, salida, compilada.getEstadoInicial());
+            System.out.println("✓ Entradas procesadas: " + resultado.getProcesados());
+            System.out.println("✓ Bytes de salida escritos: " + resultado.getBytesEscritos());
+            System.out.println("Estado final: " + compilada.getEstado(resultado.getEstadoFinal()));
+        } catch (IOException e) {
+            System.out.println("✗ Error de archivo: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.out.println("✗ Error: " + e.getMessage());
+        }
+    }
+
     /**
      * Muestra la ayuda con los comandos disponibles
      */
@@ -262,6 +409,9 @@ public class Main {
         System.out.println("- string: Muestra el string acumulado y su longitud");
         System.out.println("- limpiar: Limpia el string acumulado");
         System.out.println("- diagrama: Muestra opciones de diagramas");
+        System.out.println("- archivo: Procesa un archivo de entradas desde el estado inicial");
+        System.out.println("- perfil: Activa o desactiva el perfil de ejecución");
+        System.out.println("- traza: Activa o muestra la traza de las últimas transiciones; 'traza off' la desactiva");
         System.out.println("- ayuda: Muestra esta ayuda");
         System.out.println("- salir: Termina el programa");
     }
@@ -298,7 +448,9 @@ public class Main {
      * @param fsm FSM para generar diagramas
      */
     private static void mostrarMenuDiagramas(FSM fsm) {
-        DiagramaFSM diagrama = new DiagramaFSM(fsm);
+        if (diagrama == null || diagrama.getFSM() != fsm) {
+            diagrama = new DiagramaFSM(fsm);
+        }
 
         System.out.println("\n=== MENÚ DE DIAGRAMAS ===");
         System.out.println("1. Diagrama de texto ASCII");
@@ -309,6 +461,7 @@ public class Main {
         //System.out.println("6. Mostrar todos los diagramas");
         //System.out.println("7. Guardar diagrama DOT");
         //System.out.println("8. Guardar todos los diagramas");
+        System.out.println("9. Análisis de alcanzabilidad y componentes");
         System.out.println("0. Volver al menú principal");
 
         System.out.print("Seleccione una opción: ");
@@ -365,6 +518,10 @@ public class Main {
                 }
                 break;
 
+            case "9":
+                System.out.println("\n" + diagrama.generarAnalisis());
+                break;
+
             case "0":
                 return;
 
@@ -0,0 +1,390 @@
+import java.util.*;
+
+/**
+ * Minimización de FSM de Mealy con el algoritmo de refinamiento de Hopcroft, O(n·m·log n)
+ * Dos estados son equivalentes si para toda secuencia de entradas producen las mismas salidas.
+ * Las transiciones no definidas se tratan como ir a un estado sumidero sin salida, de modo que
+ * solo se fusionan estados que fallan con las mismas secuencias
+ */
+public class MinimizadorFSM {
+
+    private MinimizadorFSM() {
+    }
+
+    /**
+     * Minimiza una FSM
+     * @param fsm FSM a minimizar (no se modifica)
+     * @return FSM minimizada y la correspondencia entre estados originales y nuevos
+     */
+    public static Resultado minimizar(FSM fsm) {
+        FSMCompilada compilada = fsm.compilar();
+        int n = compilada.getNumEstados();
+        int m = compilada.getNumEntradas();
+        int total = n + 1;    // El estado n es el sumidero de las transiciones no definidas
+        int sumidero = n;
+
+        int[] bloque = particionInicial(compilada, n, m);
+        int numBloques = 0;
+        for (int b : bloque) {
+            numBloques = Math.max(numBloques, b + 1);
+        }
+
+        Particion particion = new Particion(bloque, numBloques, total);
+        int[][] inversas = construirInversas(compilada, n, m, sumidero);
+        refinar(particion, inversas, m);
+
+        return construirResultado(fsm, compilada, particion.bloqueDe, sumidero);
+    }
+
+    /**
+     * Agrupa los estados según la fila de salidas que producen para cada entrada
+     * Las filas se ordenan con una ordenación por conteo estable por cada columna, de la última
+     * a la primera, así que el costo es O(m·(n + numSalidas)) sin comparaciones de filas
+     * @return Bloque inicial de cada estado, incluido el sumidero
+     */
+    private static int[] particionInicial(FSMCompilada compilada, int n, int m) {
+        int[] salida = compilada.salida;
+        int[] orden = new int[n + 1];
+        int[] auxiliar = new int[n + 1];
+        // Clave de una celda: id de salida + 1, con 0 para las indefinidas
+        int[] cuenta = new int[compilada.getNumSalidas() + 2];
+        for (int s = 0; s <= n; s++) {
+            orden[s] = s;
+        }
+
+        for (int x = m - 1; x >= 0; x--) {
+            Arrays.fill(cuenta, 0);
+            for (int s = 0; s <= n; s++) {
+                cuenta[claveSalida(salida, s, x, n, m) + 1]++;
+            }
+            for (int k = 1; k < cuenta.length; k++) {
+                cuenta[k] += cuenta[k - 1];
+            }
+            for (int s : orden) {
+                auxiliar[cuenta[claveSalida(salida, s, x, n, m)]++] = s;
+            }
+            int[] t = orden;
+            orden = auxiliar;
+            auxiliar = t;
+        }
+
+        int[] bloque = new int[n + 1];
+        int actual = 0;
+        for (int i = 0; i <= n; i++) {
+            if (i > 0 && !mismasSalidas(salida, orden[i - 1], orden[i], n, m)) {
+                actual++;
+            }
+            bloque[orden[i]] = actual;
+        }
+        return bloque;
+    }
+
+    /**
+     * Clave de ordenación de la salida de un estado con una entrada
+     * El sumidero tiene todas sus salidas indefinidas
+     */
+    private static int claveSalida(int[] salida, int s, int x, int n, int m) {
+        return s == n ? 0 : salida[s * m + x] + 1;
+    }
+
+    private static boolean mismasSalidas(int[] salida, int a, int b, int n, int m) {
+        for (int x = 0; x < m; x++) {
+            if (claveSalida(salida, a, x, n, m) != claveSalida(salida, b, x, n, m)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Construye las transiciones inversas por entrada en formato compacto
+     * inversas[x] contiene desplazamientos seguidos de predecesores: los predecesores de t con x
+     * están entre inversas[x][t] e inversas[x][t + 1], a partir de la posición total + 1
+     */
+    private static int[][] construirInversas(FSMCompilada compilada, int n, int m, int sumidero) {
+        int total = n + 1;
+        int[] siguiente = compilada.siguiente;
+        int[][] inversas = new int[m][];
+
+        for (int x = 0; x < m; x++) {
+            int[] inversa = new int[total + 1 + total];
+            for (int s = 0; s < total; s++) {
+                inversa[destino(siguiente, s, x, m, sumidero) + 1]++;
+            }
+            for (int t = 0; t < total; t++) {
+                inversa[t + 1] += inversa[t];
+            }
+            int[] llenado = Arrays.copyOf(inversa, total);
+            for (int s = 0; s < total; s++) {
+                int t = destino(siguiente, s, x, m, sumidero);
+                inversa[total + 1 + llenado[t]++] = s;
+            }
+            inversas[x] = inversa;
+        }
+        return inversas;
+    }
+
+    private static int destino(int[] siguiente, int s, int x, int m, int sumidero) {
+        if (s == sumidero) {
+            return sumidero;
+        }
+        int t = siguiente[s * m + x];
+        return t == FSMCompilada.SIN_TRANSICION ? sumidero : t;
+    }
+
+    /**
+     * Refina la partición hasta que sea estable respecto a todas las entradas
+     * Se usa la regla de Hopcroft: al dividir un bloque que no está pendiente como divisor,
+     * solo se agrega la mitad más pequeña
+     */
+    private static void refinar(Particion particion, int[][] inversas, int m) {
+        int total = particion.elementos.length;
+        boolean[] pendiente = new boolean[total * m];
+        ArrayDeque<Integer> trabajo = new ArrayDeque<>();
+
+        // Todos los bloques iniciales salvo el más grande
+        int mayor = 0;
+        for (int b = 1; b < particion.numBloques; b++) {
+            if (particion.tamano(b) > particion.tamano(mayor)) {
+                mayor = b;
+            }
+        }
+        for (int b = 0; b < particion.numBloques; b++) {
+            if (b != mayor) {
+                for (int x = 0; x < m; x++) {
+                    pendiente[b * m + x] = true;
+                    trabajo.add(b * m + x);
+                }
+            }
+        }
+
+        int[] divisor = new int[total];
+        int[] tocados = new int[total];
+        while (!trabajo.isEmpty()) {
+            int clave = trabajo.poll();
+            pendiente[clave] = false;
+            int c = clave / m;
+            int x = clave % m;
+            int[] inversa = inversas[x];
+
+            // Copia del divisor, porque marcar puede reordenar sus elementos
+            int tamanoDivisor = particion.tamano(c);
+            System.arraycopy(particion.elementos, particion.inicio[c], divisor, 0, tamanoDivisor);
+
+            int numTocados = 0;
+            for (int k = 0; k < tamanoDivisor; k++) {
+                int t = divisor[k];
+                for (int p = inversa[t]; p < inversa[t + 1]; p++) {
+                    int b = particion.marcar(inversa[total + 1 + p]);
+                    if (b >= 0) {
+                        tocados[numTocados++] = b;
+                    }
+                }
+            }
+
+            for (int k = 0; k < numTocados; k++) {
+                int b = tocados[k];
+                int nuevo = particion.dividir(b);
+                if (nuevo < 0) {
+                    continue;
+                }
+                for (int y = 0; y < m; y++) {
+                    int claveNueva = nuevo * m + y;
+                    if (pendiente[b * m + y]) {
+                        pendiente[claveNueva] = true;
+                        trabajo.add(claveNueva);
+                    } else {
+                        int menor = particion.tamano(nuevo) <= particion.tamano(b) ? nuevo : b;
+                        if (!pendiente[menor * m + y]) {
+                            pendiente[menor * m + y] = true;
+                            trabajo.add(menor * m + y);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Construye la FSM minimizada a partir de los bloques finales
+     * Cada estado nuevo toma el nombre del primer estado original de su bloque
+     */
+    private static Resultado construirResultado(FSM original, FSMCompilada compilada, int[] bloqueDe, int sumidero) {
+        int n = compilada.getNumEstados();
+        int m = compilada.getNumEntradas();
+
+        // Numerar los bloques en el orden de los estados originales, omitiendo el sumidero puro
+        int[] nuevoId = new int[bloqueDe.length];
+        Arrays.fill(nuevoId, -1);
+        int[] representante = new int[n];
+        int numNuevos = 0;
+        int[] mapa = new int[n];
+        for (int s = 0; s < n; s++) {
+            int b = bloqueDe[s];
+            if (nuevoId[b] < 0) {
+                nuevoId[b] = numNuevos;
+                representante[numNuevos++] = s;
+            }
+            mapa[s] = nuevoId[b];
+        }
+
+        String[] estados = new String[numNuevos];
+        for (int i = 0; i < numNuevos; i++) {
+            estados[i] = compilada.getEstado(representante[i]);
+        }
+
+        FSM minimizada = new FSM(original.getEntradas(), original.getSalidas(), estados);
+        for (int i = 0; i < numNuevos; i++) {
+            int s = representante[i];
+            for (int x = 0; x < m; x++) {
+                int t = compilada.siguiente(s, x);
+                if (t != FSMCompilada.SIN_TRANSICION) {
+                    minimizada.agregarTransicion(estados[i], compilada.getEntrada(x),
+                            estados[mapa[t]], compilada.getSalida(compilada.salida(s, x)));
+                }
+            }
+        }
+        if (compilada.getEstadoInicial() >= 0) {
+            minimizada.setEstadoInicial(estados[mapa[compilada.getEstadoInicial()]]);
+        }
+
+        return new Resultado(minimizada, compilada, mapa);
+    }
+
+    /**
+     * Partición refinable de los estados
+     * Los elementos de cada bloque ocupan un rango contiguo de elementos; los marcados
+     * se mueven al principio del rango
+     */
+    private static class Particion {
+        final int[] elementos;
+        final int[] posicion;
+        final int[] bloqueDe;
+        final int[] inicio;
+        final int[] fin;
+        final int[] marcados;
+        int numBloques;
+
+        Particion(int[] bloqueInicial, int numBloquesIniciales, int total) {
+            elementos = new int[total];
+            posicion = new int[total];
+            bloqueDe = bloqueInicial;
+            inicio = new int[total];
+            fin = new int[total];
+            marcados = new int[total];
+            numBloques = numBloquesIniciales;
+
+            int[] tamanos = new int[numBloques];
+            for (int b : bloqueDe) {
+                tamanos[b]++;
+            }
+            int acumulado = 0;
+            for (int b = 0; b < numBloques; b++) {
+                inicio[b] = acumulado;
+                fin[b] = acumulado;
+                acumulado += tamanos[b];
+            }
+            for (int s = 0; s < total; s++) {
+                int b = bloqueDe[s];
+                elementos[fin[b]] = s;
+                posicion[s] = fin[b]++;
+            }
+        }
+
+        int tamano(int b) {
+            return fin[b] - inicio[b];
+        }
+
+        /**
+         * Marca un estado moviéndolo a la zona de marcados de su bloque
+         * @return Bloque del estado si es el primero marcado en él, -1 en otro caso
+         */
+        int marcar(int s) {
+            int b = bloqueDe[s];
+            int destino = inicio[b] + marcados[b];
+            int p = posicion[s];
+            if (p < destino) {
+                return -1;    // Ya estaba marcado
+            }
+            int otro = elementos[destino];
+            elementos[destino] = s;
+            posicion[s] = destino;
+            elementos[p] = otro;
+            posicion[otro] = p;
+            return marcados[b]++ == 0 ? b : -1;
+        }
+
+        /**
+         * Separa los estados marcados de un bloque en un bloque nuevo
+         * @return Id del bloque nuevo o -1 si el bloque no se dividió
+         */
+        int dividir(int b) {
+            int cantidad = marcados[b];
+            marcados[b] = 0;
+            if (cantidad == tamano(b)) {
+                return -1;
+            }
+            int nuevo = numBloques++;
+            inicio[nuevo] = inicio[b];
+            fin[nuevo] = inicio[b] + cantidad;
+            inicio[b] = fin[nuevo];
+            for (int p = inicio[nuevo]; p < fin[nuevo]; p++) {
+                bloqueDe[elementos[p]] = nuevo;
+            }
+            return nuevo;
+        }
+    }
+
+    /**
+     * Resultado de la minimización
+     */
+    public static class Resultado {
+        private final FSM fsm;
+        private final FSMCompilada original;
+        private final int[] mapa;
+
+        Resultado(FSM fsm, FSMCompilada original, int[] mapa) {
+            this.fsm = fsm;
+            this.original = original;
+            this.mapa = mapa;
+        }
+
+        /**
+         * Obtiene la FSM minimizada
+         * @return FSM minimizada
+         */
+        public FSM getFSM() {
+            return fsm;
+        }
+
+        /**
+         * Obtiene la correspondencia de estados por id
+         * @return Arreglo indexado por id de estado original con el id del estado nuevo
+         */
+        public int[] getMapa() {
+            return mapa.clone();
+        }
+
+        /**
+         * Obtiene el estado de la FSM minimizada que corresponde a un estado original
+         * @param estadoOriginal Nombre del estado en la FSM original
+         * @return Nombre del estado equivalente en la FSM minimizada
+         * @throws IllegalArgumentException Si el estado no existe en la FSM original
+         */
+        public String getEstadoNuevo(String estadoOriginal) {
+            int id = original.idEstado(estadoOriginal);
+            if (id < 0) {
+                throw new IllegalArgumentException("Estado no válido: " + estadoOriginal);
+            }
+            return fsm.getEstados()[mapa[id]];
+        }
+
+        public int getEstadosOriginales() {
+            return mapa.length;
+        }
+
+        public int getEstadosMinimizados() {
+            return fsm.getEstados().length;
+        }
+    }
+}
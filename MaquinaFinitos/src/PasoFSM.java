@@ -0,0 +1,31 @@
+/**
+ * Función de paso de una FSM compilada
+ * La implementa tanto el intérprete de tablas como el código generado por FSMJit
+ */
+public interface PasoFSM {
+    /**
+     * Valor devuelto por paso cuando no hay transición definida
+     */
+    int SIN_TRANSICION = -1;
+
+    /**
+     * Calcula una transición
+     * El empaquetado es válido para máquinas de hasta 32767 estados y 65535 salidas
+     * @param estado Id del estado origen
+     * @param entrada Id de la entrada
+     * @return (destino << 16) | salida, o SIN_TRANSICION si no existe la transición
+     */
+    int paso(int estado, int entrada);
+
+    /**
+     * Procesa un lote de entradas deteniéndose en la primera sin transición o con id no válido
+     * @param estado Id del estado desde el cual empezar
+     * @param entradas Ids de las entradas
+     * @param desde Posición inicial (inclusiva) en entradas
+     * @param hasta Posición final (exclusiva) en entradas
+     * @param salidas Arreglo donde escribir los ids de salida
+     * @param offsetSalidas Posición de salidas donde escribir la primera salida
+     * @return (estadoFinal << 32) | procesados
+     */
+    long lote(int estado, int[] entradas, int desde, int hasta, int[] salidas, int offsetSalidas);
+}
@@ -0,0 +1,382 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Contadores de ejecución de una FSM: cuántas veces se usó cada celda (estado, entrada)
+ * y cuántas veces se encontró una transición no definida en cada estado
+ * Cada hilo incrementa sus propios contadores sin sincronización; al consultar se suman
+ * los de todos los hilos, por lo que una lectura concurrente puede no incluir los
+ * incrementos más recientes. Las visitas a un estado son los pasos dados desde él,
+ * es decir, la suma de su fila de celdas más sus errores
+ * Hasta MAXIMO_DENSO celdas los contadores son un arreglo; en máquinas más grandes son una
+ * tabla hash que solo guarda las celdas usadas, así la memoria del perfil depende de lo
+ * ejecutado y no del tamaño de la máquina
+ */
+public class PerfilFSM {
+    /**
+     * Número máximo de celdas (o estados) con contadores en arreglo, 512 KB por hilo
+     */
+    static final int MAXIMO_DENSO = 1 << 16;
+
+    private final int numEstados;
+    private final int numEntradas;
+    private final List<Contadores> todos = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Contadores> porHilo = ThreadLocal.withInitial(this::nuevosContadores);
+
+    /**
+     * Contadores de un solo hilo
+     */
+    private static class Contadores {
+        final Conteo celdas;
+        final Conteo errores;
+
+        Contadores(long celdas, int estados) {
+            this.celdas = new Conteo(celdas);
+            this.errores = new Conteo(estados);
+        }
+    }
+
+    /**
+     * Conteo por clave no negativa: un arreglo indexado por clave si el rango es pequeño,
+     * o una tabla hash con sondeo lineal que crece según las claves usadas
+     * Se recorre por ranuras; en la tabla hash las ranuras vacías tienen valor 0
+     */
+    private static class Conteo {
+        private static final int CAPACIDAD_INICIAL = 64;
+
+        private final long rango;
+        private long[] denso;
+        private int[] claves;       // clave + 1, 0 si la ranura está vacía
+        private long[] valores;
+        private int ocupadas;
+
+        Conteo(long rango) {
+            this.rango = rango;
+            reiniciar();
+        }
+
+        void reiniciar() {
+            if (rango <= MAXIMO_DENSO) {
+                if (denso == null) {
+                    denso = new long[(int) rango];
+                } else {
+                    Arrays.fill(denso, 0);
+                }
+            } else {
+                claves = new int[CAPACIDAD_INICIAL];
+                valores = new long[CAPACIDAD_INICIAL];
+                ocupadas = 0;
+            }
+        }
+
+        void incrementar(int clave) {
+            if (denso != null) {
+                denso[clave]++;
+            } else {
+                // ranura puede reemplazar valores al crecer, así que se obtiene antes
+                int r = ranura(clave);
+                valores[r]++;
+            }
+        }
+
+        void sumar(int clave, long cantidad) {
+            if (denso != null) {
+                denso[clave] += cantidad;
+            } else {
+                int r = ranura(clave);
+                valores[r] += cantidad;
+            }
+        }
+
+        long get(int clave) {
+            if (denso != null) {
+                return denso[clave];
+            }
+            int mascara = claves.length - 1;
+            for (int r = mezclar(clave) & mascara; claves[r] != 0; r = (r + 1) & mascara) {
+                if (claves[r] == clave + 1) {
+                    return valores[r];
+                }
+            }
+            return 0;
+        }
+
+        int ranuras() {
+            return denso != null ? denso.length : claves.length;
+        }
+
+        int clave(int ranura) {
+            return denso != null ? ranura : claves[ranura] - 1;
+        }
+
+        long valor(int ranura) {
+            return denso != null ? denso[ranura] : valores[ranura];
+        }
+
+        /**
+         * Ranura de una clave, ocupándola si no estaba; la tabla se duplica al llegar a la mitad
+         */
+        private int ranura(int clave) {
+            int mascara = claves.length - 1;
+            int r = mezclar(clave) & mascara;
+            while (claves[r] != 0) {
+                if (claves[r] == clave + 1) {
+                    return r;
+                }
+                r = (r + 1) & mascara;
+            }
+            if (2 * (ocupadas + 1) > claves.length) {
+                crecer();
+                return ranura(clave);
+            }
+            claves[r] = clave + 1;
+            ocupadas++;
+            return r;
+        }
+
+        private void crecer() {
+            int[] clavesViejas = claves;
+            long[] valoresViejos = valores;
+            claves = new int[2 * clavesViejas.length];
+            valores = new long[2 * valoresViejos.length];
+            ocupadas = 0;
+            for (int r = 0; r < clavesViejas.length; r++) {
+                if (clavesViejas[r] != 0) {
+                    int nueva = ranura(clavesViejas[r] - 1);
+                    valores[nueva] = valoresViejos[r];
+                }
+            }
+        }
+
+        private static int mezclar(int clave) {
+            int h = clave * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * Constructor del perfil
+     * @param numEstados Número de estados de la FSM
+     * @param numEntradas Número de entradas de la FSM
+     */
+    public PerfilFSM(int numEstados, int numEntradas) {
+        this.numEstados = numEstados;
+        this.numEntradas = numEntradas;
+    }
+
+    private Contadores nuevosContadores() {
+        Contadores contadores = new Contadores((long) numEstados * numEntradas, numEstados);
+        todos.add(contadores);
+        return contadores;
+    }
+
+    /**
+     * Registra el uso de una celda
+     * @param celda Índice estado * numEntradas + entrada
+     */
+    public void registrarCelda(int celda) {
+        porHilo.get().celdas.incrementar(celda);
+    }
+
+    /**
+     * Registra una transición no definida
+     * @param estado Id del estado en el que ocurrió
+     */
+    public void registrarError(int estado) {
+        porHilo.get().errores.incrementar(estado);
+    }
+
+    /**
+     * Registra las celdas usadas por un lote ya procesado
+     * Vuelve a recorrer las entradas procesadas, así el lote en sí se ejecuta sin contadores
+     * @param fsm FSM compilada con la que se procesó el lote
+     * @param estado Id del estado en el que empezó el lote
+     * @param entradas Ids de las entradas del lote
+     * @param desde Posición inicial del lote
+     * @param hasta Posición final (exclusiva) del lote
+     * @param resultado Resultado del lote
+     */
+    public void registrarLote(FSMCompilada fsm, int estado, int[] entradas, int desde, int hasta, ResultadoLote resultado) {
+        Contadores contadores = porHilo.get();
+        Conteo celdas = contadores.celdas;
+        int n = numEntradas;
+        int fin = desde + resultado.getProcesados();
+        for (int i = desde; i < fin; i++) {
+            int celda = estado * n + entradas[i];
+            celdas.incrementar(celda);
+            estado = fsm.siguiente[celda];
+        }
+        if (fin < hasta) {
+            contadores.errores.incrementar(estado);
+        }
+    }
+
+    /**
+     * Pone todos los contadores en cero y libera las tablas hash que hayan crecido
+     * No debe llamarse mientras otros hilos registran
+     */
+    public void reiniciar() {
+        for (Contadores contadores : todos) {
+            contadores.celdas.reiniciar();
+            contadores.errores.reiniciar();
+        }
+    }
+
+    /**
+     * Obtiene el número de usos de una celda
+     * @param estado Id del estado origen
+     * @param entrada Id de la entrada
+     * @return Veces que se tomó la transición
+     */
+    public long getUsos(int estado, int entrada) {
+        int celda = estado * numEntradas + entrada;
+        long total = 0;
+        for (Contadores contadores : todos) {
+            total += contadores.celdas.get(celda);
+        }
+        return total;
+    }
+
+    /**
+     * Suma los usos de las celdas de todos los hilos
+     * Con un solo hilo se devuelven sus contadores sin copiarlos
+     */
+    private Conteo usosSumados() {
+        if (todos.size() == 1) {
+            return todos.get(0).celdas;
+        }
+        Conteo suma = new Conteo((long) numEstados * numEntradas);
+        for (Contadores contadores : todos) {
+            Conteo celdas = contadores.celdas;
+            for (int r = 0; r < celdas.ranuras(); r++) {
+                if (celdas.valor(r) != 0) {
+                    suma.sumar(celdas.clave(r), celdas.valor(r));
+                }
+            }
+        }
+        return suma;
+    }
+
+    /**
+     * Obtiene el total de transiciones ejecutadas
+     * @return Suma de los usos de todas las celdas
+     */
+    public long getPasos() {
+        Conteo usos = usosSumados();
+        long pasos = 0;
+        for (int r = 0; r < usos.ranuras(); r++) {
+            pasos += usos.valor(r);
+        }
+        return pasos;
+    }
+
+    /**
+     * Obtiene el número de usos de la celda más usada
+     * @return Usos máximos, 0 si no se ejecutó nada
+     */
+    public long getMaximoUso() {
+        Conteo usos = usosSumados();
+        long maximo = 0;
+        for (int r = 0; r < usos.ranuras(); r++) {
+            maximo = Math.max(maximo, usos.valor(r));
+        }
+        return maximo;
+    }
+
+    /**
+     * Selecciona las celdas con más usos sin ordenar todas las celdas usadas
+     * Se recorre una vez manteniendo las mejores en un arreglo ordenado de tamaño fijo;
+     * a igual número de usos queda primero la celda menor
+     * @param limite Número máximo de celdas a devolver
+     * @return Celdas (estado * numEntradas + entrada) con usos mayores que cero, de más a menos usada
+     */
+    public int[] masUsadas(int limite) {
+        Conteo usos = usosSumados();
+        int[] mejores = new int[limite];
+        long[] usosMejores = new long[limite];
+        int cantidad = 0;
+        for (int r = 0; r < usos.ranuras(); r++) {
+            long uso = usos.valor(r);
+            int celda = usos.clave(r);
+            if (uso == 0 || (cantidad == limite && !antes(uso, celda, usosMejores[limite - 1], mejores[limite - 1]))) {
+                continue;
+            }
+            int posicion = cantidad < limite ? cantidad++ : limite - 1;
+            while (posicion > 0 && antes(uso, celda, usosMejores[posicion - 1], mejores[posicion - 1])) {
+                mejores[posicion] = mejores[posicion - 1];
+                usosMejores[posicion] = usosMejores[posicion - 1];
+                posicion--;
+            }
+            mejores[posicion] = celda;
+            usosMejores[posicion] = uso;
+        }
+        return Arrays.copyOf(mejores, cantidad);
+    }
+
+    /**
+     * Orden de masUsadas: más usos primero y, a igual número, la celda menor
+     */
+    private static boolean antes(long uso, int celda, long otroUso, int otraCelda) {
+        return uso > otroUso || (uso == otroUso && celda < otraCelda);
+    }
+
+    /**
+     * Obtiene las transiciones no definidas encontradas en un estado
+     * @param estado Id del estado
+     * @return Número de errores
+     */
+    public long getErrores(int estado) {
+        long total = 0;
+        for (Contadores contadores : todos) {
+            total += contadores.errores.get(estado);
+        }
+        return total;
+    }
+
+    /**
+     * Obtiene el total de transiciones no definidas encontradas
+     * @return Número de errores
+     */
+    public long getErrores() {
+        long total = 0;
+        for (Contadores contadores : todos) {
+            Conteo errores = contadores.errores;
+            for (int r = 0; r < errores.ranuras(); r++) {
+                total += errores.valor(r);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Obtiene las visitas a cada estado (pasos dados desde él, con o sin transición)
+     * @return Arreglo indexado por id de estado
+     */
+    public long[] getVisitas() {
+        long[] visitas = new long[numEstados];
+        for (Contadores contadores : todos) {
+            Conteo celdas = contadores.celdas;
+            for (int r = 0; r < celdas.ranuras(); r++) {
+                if (celdas.valor(r) != 0) {
+                    visitas[celdas.clave(r) / numEntradas] += celdas.valor(r);
+                }
+            }
+            Conteo errores = contadores.errores;
+            for (int r = 0; r < errores.ranuras(); r++) {
+                if (errores.valor(r) != 0) {
+                    visitas[errores.clave(r)] += errores.valor(r);
+                }
+            }
+        }
+        return visitas;
+    }
+
+    public int getNumEstados() {
+        return numEstados;
+    }
+
+    public int getNumEntradas() {
+        return numEntradas;
+    }
+}
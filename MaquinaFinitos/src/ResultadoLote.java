@@ -0,0 +1,43 @@
+/**
+ * Resultado de procesar un lote de entradas en una FSM compilada
+ * Contiene el estado en el que quedó la máquina y cuántas entradas se procesaron
+ */
+public class ResultadoLote {
+    private final int estadoFinal;
+    private final int procesados;
+
+    /**
+     * Constructor del resultado
+     * @param estadoFinal Id del estado en el que terminó el lote
+     * @param procesados Número de entradas procesadas
+     */
+    public ResultadoLote(int estadoFinal, int procesados) {
+        this.estadoFinal = estadoFinal;
+        this.procesados = procesados;
+    }
+
+    /**
+     * Obtiene el estado final del lote
+     * @return Id del estado final
+     */
+    public int getEstadoFinal() {
+        return estadoFinal;
+    }
+
+    /**
+     * Obtiene el número de entradas procesadas
+     * Si es menor que el tamaño del lote, la siguiente entrada no tenía transición definida
+     * @return Número de entradas procesadas
+     */
+    public int getProcesados() {
+        return procesados;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultadoLote{" +
+                "estadoFinal=" + estadoFinal +
+                ", procesados=" + procesados +
+                '}';
+    }
+}
@@ -0,0 +1,175 @@
+import java.util.Arrays;
+
+/**
+ * Tabla de símbolos que asigna ids enteros consecutivos a nombres
+ * Usa direccionamiento abierto sobre arreglos de enteros y permite buscar un símbolo
+ * directamente desde un fragmento de char[] sin crear un String
+ */
+public class TablaSimbolos {
+    private String[] nombres;
+    private int[] hashes;
+    private int[] ranuras;
+    private int cantidad;
+
+    /**
+     * Constructor de una tabla vacía
+     * @param capacidadEsperada Número de símbolos esperado
+     */
+    public TablaSimbolos(int capacidadEsperada) {
+        int capacidad = Math.max(4, capacidadEsperada);
+        nombres = new String[capacidad];
+        hashes = new int[capacidad];
+        ranuras = crearRanuras(capacidad);
+    }
+
+    /**
+     * Crea una tabla con los símbolos de un arreglo
+     * Los símbolos repetidos conservan el id de su primera aparición
+     * @param simbolos Símbolos a agregar
+     * @return Tabla de símbolos
+     */
+    public static TablaSimbolos desde(String[] simbolos) {
+        TablaSimbolos tabla = new TablaSimbolos(simbolos.length);
+        for (String simbolo : simbolos) {
+            tabla.agregar(simbolo);
+        }
+        return tabla;
+    }
+
+    /**
+     * Agrega un símbolo si no existe
+     * @param simbolo Símbolo a agregar
+     * @return Id del símbolo
+     */
+    public int agregar(String simbolo) {
+        int hash = simbolo.hashCode();
+        int ranura = buscarRanura(simbolo, hash);
+        if (ranuras[ranura] >= 0) {
+            return ranuras[ranura];
+        }
+
+        if (cantidad == nombres.length) {
+            crecer();
+            ranura = buscarRanura(simbolo, hash);
+        }
+        nombres[cantidad] = simbolo;
+        hashes[cantidad] = hash;
+        ranuras[ranura] = cantidad;
+        return cantidad++;
+    }
+
+    /**
+     * Obtiene el id de un símbolo
+     * @param simbolo Símbolo a buscar
+     * @return Id del símbolo o -1 si no existe
+     */
+    public int id(String simbolo) {
+        if (simbolo == null) {
+            return -1;
+        }
+        return ranuras[buscarRanura(simbolo, simbolo.hashCode())];
+    }
+
+    /**
+     * Obtiene el id del símbolo contenido en un fragmento de un arreglo de caracteres
+     * @param caracteres Arreglo que contiene el símbolo
+     * @param inicio Posición del primer carácter
+     * @param longitud Número de caracteres
+     * @return Id del símbolo o -1 si no existe
+     */
+    public int id(char[] caracteres, int inicio, int longitud) {
+        int hash = 0;
+        for (int i = inicio; i < inicio + longitud; i++) {
+            hash = 31 * hash + caracteres[i];
+        }
+
+        int mascara = ranuras.length - 1;
+        int ranura = mezclar(hash) & mascara;
+        while (true) {
+            int id = ranuras[ranura];
+            if (id < 0 || (hashes[id] == hash && iguales(nombres[id], caracteres, inicio, longitud))) {
+                return id;
+            }
+            ranura = (ranura + 1) & mascara;
+        }
+    }
+
+    /**
+     * Obtiene el nombre de un símbolo
+     * @param id Id del símbolo
+     * @return Nombre del símbolo
+     */
+    public String nombre(int id) {
+        if (id < 0 || id >= cantidad) {
+            throw new IndexOutOfBoundsException("Id de símbolo no válido: " + id);
+        }
+        return nombres[id];
+    }
+
+    /**
+     * Obtiene los nombres de todos los símbolos, indexados por id
+     * @return Copia de los nombres
+     */
+    public String[] nombres() {
+        return Arrays.copyOf(nombres, cantidad);
+    }
+
+    public int tamano() {
+        return cantidad;
+    }
+
+    /**
+     * Busca la ranura de un símbolo, o la ranura libre donde debería ir
+     */
+    private int buscarRanura(String simbolo, int hash) {
+        int mascara = ranuras.length - 1;
+        int ranura = mezclar(hash) & mascara;
+        while (true) {
+            int id = ranuras[ranura];
+            if (id < 0 || (hashes[id] == hash && nombres[id].equals(simbolo))) {
+                return ranura;
+            }
+            ranura = (ranura + 1) & mascara;
+        }
+    }
+
+    private void crecer() {
+        int capacidad = nombres.length * 2;
+        nombres = Arrays.copyOf(nombres, capacidad);
+        hashes = Arrays.copyOf(hashes, capacidad);
+        ranuras = crearRanuras(capacidad);
+        int mascara = ranuras.length - 1;
+        for (int id = 0; id < cantidad; id++) {
+            int ranura = mezclar(hashes[id]) & mascara;
+            while (ranuras[ranura] >= 0) {
+                ranura = (ranura + 1) & mascara;
+            }
+            ranuras[ranura] = id;
+        }
+    }
+
+    /**
+     * Crea el arreglo de ranuras vacío con factor de carga de a lo más 1/2
+     */
+    private static int[] crearRanuras(int capacidad) {
+        int[] ranuras = new int[Integer.highestOneBit(capacidad) << 2];
+        Arrays.fill(ranuras, -1);
+        return ranuras;
+    }
+
+    private static boolean iguales(String nombre, char[] caracteres, int inicio, int longitud) {
+        if (nombre.length() != longitud) {
+            return false;
+        }
+        for (int i = 0; i < longitud; i++) {
+            if (nombre.charAt(i) != caracteres[inicio + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mezclar(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,119 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registro circular de las últimas transiciones ejecutadas por una FSM
+ * Cada paso ocupa cuatro enteros (estado, entrada, salida, siguiente estado) en un arreglo
+ * reservado de antemano, así que registrar no crea objetos. Los escritores obtienen su
+ * posición con un contador atómico, sin bloqueos; una lectura concurrente con escrituras
+ * puede mostrar algún paso a medio escribir
+ * Un paso sin transición definida se registra con salida y siguiente estado SIN_TRANSICION
+ */
+public class TrazaFSM {
+    private static final int CAMPOS = 4;
+
+    private final int[] pasos;
+    private final int mascara;
+    private final AtomicLong secuencia = new AtomicLong();
+
+    /**
+     * Constructor de la traza
+     * @param capacidad Número de pasos que se conservan (se redondea a potencia de 2)
+     */
+    public TrazaFSM(int capacidad) {
+        if (capacidad <= 0 || capacidad > (1 << 26)) {
+            throw new IllegalArgumentException("Capacidad de traza no válida: " + capacidad);
+        }
+        int tamano = Integer.highestOneBit(capacidad);
+        if (tamano < capacidad) {
+            tamano <<= 1;
+        }
+        pasos = new int[tamano * CAMPOS];
+        mascara = tamano - 1;
+    }
+
+    /**
+     * Registra un paso
+     * @param estado Id del estado origen
+     * @param entrada Id de la entrada
+     * @param salida Id de la salida o SIN_TRANSICION
+     * @param siguiente Id del estado destino o SIN_TRANSICION
+     */
+    public void registrar(int estado, int entrada, int salida, int siguiente) {
+        int base = (int) (secuencia.getAndIncrement() & mascara) * CAMPOS;
+        pasos[base] = estado;
+        pasos[base + 1] = entrada;
+        pasos[base + 2] = salida;
+        pasos[base + 3] = siguiente;
+    }
+
+    /**
+     * Registra los pasos de un lote ya procesado
+     * Solo se escriben los últimos pasos que caben en la traza; los anteriores solo se recorren
+     * para conocer el estado
+     * @param fsm FSM compilada con la que se procesó el lote
+     * @param estado Id del estado en el que empezó el lote
+     * @param entradas Ids de las entradas del lote
+     * @param desde Posición inicial del lote
+     * @param hasta Posición final (exclusiva) del lote
+     * @param resultado Resultado del lote
+     */
+    public void registrarLote(FSMCompilada fsm, int estado, int[] entradas, int desde, int hasta, ResultadoLote resultado) {
+        int n = fsm.numEntradas;
+        int fin = desde + resultado.getProcesados();
+        int inicioTraza = Math.max(desde, fin - getCapacidad());
+        for (int i = desde; i < inicioTraza; i++) {
+            estado = fsm.siguiente[estado * n + entradas[i]];
+        }
+        for (int i = inicioTraza; i < fin; i++) {
+            int celda = estado * n + entradas[i];
+            registrar(estado, entradas[i], fsm.salida[celda], fsm.siguiente[celda]);
+            estado = fsm.siguiente[celda];
+        }
+        if (fin < hasta) {
+            registrar(estado, entradas[fin], FSMCompilada.SIN_TRANSICION, FSMCompilada.SIN_TRANSICION);
+        }
+    }
+
+    /**
+     * Descarta todos los pasos registrados
+     */
+    public void reiniciar() {
+        secuencia.set(0);
+    }
+
+    /**
+     * Genera un listado de los pasos conservados, del más antiguo al más reciente
+     * @param fsm FSM compilada para traducir los ids a nombres
+     * @return Texto con un paso por línea
+     */
+    public String volcar(FSMCompilada fsm) {
+        long fin = secuencia.get();
+        long inicio = Math.max(0, fin - getCapacidad());
+        StringBuilder texto = new StringBuilder();
+        texto.append("Últimas ").append(fin - inicio).append(" transiciones (de ").append(fin).append("):\n");
+        for (long paso = inicio; paso < fin; paso++) {
+            int base = (int) (paso & mascara) * CAMPOS;
+            texto.append(String.format("%8d  ", paso));
+            texto.append(fsm.getEstado(pasos[base])).append(" --").append(fsm.getEntrada(pasos[base + 1]));
+            if (pasos[base + 3] == FSMCompilada.SIN_TRANSICION) {
+                texto.append("--> (sin transición)\n");
+            } else {
+                texto.append("/").append(fsm.getSalida(pasos[base + 2])).append("--> ")
+                        .append(fsm.getEstado(pasos[base + 3])).append("\n");
+            }
+        }
+        return texto.toString();
+    }
+
+    /**
+     * Obtiene el total de pasos registrados desde la creación o el último reinicio
+     * @return Número de pasos, incluidos los que ya no se conservan
+     */
+    public long getTotalRegistrados() {
+        return secuencia.get();
+    }
+
+    public int getCapacidad() {
+        return mascara + 1;
+    }
+}
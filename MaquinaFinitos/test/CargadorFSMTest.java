@@ -0,0 +1,54 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Lectura de encabezados del formato de definición
+ */
+class CargadorFSMTest {
+    @Test
+    void ignoraComentariosAlFinalDeLosEncabezados() throws IOException {
+        FSM fsm = cargar("# Máquina de prueba\n"
+                + "entradas: 0,1   # alfabeto\n"
+                + "salidas: A,B # salidas\n"
+                + "estados: S0,S1\n"
+                + "inicial: S1 # empieza en S1\n"
+                + "S0 0 S1 A # comentario\n"
+                + "S1 1 S0 B\n");
+        assertEquals(2, fsm.getEntradas().length);
+        assertEquals("B", fsm.getSalidas()[1]);
+        assertEquals("S1", fsm.getEstadoInicial());
+        assertEquals("S0", fsm.getTransicion("S1", "1").getEstadoDestino());
+    }
+
+    @Test
+    void validaElEstadoInicialEnSuLinea() {
+        assertError(3, "entradas: 0\nestados: S0\ninicial: S9\nsalidas: A\n");
+        // Estados declarados después: el error sigue apuntando a la línea de inicial
+        assertError(2, "entradas: 0\ninicial: S9\nsalidas: A\nestados: S0\nS0 0 S0 A\n");
+        assertError(4, "entradas: 0\nsalidas: A\nestados: S0,S1\ninicial: S0 S1\n");
+        assertError(1, "inicial:   # sin valor\n");
+    }
+
+    @Test
+    void rechazaEncabezadosDuplicados() {
+        IllegalArgumentException e = assertError(3, "entradas: 0\nsalidas: A\nentradas: 1\nestados: S0\n");
+        assertTrue(e.getMessage().contains("línea 1"), e.getMessage());
+        assertError(5, "entradas: 0\nsalidas: A\nestados: S0\ninicial: S0\ninicial: S0\n");
+    }
+
+    private static IllegalArgumentException assertError(int linea, String definicion) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> cargar(definicion));
+        assertTrue(e.getMessage().startsWith("Línea " + linea + ":"), e.getMessage());
+        return e;
+    }
+
+    private static FSM cargar(String definicion) throws IOException {
+        return CargadorFSM.cargar(new StringReader(definicion));
+    }
+}
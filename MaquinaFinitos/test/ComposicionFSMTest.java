@@ -0,0 +1,121 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compara la cascada compuesta con pasar las salidas de procesar de cada etapa a la siguiente
+ */
+class ComposicionFSMTest {
+    private static final int CASCADAS = 300;
+
+    @Test
+    void coincideConEtapaPorEtapa() {
+        Random random = new Random(24);
+        int sinEnlace = 0;
+        for (int n = 0; n < CASCADAS; n++) {
+            // Cada etapa produce un símbolo más de los que acepta la siguiente: "z" no es entrada
+            int entradasA = 1 + random.nextInt(3);
+            int entradasB = 1 + random.nextInt(3);
+            int entradasC = 1 + random.nextInt(3);
+            FSM a = etapa(random, "a", FSMAleatorias.simbolos("x", entradasA), conExtra("p", entradasB));
+            FSM b = etapa(random, "b", FSMAleatorias.simbolos("p", entradasB), conExtra("q", entradasC));
+            FSM c = etapa(random, "c", FSMAleatorias.simbolos("q", entradasC), FSMAleatorias.simbolos("y", 1 + random.nextInt(3)));
+            FSM compuesta = ComposicionFSM.cascada(a, b, c);
+            FSM[] etapas = {a, b, c};
+
+            for (int s = 0; s < 5; s++) {
+                for (FSM fsm : etapas) {
+                    fsm.reiniciar();
+                }
+                compuesta.reiniciar();
+                String[] entradas = a.getEntradas();
+                for (int i = 0; i < 50; i++) {
+                    String entrada = entradas[random.nextInt(entradas.length)];
+                    String esperada = procesarEtapas(etapas, entrada);
+                    if (esperada == null) {
+                        assertFalse(compuesta.existeTransicion(compuesta.getEstadoActual(), entrada));
+                        sinEnlace++;
+                        break;
+                    }
+                    assertEquals(esperada, compuesta.procesar(entrada));
+                    assertEquals(nombreTupla(etapas), compuesta.getEstadoActual());
+                }
+            }
+        }
+        assertTrue(sinEnlace > 0);
+    }
+
+    @Test
+    void superarElMaximoLanzaIllegalState() {
+        Random random = new Random(25);
+        FSM a = FSMAleatorias.crear(random, 30, 2, 2, 0.0);
+        FSM b = etapa(random, "b", FSMAleatorias.simbolos("y", 2), FSMAleatorias.simbolos("z", 2));
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> ComposicionFSM.cascada(3, a, b));
+        assertTrue(e.getMessage().contains("3"), e.getMessage());
+
+        // 5 etapas de 10^4 estados: el producto (10^20) no cabe en un long
+        FSM[] grandes = new FSM[5];
+        for (int i = 0; i < grandes.length; i++) {
+            String[] estados = FSMAleatorias.simbolos("S", 10_000);
+            grandes[i] = new FSM(new String[]{"x"}, new String[]{"x"}, estados);
+            grandes[i].agregarTransicion("S0", "x", "S0", "x");
+        }
+        e = assertThrows(IllegalStateException.class, () -> ComposicionFSM.cascada(grandes));
+        assertTrue(e.getMessage().contains(String.valueOf(Long.MAX_VALUE)), e.getMessage());
+    }
+
+    /**
+     * Pasa una entrada por todas las etapas con procesar
+     * @return Salida de la última etapa, o null si alguna etapa no tiene transición o
+     *         produce una salida que no es entrada de la siguiente
+     */
+    private static String procesarEtapas(FSM[] etapas, String entrada) {
+        String simbolo = entrada;
+        for (FSM fsm : etapas) {
+            if (fsm.getTablaEntradas().id(simbolo) < 0 || !fsm.existeTransicion(fsm.getEstadoActual(), simbolo)) {
+                return null;
+            }
+            simbolo = fsm.procesar(simbolo);
+        }
+        return simbolo;
+    }
+
+    private static String nombreTupla(FSM[] etapas) {
+        StringBuilder nombre = new StringBuilder("(");
+        for (int i = 0; i < etapas.length; i++) {
+            nombre.append(i > 0 ? "," : "").append(etapas[i].getEstadoActual());
+        }
+        return nombre.append(')').toString();
+    }
+
+    /**
+     * Símbolos prefijo0, prefijo1, ... más "z", que ninguna etapa acepta como entrada
+     */
+    private static String[] conExtra(String prefijo, int cantidad) {
+        String[] simbolos = FSMAleatorias.simbolos(prefijo, cantidad + 1);
+        simbolos[cantidad] = "z";
+        return simbolos;
+    }
+
+    /**
+     * Etapa aleatoria con algunas transiciones sin definir, estado inicial en su primer estado
+     */
+    private static FSM etapa(Random random, String prefijo, String[] entradas, String[] salidas) {
+        String[] estados = FSMAleatorias.simbolos(prefijo, 1 + random.nextInt(5));
+        FSM fsm = new FSM(entradas, salidas, estados);
+        for (String estado : estados) {
+            for (String entrada : entradas) {
+                if (random.nextInt(20) > 0) {
+                    fsm.agregarTransicion(estado, entrada, estados[random.nextInt(estados.length)],
+                            salidas[random.nextInt(salidas.length)]);
+                }
+            }
+        }
+        return fsm;
+    }
+}
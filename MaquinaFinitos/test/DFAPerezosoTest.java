@@ -0,0 +1,190 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compara el DFA perezoso, con cachés pequeñas que se vacían a menudo y con una grande,
+ * con una simulación directa del AFN sobre listas de transiciones propias de la prueba
+ */
+class DFAPerezosoTest {
+    private static final int AUTOMATAS = 400;
+    private static final int SECUENCIAS = 60;
+
+    @Test
+    void coincideConSimulacionDelAFN() {
+        Random random = new Random(25);
+        long vaciados = 0;
+        for (int k = 0; k < AUTOMATAS; k++) {
+            // Hasta 70 estados para cubrir conjuntos de más de una palabra
+            Referencia referencia = new Referencia(random, 1 + random.nextInt(70), 1 + random.nextInt(3));
+            AFN afn = referencia.afn;
+            DFAPerezoso pequeno = new DFAPerezoso(afn, 3 + random.nextInt(10));
+            DFAPerezoso grande = new DFAPerezoso(afn, 100_000);
+
+            for (int s = 0; s < SECUENCIAS; s++) {
+                int[] entradas = FSMAleatorias.secuencia(random, random.nextInt(60), referencia.numEntradas);
+                boolean esperado = referencia.acepta(entradas, 0, entradas.length);
+                assertEquals(esperado, pequeno.acepta(entradas));
+                assertEquals(esperado, grande.acepta(entradas));
+                assertEquals(esperado, afn.acepta(entradas));
+
+                int desde = random.nextInt(entradas.length + 1);
+                int hasta = desde + random.nextInt(entradas.length - desde + 1);
+                int prefijo = referencia.primeraAceptacion(entradas, desde, hasta);
+                assertEquals(prefijo, pequeno.primeraAceptacion(entradas, desde, hasta));
+                assertEquals(prefijo, grande.primeraAceptacion(entradas, desde, hasta));
+
+                // Editar el AFN a mitad del uso: la caché debe descartarse
+                if (s == SECUENCIAS / 2) {
+                    referencia.editar(random);
+                }
+            }
+            vaciados += pequeno.getVaciados();
+        }
+        assertTrue(vaciados > 0, "las cachés pequeñas nunca se vaciaron");
+    }
+
+    @Test
+    void rechazaEntradaInvalida() {
+        AFN afn = new AFN(new String[]{"a", "b"}, new String[]{"q0", "q1"});
+        afn.agregarTransicion("q0", "a", "q1");
+        afn.agregarAceptacion("q1");
+        DFAPerezoso dfa = new DFAPerezoso(afn, 3);
+        assertThrows(IllegalArgumentException.class, () -> dfa.acepta(new int[]{2, 0}));
+        assertThrows(IllegalArgumentException.class, () -> dfa.primeraAceptacion(new int[]{-1}, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new DFAPerezoso(afn, 2));
+    }
+
+    /**
+     * AFN aleatorio junto con sus transiciones en listas, simulado con arreglos de booleanos
+     */
+    private static class Referencia {
+        final AFN afn;
+        final int numEntradas;
+        private final String[] estados;
+        private final String[] entradas;
+        private final List<int[]> transiciones = new ArrayList<>();
+        private final List<int[]> vacias = new ArrayList<>();
+        private final boolean[] aceptacion;
+        private int inicial;
+
+        Referencia(Random random, int numEstados, int numEntradas) {
+            this.numEntradas = numEntradas;
+            estados = FSMAleatorias.simbolos("q", numEstados);
+            entradas = FSMAleatorias.simbolos("i", numEntradas);
+            aceptacion = new boolean[numEstados];
+            afn = new AFN(entradas, estados);
+            int cantidad = random.nextInt(3 * numEstados);
+            for (int t = 0; t < cantidad; t++) {
+                agregarTransicion(random.nextInt(numEstados), random.nextInt(numEntradas), random.nextInt(numEstados));
+            }
+            cantidad = random.nextInt(numEstados);
+            for (int t = 0; t < cantidad; t++) {
+                agregarVacia(random.nextInt(numEstados), random.nextInt(numEstados));
+            }
+            cantidad = 1 + random.nextInt(3);
+            for (int t = 0; t < cantidad; t++) {
+                agregarAceptacion(random.nextInt(numEstados));
+            }
+            inicial = random.nextInt(numEstados);
+            afn.setEstadoInicial(estados[inicial]);
+        }
+
+        void editar(Random random) {
+            int n = estados.length;
+            switch (random.nextInt(3)) {
+                case 0:
+                    agregarTransicion(random.nextInt(n), random.nextInt(numEntradas), random.nextInt(n));
+                    break;
+                case 1:
+                    agregarVacia(random.nextInt(n), random.nextInt(n));
+                    break;
+                default:
+                    agregarAceptacion(random.nextInt(n));
+                    break;
+            }
+        }
+
+        private void agregarTransicion(int origen, int entrada, int destino) {
+            transiciones.add(new int[]{origen, entrada, destino});
+            afn.agregarTransicion(estados[origen], entradas[entrada], estados[destino]);
+        }
+
+        private void agregarVacia(int origen, int destino) {
+            vacias.add(new int[]{origen, destino});
+            afn.agregarTransicionVacia(estados[origen], estados[destino]);
+        }
+
+        private void agregarAceptacion(int estado) {
+            aceptacion[estado] = true;
+            afn.agregarAceptacion(estados[estado]);
+        }
+
+        boolean acepta(int[] secuencia, int desde, int hasta) {
+            boolean[] activos = inicio();
+            for (int i = desde; i < hasta; i++) {
+                activos = avanzar(activos, secuencia[i]);
+            }
+            return aceptando(activos);
+        }
+
+        int primeraAceptacion(int[] secuencia, int desde, int hasta) {
+            boolean[] activos = inicio();
+            for (int i = desde; ; i++) {
+                if (aceptando(activos)) {
+                    return i - desde;
+                }
+                if (i == hasta) {
+                    return -1;
+                }
+                activos = avanzar(activos, secuencia[i]);
+            }
+        }
+
+        private boolean[] inicio() {
+            boolean[] activos = new boolean[estados.length];
+            activos[inicial] = true;
+            cerrar(activos);
+            return activos;
+        }
+
+        private boolean[] avanzar(boolean[] activos, int entrada) {
+            boolean[] siguientes = new boolean[estados.length];
+            for (int[] t : transiciones) {
+                if (activos[t[0]] && t[1] == entrada) {
+                    siguientes[t[2]] = true;
+                }
+            }
+            cerrar(siguientes);
+            return siguientes;
+        }
+
+        private void cerrar(boolean[] activos) {
+            boolean cambio = true;
+            while (cambio) {
+                cambio = false;
+                for (int[] v : vacias) {
+                    if (activos[v[0]] && !activos[v[1]]) {
+                        activos[v[1]] = true;
+                        cambio = true;
+                    }
+                }
+            }
+        }
+
+        private boolean aceptando(boolean[] activos) {
+            for (int s = 0; s < activos.length; s++) {
+                if (activos[s] && aceptacion[s]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
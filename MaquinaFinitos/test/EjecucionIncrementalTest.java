@@ -0,0 +1,100 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compara la reejecución incremental después de editar la FSM con una ejecución completa
+ * de la versión editada
+ */
+class EjecucionIncrementalTest {
+    private static final int MAQUINAS = 300;
+    private static final int EDICIONES = 6;
+
+    @Test
+    void coincideConEjecucionCompleta() {
+        Random random = new Random(17);
+        long simuladas = 0;
+        long total = 0;
+        for (int m = 0; m < MAQUINAS; m++) {
+            int numEstados = 1 + random.nextInt(12);
+            int numEntradas = 1 + random.nextInt(4);
+            FSM fsm = FSMAleatorias.crear(random, numEstados, numEntradas, 3, 0.02);
+            String[] estados = fsm.getEstados();
+            String[] entradasFSM = fsm.getEntradas();
+            FSMCompilada compilada = fsm.compilar();
+            int[] entradas = FSMAleatorias.secuencia(random, random.nextInt(3000), numEntradas);
+            int inicial = random.nextInt(numEstados);
+            EjecucionIncremental ejecucion = new EjecucionIncremental(compilada, inicial, entradas, 1 + random.nextInt(64));
+            verificar(compilada, inicial, entradas, ejecucion);
+
+            for (int k = 0; k < EDICIONES; k++) {
+                FSMCompilada nueva;
+                if (random.nextInt(3) == 0) {
+                    // Quitar una transición: se edita la tabla compilada directamente
+                    int[] siguiente = compilada.siguiente.clone();
+                    int[] salida = compilada.salida.clone();
+                    int celda = random.nextInt(siguiente.length);
+                    siguiente[celda] = FSMCompilada.SIN_TRANSICION;
+                    salida[celda] = FSMCompilada.SIN_TRANSICION;
+                    nueva = new FSMCompilada(fsm.getTablaEstados(), fsm.getTablaEntradas(), fsm.getTablaSalidas(),
+                            siguiente, salida, compilada.getEstadoInicial());
+                } else {
+                    fsm.agregarTransicion(estados[random.nextInt(numEstados)], entradasFSM[random.nextInt(numEntradas)],
+                            estados[random.nextInt(numEstados)], "y" + random.nextInt(3));
+                    nueva = fsm.compilar();
+                }
+                int resimuladas = ejecucion.actualizar(nueva);
+                assertTrue(resimuladas <= entradas.length + 1);
+                simuladas += resimuladas;
+                total += entradas.length;
+                compilada = nueva;
+                verificar(compilada, inicial, entradas, ejecucion);
+            }
+
+            // Sin cambios no se vuelve a simular nada
+            assertEquals(0, ejecucion.actualizar(compilada));
+        }
+        // Con ediciones de una celda la mayoría de los segmentos deben conservarse
+        assertTrue(simuladas < total, "simuladas " + simuladas + " de " + total);
+    }
+
+    @Test
+    void otroTamanoReprocesaTodo() {
+        Random random = new Random(18);
+        FSM fsm = FSMAleatorias.crear(random, 5, 3, 2, 0.0);
+        int[] entradas = FSMAleatorias.secuencia(random, 1000, 3);
+        EjecucionIncremental ejecucion = new EjecucionIncremental(fsm.compilar(), 0, entradas, 32);
+
+        FSM mayor = FSMAleatorias.crear(random, 6, 3, 2, 0.0);
+        FSMCompilada nueva = mayor.compilar();
+        assertEquals(entradas.length, ejecucion.actualizar(nueva));
+        verificar(nueva, 0, entradas, ejecucion);
+    }
+
+    /**
+     * Compara la ejecución incremental con procesarLote y su índice con un recorrido paso a paso
+     */
+    private static void verificar(FSMCompilada fsm, int inicial, int[] entradas, EjecucionIncremental ejecucion) {
+        int[] esperadas = new int[entradas.length];
+        ResultadoLote lote = fsm.procesarLote(inicial, entradas, 0, entradas.length, esperadas, 0);
+        assertEquals(lote.getProcesados(), ejecucion.getLongitud());
+        assertEquals(lote.getEstadoFinal(), ejecucion.getEstadoFinal());
+        assertArrayEquals(Arrays.copyOf(esperadas, lote.getProcesados()),
+                Arrays.copyOf(ejecucion.getSalidas(), ejecucion.getLongitud()));
+
+        IndiceCheckpoints indice = ejecucion.getIndice();
+        assertEquals(lote.getProcesados(), indice.getLongitud());
+        int estado = inicial;
+        for (int i = 0; i <= indice.getLongitud(); i++) {
+            assertEquals(estado, indice.estadoEn(entradas, i));
+            if (i < indice.getLongitud()) {
+                estado = fsm.siguiente(estado, entradas[i]);
+            }
+        }
+    }
+}
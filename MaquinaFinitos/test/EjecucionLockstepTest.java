@@ -0,0 +1,100 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compara los recorridos de EjecucionLockstep (secuencial, lockstep escalar y vectorial) con
+ * procesarLote flujo por flujo
+ */
+class EjecucionLockstepTest {
+    private static final int MAQUINAS = 200;
+
+    @Test
+    void eligeRecorridoSegunTamanoDeTablas() {
+        // surefire inicia la JVM con --add-modules jdk.incubator.vector
+        assertTrue(EjecucionLockstep.vectorialDisponible());
+        EjecucionLockstep pequena = new EjecucionLockstep(FSMAleatorias.crear(new Random(5), 2, 2, 2, 0.0).compilar());
+        assertFalse(pequena.isLockstep());
+        assertFalse(pequena.isVectorial());
+        FSMCompilada grande = FSMAleatorias.crear(new Random(5), EjecucionLockstep.UMBRAL_CELDAS / 4, 4, 2, 0.0).compilar();
+        assertTrue(new EjecucionLockstep(grande).isLockstep());
+    }
+
+    @Test
+    void vectorialSePideConElConstructorPublico() {
+        Random random = new Random(8);
+        FSMCompilada grande = FSMAleatorias.crear(random, EjecucionLockstep.UMBRAL_CELDAS / 8, 8, 3, 0.01).compilar();
+        // El paso vectorial implica lockstep aunque se pida el recorrido secuencial
+        EjecucionLockstep vectorial = new EjecucionLockstep(grande, 256, false, true);
+        assertTrue(vectorial.isLockstep());
+        assertTrue(vectorial.isVectorial());
+        assertFalse(new EjecucionLockstep(grande).isVectorial());
+
+        int[][] entradas = new int[1000][];
+        for (int k = 0; k < entradas.length; k++) {
+            entradas[k] = FSMAleatorias.secuencia(random, random.nextInt(200), 8);
+        }
+        EjecucionLockstep.Resultado resultado = vectorial.procesar(entradas);
+        for (int k = 0; k < entradas.length; k++) {
+            int[] esperadas = new int[entradas[k].length];
+            ResultadoLote lote = grande.procesarLote(grande.getEstadoInicial(), entradas[k], 0, entradas[k].length, esperadas, 0);
+            assertEquals(lote.getEstadoFinal(), resultado.getEstadoFinal(k));
+            assertEquals(lote.getProcesados(), resultado.getProcesados(k));
+            for (int i = 0; i < lote.getProcesados(); i++) {
+                assertEquals(esperadas[i], resultado.getSalidas(k)[i]);
+            }
+        }
+    }
+
+    @Test
+    void coincideConProcesarLote() {
+        Random random = new Random(6);
+        for (int m = 0; m < MAQUINAS; m++) {
+            FSM fsm = FSMAleatorias.crear(random, 1 + random.nextInt(30), 1 + random.nextInt(6), 1 + random.nextInt(4), 0.02);
+            FSMCompilada compilada = fsm.compilar();
+            int flujos = random.nextInt(600);
+            int[][] entradas = new int[flujos][];
+            int[] iniciales = new int[flujos];
+            for (int k = 0; k < flujos; k++) {
+                entradas[k] = FSMAleatorias.secuencia(random, random.nextInt(80), compilada.getNumEntradas());
+                iniciales[k] = random.nextInt(compilada.getNumEstados());
+            }
+            int tamanoBloque = 1 + random.nextInt(300);
+
+            for (int modo = 0; modo < 3; modo++) {
+                EjecucionLockstep lockstep = new EjecucionLockstep(compilada, tamanoBloque, modo > 0, modo == 2);
+                EjecucionLockstep.Resultado resultado = lockstep.procesar(iniciales, entradas);
+                assertEquals(flujos, resultado.getCantidad());
+                for (int k = 0; k < flujos; k++) {
+                    int[] esperadas = new int[entradas[k].length];
+                    ResultadoLote lote = compilada.procesarLote(iniciales[k], entradas[k], 0, entradas[k].length, esperadas, 0);
+                    assertEquals(lote.getEstadoFinal(), resultado.getEstadoFinal(k));
+                    assertEquals(lote.getProcesados(), resultado.getProcesados(k));
+                    for (int i = 0; i < lote.getProcesados(); i++) {
+                        assertEquals(esperadas[i], resultado.getSalidas(k)[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void rechazaEntradaInvalida() {
+        FSMCompilada compilada = FSMAleatorias.crear(new Random(7), 4, 3, 2, 0.0).compilar();
+        int[][] entradas = new int[40][];
+        for (int k = 0; k < entradas.length; k++) {
+            entradas[k] = new int[]{0, 1, 2, 0};
+        }
+        entradas[17] = new int[]{0, 1, 3};
+        for (int modo = 0; modo < 3; modo++) {
+            EjecucionLockstep lockstep = new EjecucionLockstep(compilada, 16, modo > 0, modo == 2);
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> lockstep.procesar(entradas));
+            assertEquals("Entrada no válida en el flujo 17, posición 2: 3", e.getMessage());
+        }
+    }
+}
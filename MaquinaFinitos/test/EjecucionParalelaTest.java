@@ -0,0 +1,74 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compara la ejecución por bloques en paralelo con procesarLote, con bloques pequeños para
+ * que las transiciones no definidas y las entradas no válidas caigan en bloques posteriores
+ */
+class EjecucionParalelaTest {
+    private static final int MAQUINAS = 300;
+
+    @Test
+    void coincideConProcesarLote() {
+        Random random = new Random(5);
+        int detenidas = 0;
+        int invalidas = 0;
+        for (int m = 0; m < MAQUINAS; m++) {
+            // Pocos huecos para que muchas ejecuciones pasen varios bloques antes de detenerse
+            double probHueco = random.nextBoolean() ? 0.0 : 0.002;
+            FSMCompilada fsm = FSMAleatorias.crear(random, 1 + random.nextInt(20), 1 + random.nextInt(4), 1 + random.nextInt(3), probHueco).compilar();
+            int[] entradas = FSMAleatorias.secuencia(random, random.nextInt(5000), fsm.getNumEntradas());
+            if (entradas.length > 0 && random.nextInt(3) == 0) {
+                // Id no válido en un bloque posterior al primero
+                int posicion = entradas.length / 2 + random.nextInt(entradas.length - entradas.length / 2);
+                entradas[posicion] = random.nextBoolean() ? -1 : fsm.getNumEntradas();
+            }
+            int estado = random.nextInt(fsm.getNumEstados());
+            int tamanoBloque = 1 + random.nextInt(200);
+            EjecucionParalela paralela = new EjecucionParalela(fsm, tamanoBloque);
+
+            int[] esperadas = new int[entradas.length];
+            ResultadoLote esperado;
+            try {
+                esperado = fsm.procesarLote(estado, entradas, 0, entradas.length, esperadas, 0);
+            } catch (IllegalArgumentException e) {
+                IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                        () -> paralela.procesar(estado, entradas, new int[entradas.length]));
+                // Al relanzarse desde otro hilo la excepción puede quedar envuelta en una copia
+                assertTrue(error.getMessage().contains(e.getMessage()), error.getMessage());
+                invalidas++;
+                continue;
+            }
+            int[] salidas = new int[entradas.length];
+            ResultadoLote resultado = paralela.procesar(estado, entradas, salidas);
+            assertEquals(esperado.getProcesados(), resultado.getProcesados());
+            assertEquals(esperado.getEstadoFinal(), resultado.getEstadoFinal());
+            for (int i = 0; i < esperado.getProcesados(); i++) {
+                assertEquals(esperadas[i], salidas[i]);
+            }
+            if (esperado.getProcesados() < entradas.length) {
+                detenidas++;
+            }
+        }
+        assertTrue(detenidas > 0 && invalidas > 0, "detenidas " + detenidas + ", inválidas " + invalidas);
+    }
+
+    @Test
+    void bloqueMaximoNoDesborda() {
+        Random random = new Random(6);
+        FSMCompilada fsm = FSMAleatorias.crear(random, 8, 3, 2, 0.0).compilar();
+        int[] entradas = FSMAleatorias.secuencia(random, 10_000, 3);
+        int[] esperadas = new int[entradas.length];
+        int[] salidas = new int[entradas.length];
+        ResultadoLote esperado = fsm.procesarLote(0, entradas, 0, entradas.length, esperadas, 0);
+        ResultadoLote resultado = new EjecucionParalela(fsm, Integer.MAX_VALUE).procesar(0, entradas, salidas);
+        assertEquals(esperado.getProcesados(), resultado.getProcesados());
+        assertEquals(esperado.getEstadoFinal(), resultado.getEstadoFinal());
+        assertEquals(esperadas[entradas.length - 1], salidas[entradas.length - 1]);
+    }
+}
@@ -0,0 +1,61 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Compara la ejecución sobre archivos con procesarLote de la FSM compilada
+ */
+class EjecutorArchivoTest {
+    @TempDir
+    Path directorio;
+
+    @Test
+    void coincideConProcesarLote() throws IOException {
+        Random random = new Random(5);
+        for (int k = 0; k < 50; k++) {
+            FSMCompilada fsm = FSMAleatorias.crear(random, 1 + random.nextInt(10), 1 + random.nextInt(5), 3, 0.0).compilar();
+            int[] entradas = FSMAleatorias.secuencia(random, random.nextInt(2000), fsm.getNumEntradas());
+            // Ventanas pequeñas para cortar símbolos entre ventanas
+            String salida = ejecutar(fsm, entradas, 16 + random.nextInt(64));
+
+            StringBuilder esperada = new StringBuilder();
+            fsm.procesarLote(0, entradas, 0, entradas.length, esperada);
+            assertEquals(esperada.toString(), salida);
+        }
+    }
+
+    @Test
+    void salidaMayorQueElBuffer() throws IOException {
+        String grande = "z".repeat(3 * 1024 * 1024);
+        FSM fsm = new FSM(new String[]{"a", "b"}, new String[]{"y", grande}, new String[]{"S0"});
+        fsm.agregarTransicion("S0", "a", "S0", "y");
+        fsm.agregarTransicion("S0", "b", "S0", grande);
+        FSMCompilada compilada = fsm.compilar();
+        int[] entradas = {0, 1, 0, 1, 1, 0};
+
+        StringBuilder esperada = new StringBuilder();
+        compilada.procesarLote(0, entradas, 0, entradas.length, esperada);
+        assertEquals(esperada.toString(), ejecutar(compilada, entradas, 1024));
+    }
+
+    private String ejecutar(FSMCompilada fsm, int[] entradas, long ventana) throws IOException {
+        StringBuilder texto = new StringBuilder();
+        for (int entrada : entradas) {
+            texto.append(fsm.getEntrada(entrada)).append(' ');
+        }
+        Path entrada = directorio.resolve("entrada.txt");
+        Path salida = directorio.resolve("salida.txt");
+        Files.writeString(entrada, texto, StandardCharsets.UTF_8);
+        EjecutorArchivo.Resultado resultado = new EjecutorArchivo(fsm, ventana).ejecutar(entrada, salida, 0);
+        assertEquals(entradas.length, resultado.getProcesados());
+        assertEquals(Files.size(salida), resultado.getBytesEscritos());
+        return Files.readString(salida, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,167 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compara la verificación de Hopcroft-Karp con una búsqueda en anchura sobre el producto
+ * de las dos máquinas
+ */
+class EquivalenciaFSMTest {
+    private static final int PARES = 3000;
+
+    @Test
+    void coincideConBusquedaEnProducto() {
+        Random random = new Random(23);
+        int equivalentes = 0;
+        for (int k = 0; k < PARES; k++) {
+            FSM a = FSMAleatorias.crear(random, 1 + random.nextInt(8), 2, 1 + random.nextInt(2), 0.1);
+            FSM b;
+            switch (random.nextInt(3)) {
+                case 0:
+                    b = a.minimizar().getFSM();
+                    break;
+                case 1:
+                    b = editada(random, a);
+                    break;
+                default:
+                    b = entradasInvertidas(FSMAleatorias.crear(random, 1 + random.nextInt(8), 2, 2, 0.1));
+                    break;
+            }
+            FSMCompilada ca = a.compilar();
+            FSMCompilada cb = b.compilar();
+
+            EquivalenciaFSM.Resultado resultado = EquivalenciaFSM.comparar(ca, cb);
+            int distancia = distanciaMinima(ca, cb);
+            assertEquals(distancia < 0, resultado.esEquivalente());
+            assertTrue(resultado.getParesExplorados() <= ca.getNumEstados() + cb.getNumEstados() - 1);
+            if (resultado.esEquivalente()) {
+                assertNull(resultado.getSecuencia());
+                equivalentes++;
+                continue;
+            }
+            assertEquals(distancia, resultado.getSecuencia().length);
+            verificarTestigo(ca, cb, resultado);
+        }
+        assertTrue(equivalentes > 0 && equivalentes < PARES);
+    }
+
+    @Test
+    void minimizadaEsEquivalente() {
+        Random random = new Random(24);
+        for (int k = 0; k < 300; k++) {
+            FSM a = FSMAleatorias.crear(random, 1 + random.nextInt(30), 1 + random.nextInt(4), 1 + random.nextInt(3), 0.05);
+            assertTrue(a.compararCon(a.minimizar().getFSM()).esEquivalente());
+        }
+    }
+
+    /**
+     * Largo de la secuencia más corta que distingue a las máquinas, por búsqueda en anchura
+     * sobre todos los pares alcanzables, o -1 si son equivalentes
+     */
+    private static int distanciaMinima(FSMCompilada a, FSMCompilada b) {
+        int nb = b.getNumEstados();
+        int[] distancia = new int[a.getNumEstados() * nb];
+        Arrays.fill(distancia, -1);
+        ArrayDeque<Integer> cola = new ArrayDeque<>();
+        int inicio = a.getEstadoInicial() * nb + b.getEstadoInicial();
+        distancia[inicio] = 0;
+        cola.add(inicio);
+        while (!cola.isEmpty()) {
+            int par = cola.poll();
+            int pa = par / nb;
+            int pb = par % nb;
+            for (int x = 0; x < a.getNumEntradas(); x++) {
+                int xb = b.idEntrada(a.getEntrada(x));
+                int ta = a.siguiente(pa, x);
+                int tb = b.siguiente(pb, xb);
+                if (!Objects.equals(salida(a, pa, x), salida(b, pb, xb))) {
+                    return distancia[par] + 1;
+                }
+                if (ta == FSMCompilada.SIN_TRANSICION) {
+                    continue;
+                }
+                int destino = ta * nb + tb;
+                if (distancia[destino] < 0) {
+                    distancia[destino] = distancia[par] + 1;
+                    cola.add(destino);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Recorre la secuencia testigo en ambas máquinas: el prefijo produce las mismas salidas
+     * y la última entrada produce las salidas informadas, que son distintas
+     */
+    private static void verificarTestigo(FSMCompilada a, FSMCompilada b, EquivalenciaFSM.Resultado resultado) {
+        String[] secuencia = resultado.getSecuencia();
+        int ea = a.getEstadoInicial();
+        int eb = b.getEstadoInicial();
+        for (int i = 0; i < secuencia.length - 1; i++) {
+            int xa = a.idEntrada(secuencia[i]);
+            int xb = b.idEntrada(secuencia[i]);
+            assertEquals(salida(a, ea, xa), salida(b, eb, xb));
+            ea = a.siguiente(ea, xa);
+            eb = b.siguiente(eb, xb);
+            assertNotEquals(FSMCompilada.SIN_TRANSICION, ea);
+        }
+        String ultima = secuencia[secuencia.length - 1];
+        String salidaA = salida(a, ea, a.idEntrada(ultima));
+        String salidaB = salida(b, eb, b.idEntrada(ultima));
+        assertEquals(salidaA, resultado.getSalidaA());
+        assertEquals(salidaB, resultado.getSalidaB());
+        assertFalse(Objects.equals(salidaA, salidaB));
+    }
+
+    /**
+     * Nombre de la salida de una celda, o null si no hay transición
+     */
+    private static String salida(FSMCompilada fsm, int estado, int entrada) {
+        int id = fsm.salida(estado, entrada);
+        return id == FSMCompilada.SIN_TRANSICION ? null : fsm.getSalida(id);
+    }
+
+    /**
+     * Copia de la FSM con una transición cambiada al azar
+     */
+    private static FSM editada(Random random, FSM fsm) {
+        FSM copia = entradasInvertidas(fsm);
+        String[] estados = fsm.getEstados();
+        String[] entradas = fsm.getEntradas();
+        copia.agregarTransicion(estados[random.nextInt(estados.length)], entradas[random.nextInt(entradas.length)],
+                estados[random.nextInt(estados.length)], fsm.getSalidas()[random.nextInt(fsm.getSalidas().length)]);
+        return copia;
+    }
+
+    /**
+     * Copia de la FSM declarando las entradas en orden inverso, para que sus ids no coincidan
+     */
+    private static FSM entradasInvertidas(FSM fsm) {
+        String[] entradas = fsm.getEntradas();
+        String[] invertidas = new String[entradas.length];
+        for (int i = 0; i < entradas.length; i++) {
+            invertidas[i] = entradas[entradas.length - 1 - i];
+        }
+        FSM copia = new FSM(invertidas, fsm.getSalidas(), fsm.getEstados());
+        for (String estado : fsm.getEstados()) {
+            for (String entrada : entradas) {
+                Transicion transicion = fsm.getTransicion(estado, entrada);
+                if (transicion != null) {
+                    copia.agregarTransicion(estado, entrada, transicion.getEstadoDestino(), transicion.getSalida());
+                }
+            }
+        }
+        copia.setEstadoInicial(fsm.getEstadoInicial());
+        return copia;
+    }
+}
@@ -0,0 +1,63 @@
+import java.util.Random;
+
+/**
+ * Generadores de máquinas y secuencias aleatorias para las pruebas diferenciales
+ */
+final class FSMAleatorias {
+    private FSMAleatorias() {
+    }
+
+    /**
+     * Crea nombres de símbolos con un prefijo
+     * @param prefijo Prefijo de cada nombre
+     * @param cantidad Número de símbolos
+     * @return Nombres prefijo0, prefijo1, ...
+     */
+    static String[] simbolos(String prefijo, int cantidad) {
+        String[] simbolos = new String[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            simbolos[i] = prefijo + i;
+        }
+        return simbolos;
+    }
+
+    /**
+     * Crea una FSM aleatoria
+     * @param random Generador de números aleatorios
+     * @param numEstados Número de estados
+     * @param numEntradas Número de entradas
+     * @param numSalidas Número de salidas
+     * @param probabilidadHueco Probabilidad de dejar una celda sin transición
+     * @return FSM aleatoria con estado inicial S0
+     */
+    static FSM crear(Random random, int numEstados, int numEntradas, int numSalidas, double probabilidadHueco) {
+        String[] estados = simbolos("S", numEstados);
+        String[] entradas = simbolos("x", numEntradas);
+        String[] salidas = simbolos("y", numSalidas);
+        FSM fsm = new FSM(entradas, salidas, estados);
+        for (String estado : estados) {
+            for (String entrada : entradas) {
+                if (random.nextDouble() >= probabilidadHueco) {
+                    fsm.agregarTransicion(estado, entrada, estados[random.nextInt(numEstados)],
+                            salidas[random.nextInt(numSalidas)]);
+                }
+            }
+        }
+        return fsm;
+    }
+
+    /**
+     * Crea una secuencia aleatoria de ids
+     * @param random Generador de números aleatorios
+     * @param longitud Longitud de la secuencia
+     * @param limite Límite exclusivo de los ids
+     * @return Secuencia de ids en [0, limite)
+     */
+    static int[] secuencia(Random random, int longitud, int limite) {
+        int[] secuencia = new int[longitud];
+        for (int i = 0; i < longitud; i++) {
+            secuencia[i] = random.nextInt(limite);
+        }
+        return secuencia;
+    }
+}
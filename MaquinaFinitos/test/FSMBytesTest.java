@@ -0,0 +1,210 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compara FSMBytes sobre byte[], ByteBuffer (en el heap y directo) y canales con
+ * procesarLote de la FSM compilada sobre los ids de las entradas
+ * Los bytes que no son entradas de la FSM detienen el procesamiento como una transición
+ * no definida, así que la referencia procesa solo hasta el primero de ellos
+ */
+class FSMBytesTest {
+    private static final int MAQUINAS = 200;
+
+    @Test
+    void coincideConProcesarLote() throws IOException {
+        Random random = new Random(12);
+        for (int m = 0; m < MAQUINAS; m++) {
+            Alfabeto alfabeto = new Alfabeto(random, 1 + random.nextInt(12));
+            double probHueco = random.nextBoolean() ? 0.0 : 0.01;
+            FSMCompilada fsm = crear(random, 1 + random.nextInt(20), alfabeto, 1 + random.nextInt(4), probHueco);
+            FSMBytes bytes = FSMBytes.desde(fsm);
+
+            // Algunas secuencias superan el tamaño de lectura de los canales
+            int longitud = random.nextInt(10) == 0 ? 70_000 + random.nextInt(70_000) : random.nextInt(2000);
+            double probNoMapeado = random.nextBoolean() ? 0.0 : 0.001;
+            byte[] datos = alfabeto.datos(random, longitud, probNoMapeado);
+            int estado = random.nextInt(fsm.getNumEstados());
+
+            int[] esperadas = new int[longitud];
+            ResultadoLote esperado = referencia(fsm, alfabeto, estado, datos, esperadas);
+            int[] salidasEsperadas = Arrays.copyOf(esperadas, esperado.getProcesados());
+
+            // byte[] con un fragmento interior
+            int desde = longitud == 0 ? 0 : random.nextInt(Math.min(longitud, 10) + 1);
+            BufferSalidas buffer = new BufferSalidas(1 + random.nextInt(64));
+            ResultadoLote fragmento = bytes.procesar(estado, datos, desde, longitud, buffer);
+            int[] esperadasFragmento = new int[longitud - desde];
+            ResultadoLote esperadoFragmento = referencia(fsm, alfabeto, estado,
+                    Arrays.copyOfRange(datos, desde, longitud), esperadasFragmento);
+            verificar(esperadoFragmento, Arrays.copyOf(esperadasFragmento, esperadoFragmento.getProcesados()),
+                    fragmento, buffer.toArray());
+
+            // ByteBuffer en el heap con desplazamiento y ByteBuffer directo
+            byte[] conPrefijo = new byte[longitud + 3];
+            System.arraycopy(datos, 0, conPrefijo, 3, longitud);
+            ByteBuffer heap = ByteBuffer.wrap(conPrefijo, 3, longitud).slice();
+            ByteBuffer directo = ByteBuffer.allocateDirect(longitud);
+            directo.put(datos).flip();
+            for (ByteBuffer entrada : new ByteBuffer[]{heap, directo}) {
+                buffer = new BufferSalidas(1 + random.nextInt(64));
+                ResultadoLote resultado = bytes.procesar(estado, entrada, buffer);
+                verificar(esperado, salidasEsperadas, resultado, buffer.toArray());
+                assertEquals(esperado.getProcesados(), entrada.position());
+            }
+
+            // Canal con lecturas de tamaño aleatorio y un buffer que se vacía en un consumidor
+            IntStream.Builder recolectadas = IntStream.builder();
+            BufferSalidas vaciable = new BufferSalidas(1 + random.nextInt(64), b -> {
+                for (int i = 0; i < b.getLongitud(); i++) {
+                    recolectadas.add(b.get(i));
+                }
+            });
+            FSMBytes.Resultado canal = bytes.procesar(estado, new CanalTrozos(random, datos), vaciable);
+            vaciable.vaciar();
+            assertEquals(esperado.getEstadoFinal(), canal.getEstadoFinal());
+            assertEquals(esperado.getProcesados(), canal.getProcesados());
+            assertEquals(esperado.getProcesados() < longitud, canal.isDetenido());
+            assertArrayEquals(salidasEsperadas, recolectadas.build().toArray());
+        }
+    }
+
+    @Test
+    void rechazaEntradasQueNoSonBytes() {
+        FSM fsm = new FSM(new String[]{"a", "bc"}, new String[]{"0"}, new String[]{"S0"});
+        assertThrows(IllegalArgumentException.class, () -> FSMBytes.desde(fsm.compilar()));
+        FSM unicode = new FSM(new String[]{"a", "Ā"}, new String[]{"0"}, new String[]{"S0"});
+        assertThrows(IllegalArgumentException.class, () -> FSMBytes.desde(unicode.compilar()));
+    }
+
+    /**
+     * Procesa con la FSM compilada los ids de las entradas hasta el primer byte no mapeado
+     */
+    private static ResultadoLote referencia(FSMCompilada fsm, Alfabeto alfabeto, int estado, byte[] datos, int[] salidas) {
+        int[] ids = new int[datos.length];
+        int mapeados = 0;
+        while (mapeados < datos.length && alfabeto.id(datos[mapeados]) >= 0) {
+            ids[mapeados] = alfabeto.id(datos[mapeados]);
+            mapeados++;
+        }
+        return fsm.procesarLote(estado, ids, 0, mapeados, salidas, 0);
+    }
+
+    private static void verificar(ResultadoLote esperado, int[] salidasEsperadas, ResultadoLote resultado, int[] salidas) {
+        assertEquals(esperado.getEstadoFinal(), resultado.getEstadoFinal());
+        assertEquals(esperado.getProcesados(), resultado.getProcesados());
+        assertArrayEquals(salidasEsperadas, salidas);
+    }
+
+    /**
+     * FSM aleatoria cuyas entradas son los bytes del alfabeto, declaradas en orden aleatorio
+     * para que los ids no coincidan con los valores de los bytes
+     */
+    private static FSMCompilada crear(Random random, int numEstados, Alfabeto alfabeto, int numSalidas, double probHueco) {
+        String[] estados = FSMAleatorias.simbolos("S", numEstados);
+        String[] salidas = FSMAleatorias.simbolos("y", numSalidas);
+        FSM fsm = new FSM(alfabeto.entradas, salidas, estados);
+        for (String estado : estados) {
+            for (String entrada : alfabeto.entradas) {
+                if (random.nextDouble() >= probHueco) {
+                    fsm.agregarTransicion(estado, entrada, estados[random.nextInt(numEstados)],
+                            salidas[random.nextInt(numSalidas)]);
+                }
+            }
+        }
+        return fsm.compilar();
+    }
+
+    /**
+     * Subconjunto aleatorio de los 256 valores de byte usado como entradas de la FSM
+     */
+    private static class Alfabeto {
+        final String[] entradas;
+        private final byte[] valores;
+        private final int[] ids = new int[256];
+
+        Alfabeto(Random random, int cantidad) {
+            int[] permutacion = IntStream.range(0, 256).toArray();
+            for (int i = 255; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int t = permutacion[i];
+                permutacion[i] = permutacion[j];
+                permutacion[j] = t;
+            }
+            Arrays.fill(ids, -1);
+            entradas = new String[cantidad];
+            valores = new byte[cantidad];
+            for (int x = 0; x < cantidad; x++) {
+                entradas[x] = String.valueOf((char) permutacion[x]);
+                valores[x] = (byte) permutacion[x];
+                ids[permutacion[x]] = x;
+            }
+        }
+
+        /**
+         * Id de entrada de un byte, o -1 si el byte no es una entrada
+         */
+        int id(byte valor) {
+            return ids[valor & 0xFF];
+        }
+
+        byte[] datos(Random random, int longitud, double probNoMapeado) {
+            byte[] datos = new byte[longitud];
+            for (int i = 0; i < longitud; i++) {
+                if (random.nextDouble() < probNoMapeado) {
+                    byte valor;
+                    do {
+                        valor = (byte) random.nextInt(256);
+                    } while (id(valor) >= 0);
+                    datos[i] = valor;
+                } else {
+                    datos[i] = valores[random.nextInt(valores.length)];
+                }
+            }
+            return datos;
+        }
+    }
+
+    /**
+     * Canal que entrega los datos en lecturas de tamaño aleatorio
+     */
+    private static class CanalTrozos implements ReadableByteChannel {
+        private final Random random;
+        private final byte[] datos;
+        private int posicion;
+
+        CanalTrozos(Random random, byte[] datos) {
+            this.random = random;
+            this.datos = datos;
+        }
+
+        @Override
+        public int read(ByteBuffer destino) {
+            if (posicion == datos.length) {
+                return -1;
+            }
+            int cantidad = Math.min(destino.remaining(), Math.min(datos.length - posicion, 1 + random.nextInt(5000)));
+            destino.put(datos, posicion, cantidad);
+            posicion += cantidad;
+            return cantidad;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
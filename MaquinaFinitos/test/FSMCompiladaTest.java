@@ -0,0 +1,161 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.IntBuffer;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compara la FSM compilada con un recorrido de referencia sobre getTransicion
+ */
+class FSMCompiladaTest {
+    private static final int MAQUINAS = 300;
+
+    @Test
+    void tablasCoincidenConTransiciones() {
+        Random random = new Random(1);
+        for (int k = 0; k < MAQUINAS; k++) {
+            FSM fsm = FSMAleatorias.crear(random, 1 + random.nextInt(20), 1 + random.nextInt(6), 1 + random.nextInt(4), 0.2);
+            FSMCompilada compilada = fsm.compilar();
+            for (String estado : fsm.getEstados()) {
+                for (String entrada : fsm.getEntradas()) {
+                    Transicion t = fsm.getTransicion(estado, entrada);
+                    int s = compilada.idEstado(estado);
+                    int x = compilada.idEntrada(entrada);
+                    if (t == null) {
+                        assertEquals(FSMCompilada.SIN_TRANSICION, compilada.siguiente(s, x));
+                    } else {
+                        assertEquals(t.getEstadoDestino(), compilada.getEstado(compilada.siguiente(s, x)));
+                        assertEquals(t.getSalida(), compilada.getSalida(compilada.salida(s, x)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void procesarLoteCoincideConReferencia() {
+        Random random = new Random(2);
+        for (int k = 0; k < MAQUINAS; k++) {
+            FSM fsm = FSMAleatorias.crear(random, 1 + random.nextInt(20), 1 + random.nextInt(6), 1 + random.nextInt(4), 0.05);
+            FSMCompilada compilada = fsm.compilar();
+            int[] entradas = FSMAleatorias.secuencia(random, random.nextInt(200), compilada.getNumEntradas());
+
+            // Referencia: recorrido por nombres que se detiene en la primera transición faltante
+            String estado = fsm.getEstadoInicial();
+            StringBuilder esperadas = new StringBuilder();
+            int[] salidasEsperadas = new int[entradas.length];
+            int procesados = 0;
+            for (int entrada : entradas) {
+                Transicion t = fsm.getTransicion(estado, compilada.getEntrada(entrada));
+                if (t == null) {
+                    break;
+                }
+                esperadas.append(t.getSalida());
+                salidasEsperadas[procesados++] = compilada.idSalida(t.getSalida());
+                estado = t.getEstadoDestino();
+            }
+            int estadoFinal = compilada.idEstado(estado);
+
+            int[] salidas = new int[entradas.length];
+            ResultadoLote lote = compilada.procesarLote(0, entradas, 0, entradas.length, salidas, 0);
+            assertEquals(procesados, lote.getProcesados());
+            assertEquals(estadoFinal, lote.getEstadoFinal());
+            for (int i = 0; i < procesados; i++) {
+                assertEquals(salidasEsperadas[i], salidas[i]);
+            }
+
+            StringBuilder texto = new StringBuilder();
+            lote = compilada.procesarLote(0, entradas, 0, entradas.length, texto);
+            assertEquals(procesados, lote.getProcesados());
+            assertEquals(estadoFinal, lote.getEstadoFinal());
+            assertEquals(esperadas.toString(), texto.toString());
+
+            // Con separador cada salida queda terminada por él, aun con nombres de varios caracteres
+            StringBuilder separadas = new StringBuilder();
+            compilada.procesarLote(0, entradas, 0, entradas.length, separadas, ",");
+            StringBuilder esperadasSeparadas = new StringBuilder();
+            for (int i = 0; i < procesados; i++) {
+                esperadasSeparadas.append(compilada.getSalida(salidasEsperadas[i])).append(',');
+            }
+            assertEquals(esperadasSeparadas.toString(), separadas.toString());
+            fsm.reiniciar();
+            separadas.setLength(0);
+            fsm.procesarLote(entradas, separadas, ",");
+            assertEquals(esperadasSeparadas.toString(), separadas.toString());
+            assertEquals(estado, fsm.getEstadoActual());
+
+            // IntBuffer a nivel de FSM, con el perfil registrando el lote
+            fsm.reiniciar();
+            PerfilFSM perfil = fsm.activarPerfil();
+            IntBuffer salidasFSM = IntBuffer.allocate(entradas.length);
+            lote = fsm.procesarLote(IntBuffer.wrap(entradas), salidasFSM);
+            fsm.desactivarPerfil();
+            assertEquals(procesados, lote.getProcesados());
+            assertEquals(procesados, salidasFSM.position());
+            assertEquals(estado, fsm.getEstadoActual());
+            assertEquals(procesados, perfil.getPasos());
+            assertEquals(procesados < entradas.length ? 1 : 0, perfil.getErrores());
+            for (int i = 0; i < procesados; i++) {
+                assertEquals(salidasEsperadas[i], salidasFSM.get(i));
+            }
+
+            IntBuffer buffer = IntBuffer.allocate(entradas.length);
+            IntBuffer flujo = IntBuffer.wrap(entradas);
+            lote = compilada.procesarLote(0, flujo, buffer);
+            assertEquals(procesados, lote.getProcesados());
+            assertEquals(estadoFinal, lote.getEstadoFinal());
+            assertEquals(procesados, flujo.position());
+
+            // procesar paso a paso llega al mismo punto y falla en la misma entrada
+            fsm.reiniciar();
+            for (int i = 0; i < procesados; i++) {
+                assertEquals(salidasEsperadas[i], fsm.procesar(entradas[i]));
+            }
+            assertEquals(estado, fsm.getEstadoActual());
+            if (procesados < entradas.length) {
+                int siguiente = entradas[procesados];
+                assertNull(fsm.getTransicion(estado, compilada.getEntrada(siguiente)));
+                assertThrows(IllegalStateException.class, () -> fsm.procesar(siguiente));
+            }
+        }
+    }
+
+    @Test
+    void procesarLoteRechazaEstadoInvalido() {
+        FSMCompilada compilada = FSMAleatorias.crear(new Random(4), 5, 3, 2, 0.0).compilar();
+        int[] entradas = {0, 1, 2};
+        int[] salidas = new int[entradas.length];
+        for (int estado : new int[]{-1, 5, Integer.MAX_VALUE}) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> compilada.procesarLote(estado, entradas, 0, entradas.length, salidas, 0));
+            assertThrows(IllegalArgumentException.class,
+                    () -> compilada.procesarLote(estado, entradas, 0, entradas.length, new StringBuilder()));
+            assertThrows(IllegalArgumentException.class,
+                    () -> compilada.procesarLote(estado, IntBuffer.wrap(entradas), IntBuffer.allocate(3)));
+        }
+    }
+
+    @Test
+    void compilarSeInvalidaAlModificar() {
+        Random random = new Random(3);
+        for (int k = 0; k < MAQUINAS; k++) {
+            FSM fsm = FSMAleatorias.crear(random, 1 + random.nextInt(10), 1 + random.nextInt(4), 2, 0.3);
+            FSMCompilada antes = fsm.compilar();
+            String[] estados = fsm.getEstados();
+            String origen = estados[random.nextInt(estados.length)];
+            String destino = estados[random.nextInt(estados.length)];
+            String entrada = fsm.getEntradas()[random.nextInt(fsm.getEntradas().length)];
+            fsm.agregarTransicion(origen, entrada, destino, "y1");
+
+            FSMCompilada despues = fsm.compilar();
+            int s = despues.idEstado(origen);
+            int x = despues.idEntrada(entrada);
+            assertEquals(destino, despues.getEstado(despues.siguiente(s, x)));
+            assertEquals("y1", despues.getSalida(despues.salida(s, x)));
+            assertEquals(antes.getNumEstados(), despues.getNumEstados());
+        }
+    }
+}
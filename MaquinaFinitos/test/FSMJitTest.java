@@ -0,0 +1,73 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compara el código generado y el intérprete de FSMJit con FSMCompilada.procesarLote
+ */
+class FSMJitTest {
+    @Test
+    void coincideConProcesarLote() {
+        Random random = new Random(10);
+        for (int k = 0; k < 100; k++) {
+            int estados = 1 + random.nextInt(20);
+            int entradas = 1 + random.nextInt(Math.min(12, 300 / estados));
+            FSMCompilada compilada = FSMAleatorias.crear(random, estados, entradas, 1 + random.nextInt(5), 0.05).compilar();
+            FSMJit generada = FSMJit.generada(compilada);
+            assertTrue(generada.isEspecializada());
+            for (FSMJit jit : new FSMJit[]{generada, FSMJit.interpretada(compilada)}) {
+                for (int r = 0; r < 5; r++) {
+                    int[] secuencia = FSMAleatorias.secuencia(random, random.nextInt(300), entradas);
+                    int inicio = random.nextInt(estados);
+                    int[] esperadas = new int[secuencia.length];
+                    int[] salidas = new int[secuencia.length];
+                    ResultadoLote esperado = compilada.procesarLote(inicio, secuencia, 0, secuencia.length, esperadas, 0);
+                    ResultadoLote lote = jit.procesarLote(inicio, secuencia, 0, secuencia.length, salidas, 0);
+                    assertEquals(esperado.getProcesados(), lote.getProcesados());
+                    assertEquals(esperado.getEstadoFinal(), lote.getEstadoFinal());
+                    for (int i = 0; i < lote.getProcesados(); i++) {
+                        assertEquals(esperadas[i], salidas[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void maquinasGrandesUsanElInterprete() {
+        FSMCompilada grande = FSMAleatorias.crear(new Random(11), 40, 16, 2, 0.0).compilar();
+        assertThrows(IllegalStateException.class, () -> FSMJit.generada(grande));
+        assertFalse(FSMJit.crear(grande, true).isEspecializada());
+    }
+
+    @Test
+    void crearEsDeterminista() {
+        FSMCompilada pequena = FSMAleatorias.crear(new Random(14), 16, 4, 3, 0.0).compilar();
+        assertFalse(FSMJit.crear(pequena).isEspecializada());
+        assertFalse(FSMJit.crear(pequena, false).isEspecializada());
+        assertTrue(FSMJit.crear(pequena, true).isEspecializada());
+    }
+
+    @Test
+    void crearDevuelveUnaEjecucionCorrecta() {
+        FSMCompilada compilada = FSMAleatorias.crear(new Random(12), 16, 4, 3, 0.0).compilar();
+        for (boolean especializar : new boolean[]{false, true}) {
+            FSMJit jit = FSMJit.crear(compilada, especializar);
+            int[] secuencia = FSMAleatorias.secuencia(new Random(13), 1000, 4);
+            int[] esperadas = new int[secuencia.length];
+            int[] salidas = new int[secuencia.length];
+            ResultadoLote esperado = compilada.procesarLote(0, secuencia, 0, secuencia.length, esperadas, 0);
+            ResultadoLote lote = jit.procesarLote(0, secuencia, 0, secuencia.length, salidas, 0);
+            assertEquals(esperado.getEstadoFinal(), lote.getEstadoFinal());
+            assertEquals(secuencia.length, lote.getProcesados());
+            for (int i = 0; i < secuencia.length; i++) {
+                assertEquals(esperadas[i], salidas[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Formato binario: ida y vuelta, ejecución directa sobre el archivo y archivos dañados
+ */
+class FSMMapeadaTest {
+    @TempDir
+    Path directorio;
+
+    @Test
+    void procesaIgualQueLaCompilada() throws IOException {
+        Random random = new Random(7);
+        for (int k = 0; k < 50; k++) {
+            FSMCompilada compilada = FSMAleatorias.crear(random, 1 + random.nextInt(30), 1 + random.nextInt(5), 1 + random.nextInt(4), 0.1).compilar();
+            Path archivo = directorio.resolve("m" + k + ".fsmc");
+            FSMMapeada.guardar(compilada, archivo);
+            FSMMapeada mapeada = FSMMapeada.abrir(archivo);
+
+            int[] entradas = FSMAleatorias.secuencia(random, 300, compilada.getNumEntradas());
+            int[] esperadas = new int[entradas.length];
+            int[] salidas = new int[entradas.length];
+            ResultadoLote esperado = compilada.procesarLote(0, entradas, 0, entradas.length, esperadas, 0);
+            ResultadoLote lote = mapeada.procesarLote(0, entradas, 0, entradas.length, salidas, 0);
+            assertEquals(esperado.getProcesados(), lote.getProcesados());
+            assertEquals(esperado.getEstadoFinal(), lote.getEstadoFinal());
+            for (int i = 0; i < lote.getProcesados(); i++) {
+                assertEquals(esperadas[i], salidas[i]);
+            }
+            for (int s = 0; s < compilada.getNumEstados(); s++) {
+                assertEquals(compilada.getEstado(s), mapeada.getEstado(s));
+            }
+            assertEquals(compilada.getSalida(compilada.getNumSalidas() - 1), mapeada.getSalida(compilada.getNumSalidas() - 1));
+        }
+    }
+
+    @Test
+    void ejecutorSobreLaFSMMapeada() throws IOException {
+        Random random = new Random(8);
+        FSMCompilada compilada = FSMAleatorias.crear(random, 50, 4, 3, 0.0).compilar();
+        Path archivo = directorio.resolve("m.fsmc");
+        FSMMapeada.guardar(compilada, archivo);
+        FSMMapeada mapeada = FSMMapeada.abrir(archivo);
+
+        StringBuilder texto = new StringBuilder();
+        for (int entrada : FSMAleatorias.secuencia(random, 5000, 4)) {
+            texto.append(compilada.getEntrada(entrada)).append('\n');
+        }
+        Path entradas = directorio.resolve("entradas.txt");
+        Files.writeString(entradas, texto, StandardCharsets.UTF_8);
+
+        Path salidaCompilada = directorio.resolve("compilada.txt");
+        Path salidaMapeada = directorio.resolve("mapeada.txt");
+        EjecutorArchivo.Resultado esperado = new EjecutorArchivo(compilada).ejecutar(entradas, salidaCompilada, 0);
+        EjecutorArchivo.Resultado resultado = new EjecutorArchivo(mapeada).ejecutar(entradas, salidaMapeada, 0);
+        assertEquals(esperado.getEstadoFinal(), resultado.getEstadoFinal());
+        assertEquals(esperado.getProcesados(), resultado.getProcesados());
+        assertEquals(Files.readString(salidaCompilada), Files.readString(salidaMapeada));
+    }
+
+    @Test
+    void rechazaArchivosDanados() throws IOException {
+        FSMCompilada compilada = FSMAleatorias.crear(new Random(9), 3, 2, 2, 0.0).compilar();
+        Path archivo = directorio.resolve("m.fsmc");
+        FSMMapeada.guardar(compilada, archivo);
+        byte[] original = Files.readAllBytes(archivo);
+        int inicioTablas = ByteBuffer.wrap(original).getInt(24);
+
+        danado(original, 8, -3);                      // numEstados negativo
+        danado(original, 12, -2);                     // numEntradas negativo
+        danado(original, 16, -1);                     // numSalidas negativo
+        danado(original, 20, 3);                      // estado inicial fuera de rango
+        danado(original, 24, 4);                      // tablas dentro del encabezado
+        danado(original, 24, original.length + 4);    // tablas después del final
+        danado(original, 28, -1);                     // longitud de símbolo negativa
+        danado(original, 28, inicioTablas);           // símbolo que invade las tablas
+        danado(original, 8, Integer.MAX_VALUE);       // tablas enormes
+
+        int celdas = 3 * 2;
+        int inicioSalida = inicioTablas + celdas * Integer.BYTES;
+        danado(original, inicioTablas + 4, 3);        // destino fuera de rango
+        danado(original, inicioTablas + 4, -2);       // destino negativo
+        danado(original, inicioSalida + 8, 2);        // salida fuera de rango
+        danado(original, inicioSalida + 8, -1);       // transición sin salida
+    }
+
+    @Test
+    void rechazaSimbolosRepetidos() throws IOException {
+        // Dos entradas con el mismo nombre corrían los ids de las siguientes
+        String[] estados = {"A", "B"};
+        String[] entradas = {"x", "y", "z"};
+        String[] salidas = {"0", "1"};
+        FSM fsm = new FSM(entradas, salidas, estados);
+        for (String estado : estados) {
+            for (String entrada : entradas) {
+                fsm.agregarTransicion(estado, entrada, "B", "1");
+            }
+        }
+        Path archivo = directorio.resolve("repetido.fsmc");
+        FSMMapeada.guardar(fsm.compilar(), archivo);
+        byte[] bytes = Files.readAllBytes(archivo);
+        // Cada símbolo de un carácter ocupa 5 bytes: longitud + byte; la entrada "y" pasa a ser "x"
+        int posicionY = 7 * Integer.BYTES + 2 * 5 + 5 + Integer.BYTES;
+        assertEquals('y', bytes[posicionY]);
+        bytes[posicionY] = 'x';
+        Files.write(archivo, bytes);
+
+        FSMMapeada mapeada = FSMMapeada.abrir(archivo);
+        assertThrows(IllegalArgumentException.class, () -> mapeada.getEntrada(2));
+        assertThrows(IllegalArgumentException.class, mapeada::compilar);
+        assertThrows(IllegalArgumentException.class, () -> new EjecutorArchivo(mapeada));
+    }
+
+    private void danado(byte[] original, int posicion, int valor) throws IOException {
+        byte[] bytes = original.clone();
+        ByteBuffer.wrap(bytes).putInt(posicion, valor);
+        Path archivo = directorio.resolve("danado.fsmc");
+        Files.write(archivo, bytes);
+        assertThrows(IllegalArgumentException.class, () -> FSMMapeada.abrir(archivo), "posición " + posicion);
+    }
+}
@@ -0,0 +1,38 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compara la partición del minimizador con la equivalencia par a par de los estados
+ */
+class MinimizadorFSMTest {
+    @Test
+    void fusionaExactamenteLosEstadosEquivalentes() {
+        Random random = new Random(6);
+        for (int k = 0; k < 200; k++) {
+            FSM fsm = FSMAleatorias.crear(random, 1 + random.nextInt(12), 1 + random.nextInt(3), 1 + random.nextInt(2), 0.15);
+            FSMCompilada compilada = fsm.compilar();
+            MinimizadorFSM.Resultado resultado = fsm.minimizar();
+            assertTrue(fsm.compararCon(resultado.getFSM()).esEquivalente());
+
+            String[] estados = fsm.getEstados();
+            for (String p : estados) {
+                for (String q : estados) {
+                    boolean equivalentes = EquivalenciaFSM.comparar(desde(fsm, compilada, p), desde(fsm, compilada, q)).esEquivalente();
+                    assertEquals(equivalentes, resultado.getEstadoNuevo(p).equals(resultado.getEstadoNuevo(q)), p + " y " + q);
+                }
+            }
+        }
+    }
+
+    /**
+     * La misma máquina compilada empezando en otro estado
+     */
+    private static FSMCompilada desde(FSM fsm, FSMCompilada compilada, String estado) {
+        return new FSMCompilada(fsm.getTablaEstados(), fsm.getTablaEntradas(), fsm.getTablaSalidas(),
+                compilada.siguiente, compilada.salida, compilada.idEstado(estado));
+    }
+}
@@ -0,0 +1,96 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compara los contadores del perfil, en arreglo y en tabla hash, y repartidos entre hilos,
+ * con un conteo directo de las celdas recorridas
+ */
+class PerfilFSMTest {
+    @Test
+    void coincideConConteoDirecto() throws InterruptedException {
+        Random random = new Random(14);
+        // La segunda máquina supera MAXIMO_DENSO celdas y usa la tabla hash
+        int[] tamanos = {50, PerfilFSM.MAXIMO_DENSO / 2 + 1};
+        for (int numEstados : tamanos) {
+            FSMCompilada fsm = FSMAleatorias.crear(random, numEstados, 4, 3, 0.05).compilar();
+            PerfilFSM perfil = new PerfilFSM(fsm.getNumEstados(), fsm.getNumEntradas());
+            long[] usos = new long[fsm.getNumEstados() * fsm.getNumEntradas()];
+            long[] errores = new long[fsm.getNumEstados()];
+
+            int[][] lotes = new int[200][];
+            int[] iniciales = new int[lotes.length];
+            for (int k = 0; k < lotes.length; k++) {
+                lotes[k] = FSMAleatorias.secuencia(random, random.nextInt(500), fsm.getNumEntradas());
+                iniciales[k] = random.nextInt(fsm.getNumEstados());
+                contar(fsm, iniciales[k], lotes[k], usos, errores);
+            }
+            // Mitad de los lotes en este hilo y mitad en otro, para sumar contadores de varios hilos
+            Thread otro = new Thread(() -> registrar(fsm, perfil, iniciales, lotes, 1));
+            otro.start();
+            registrar(fsm, perfil, iniciales, lotes, 0);
+            otro.join();
+
+            long pasos = 0;
+            long maximo = 0;
+            long[] visitas = errores.clone();
+            for (int celda = 0; celda < usos.length; celda++) {
+                assertEquals(usos[celda], perfil.getUsos(celda / fsm.getNumEntradas(), celda % fsm.getNumEntradas()));
+                pasos += usos[celda];
+                maximo = Math.max(maximo, usos[celda]);
+                visitas[celda / fsm.getNumEntradas()] += usos[celda];
+            }
+            assertEquals(pasos, perfil.getPasos());
+            assertEquals(maximo, perfil.getMaximoUso());
+            assertEquals(Arrays.stream(errores).sum(), perfil.getErrores());
+            assertArrayEquals(visitas, perfil.getVisitas());
+            assertArrayEquals(masUsadas(usos, 10), perfil.masUsadas(10));
+
+            perfil.reiniciar();
+            assertEquals(0, perfil.getPasos());
+            assertEquals(0, perfil.getErrores());
+            assertEquals(0, perfil.masUsadas(10).length);
+        }
+    }
+
+    private static void registrar(FSMCompilada fsm, PerfilFSM perfil, int[] iniciales, int[][] lotes, int paridad) {
+        for (int k = paridad; k < lotes.length; k += 2) {
+            int[] salidas = new int[lotes[k].length];
+            ResultadoLote resultado = fsm.procesarLote(iniciales[k], lotes[k], 0, lotes[k].length, salidas, 0);
+            perfil.registrarLote(fsm, iniciales[k], lotes[k], 0, lotes[k].length, resultado);
+        }
+    }
+
+    /**
+     * Recorre un lote paso a paso contando las celdas usadas y el error final, si lo hay
+     */
+    private static void contar(FSMCompilada fsm, int estado, int[] entradas, long[] usos, long[] errores) {
+        for (int entrada : entradas) {
+            int destino = fsm.siguiente(estado, entrada);
+            if (destino == FSMCompilada.SIN_TRANSICION) {
+                errores[estado]++;
+                return;
+            }
+            usos[estado * fsm.getNumEntradas() + entrada]++;
+            estado = destino;
+        }
+    }
+
+    /**
+     * Celdas con usos ordenadas de más a menos usada y, a igual número, por celda
+     */
+    private static int[] masUsadas(long[] usos, int limite) {
+        return IntStream.range(0, usos.length)
+                .filter(celda -> usos[celda] > 0)
+                .boxed()
+                .sorted((a, b) -> usos[a] != usos[b] ? Long.compare(usos[b], usos[a]) : Integer.compare(a, b))
+                .limit(limite)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}